@@ -0,0 +1,92 @@
+package recipes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutationBenchmarks {
+ //adds and modifies on a RecipeCollection of synthetic recipes
+ //the adds go to a collection that starts empty every iteration, so it doesn't grow without bound
+
+ @Param({"10000"})
+ public int size;
+
+ private List<Recipe> extra; //recipes to add and to swap in
+ private RecipeCollection collection;
+ private RecipeCollection growing;
+ private String[] names;
+ private final Random random = new Random(7);
+ private int counter;
+
+ @Setup
+ public void setUp() {
+  SyntheticRecipeGenerator generator = new SyntheticRecipeGenerator(42);
+  List<Recipe> data = generator.generate(size);
+  extra = generator.generate(10_000);
+  collection = new RecipeCollection();
+  collection.addRecipes(data);
+  names = new String[data.size()];
+  for (int i = 0; i < names.length; i++) {
+   names[i] = data.get(i).getRecipeName();
+  }
+ }
+
+ @Setup(Level.Iteration)
+ public void emptyGrowing() {
+  growing = new RecipeCollection();
+ }
+
+ @Benchmark
+ public void addRecipe() {
+  growing.addRecipe(extra.get(counter++ % extra.size()));
+ }
+
+ @Benchmark
+ public void addRecipesBatchOf1000() {
+  int from = (counter++ * 1000) % (extra.size() - 1000);
+  growing.addRecipes(extra.subList(from, from + 1000));
+ }
+
+ @Benchmark
+ public void modifyRecipeRating() {
+  collection.modifyRecipe(names[random.nextInt(names.length)], "rating", String.valueOf(1 + counter++ % 5));
+ }
+
+ @Benchmark
+ public void modifyEntireRecipe() {
+  //swaps in a copy under the same name so the name lookups keep working
+  int target = random.nextInt(names.length);
+  Recipe replacement = new Recipe(extra.get(counter++ % extra.size()));
+  replacement.setRecipeName(names[target]);
+  collection.modifyEntireRecipe(names[target], replacement);
+ }
+
+ @Benchmark
+ public void modifyRecipesBatchOf100Ratings() {
+  List<RecipeMutation> batch = new ArrayList<>(100);
+  for (int k = 0; k < 100; k++) {
+   batch.add(new RecipeMutation(names[random.nextInt(names.length)], "rating", String.valueOf(1 + (counter + k) % 5)));
+  }
+  counter++;
+  collection.modifyRecipes(batch);
+ }
+}
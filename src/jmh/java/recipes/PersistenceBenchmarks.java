@@ -0,0 +1,141 @@
+package recipes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmarks {
+ //exports and loads in each format, and the page file saving only what a change touched,
+ //compare the page file saves with the full exports
+
+ @Param({"10000"})
+ public int size;
+
+ private RecipeCollection collection;
+ private String[] names;
+ private File text;
+ private File binary;
+ private File pages;
+ private RecipeCollection paged;
+ private PagedRecipeStore store;
+ private PrintStream out;
+ private WritableByteChannel channel;
+ private final Random random = new Random(7);
+ private int counter;
+
+ @Setup
+ public void setUp() throws IOException {
+  out = System.out;
+  System.setOut(new PrintStream(OutputStream.nullOutputStream())); //hides the export and load messages
+  List<Recipe> data = new SyntheticRecipeGenerator(42).generate(size);
+  collection = new RecipeCollection();
+  collection.addRecipes(data);
+  names = new String[data.size()];
+  for (int i = 0; i < names.length; i++) {
+   names[i] = data.get(i).getRecipeName();
+  }
+  text = File.createTempFile("recipe-bench", ".txt");
+  binary = File.createTempFile("recipe-bench", BinaryRecipeFormat.EXTENSION);
+  pages = File.createTempFile("recipe-bench", PagedRecipeStore.EXTENSION);
+  collection.exportRecipes(text.getPath());
+  collection.exportRecipes(binary.getPath());
+  collection.exportRecipes(pages.getPath());
+  paged = new RecipeCollection();
+  paged.loadRecipes(pages.getPath());
+  store = new PagedRecipeStore(pages.getPath());
+  paged.addChangeListener(store);
+  channel = Channels.newChannel(OutputStream.nullOutputStream());
+ }
+
+ @TearDown
+ public void tearDown() throws IOException {
+  store.close();
+  text.delete();
+  binary.delete();
+  pages.delete();
+  new File(pages.getPath() + PagedRecipeStore.JOURNAL_EXTENSION).delete();
+  System.setOut(out);
+ }
+
+ @Benchmark
+ public void exportText() throws IOException {
+  collection.exportRecipes(text.getPath());
+ }
+
+ @Benchmark
+ public void exportBinary() throws IOException {
+  collection.exportRecipes(binary.getPath());
+ }
+
+ @Benchmark
+ public void exportStream() throws IOException {
+  collection.exportRecipes(OutputStream.nullOutputStream(), false);
+ }
+
+ @Benchmark
+ public void exportGzipStream() throws IOException {
+  collection.exportRecipes(OutputStream.nullOutputStream(), true);
+ }
+
+ @Benchmark
+ public void exportChannel() throws IOException {
+  //the text export encoded straight into the channel's buffers, as the server's export endpoint uses it
+  collection.exportRecipes(channel);
+ }
+
+ @Benchmark
+ public RecipeCollection loadText() throws IOException {
+  RecipeCollection loaded = new RecipeCollection();
+  loaded.loadRecipes(text.getPath());
+  return loaded;
+ }
+
+ @Benchmark
+ public RecipeCollection loadBinary() throws IOException {
+  RecipeCollection loaded = new RecipeCollection();
+  loaded.loadRecipes(binary.getPath());
+  return loaded;
+ }
+
+ @Benchmark
+ public void modifyRecipeAndSavePages() {
+  paged.modifyRecipe(names[random.nextInt(names.length)], "rating", String.valueOf(1 + counter++ % 5));
+  store.flush();
+ }
+
+ @Benchmark
+ public void modifyRecipesBatchOf100AndSavePages() {
+  List<RecipeMutation> batch = new ArrayList<>(100);
+  for (int k = 0; k < 100; k++) {
+   batch.add(new RecipeMutation(names[random.nextInt(names.length)], "notes", "note " + (counter + k)));
+  }
+  counter++;
+  paged.modifyRecipes(batch);
+  store.flush();
+ }
+}
@@ -0,0 +1,133 @@
+package recipes;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmarks {
+ //searches and sorts on a RecipeCollection of synthetic recipes, -p size=10000,1000000,10000000 for bigger ones
+ //with -p queryCache=true the repeated searches and sorts are answered from the query cache, with false every one
+ //is computed. sortAfterChange shows the cost of a sort after an edit, when the cache can't help either way
+
+ @Param({"10000"})
+ public int size;
+
+ @Param({"true", "false"})
+ public boolean queryCache;
+
+ private SyntheticRecipeGenerator generator;
+ private RecipeCollection collection;
+ private InstrumentedRecipeOperations instrumented;
+ private String[] names;
+ private final Random random = new Random(7);
+ private int counter;
+
+ @Setup
+ public void setUp() {
+  generator = new SyntheticRecipeGenerator(42);
+  List<Recipe> data = generator.generate(size);
+  collection = new RecipeCollection();
+  collection.setQueryCacheEnabled(queryCache);
+  collection.addRecipes(data);
+  instrumented = new InstrumentedRecipeOperations(collection);
+  names = new String[data.size()];
+  for (int i = 0; i < names.length; i++) {
+   names[i] = data.get(i).getRecipeName();
+  }
+ }
+
+ @Benchmark
+ public int viewAllRecipes() {
+  return collection.viewAllRecipes().size();
+ }
+
+ @Benchmark
+ public List<Recipe> searchSingleIngredient() {
+  return collection.searchRecipes("single ingredient", generator.randomIngredient());
+ }
+
+ @Benchmark
+ public List<Recipe> searchExactName() {
+  return collection.searchRecipes("recipe name (exact)", names[random.nextInt(names.length)]);
+ }
+
+ @Benchmark
+ public List<Recipe> searchExactNameInstrumented() {
+  return instrumented.searchRecipes("recipe name (exact)", names[random.nextInt(names.length)]);
+ }
+
+ @Benchmark
+ public List<Recipe> searchPartialName() {
+  return collection.searchRecipes("recipe name (partial)", "bake " + generator.randomIngredient());
+ }
+
+ @Benchmark
+ public List<Recipe> searchFuzzyName() {
+  //the name with one letter dropped
+  String name = names[random.nextInt(names.length)];
+  int typo = 1 + random.nextInt(name.length() - 1);
+  return collection.searchRecipes("recipe name (fuzzy)", name.substring(0, typo - 1) + name.substring(typo));
+ }
+
+ @Benchmark
+ public List<Recipe> searchFullText() {
+  return collection.searchRecipes("full text", "\"air fryer\" crispy golden");
+ }
+
+ @Benchmark
+ public List<Recipe> searchMealType() {
+  return collection.searchRecipes("meal type", "lunch");
+ }
+
+ @Benchmark
+ public List<Recipe> searchMultipleIngredients() {
+  return collection.searchRecipesMultipleIngredients(List.of(generator.randomIngredient(), generator.randomIngredient()));
+ }
+
+ @Benchmark
+ public List<Recipe> searchQuery() {
+  //dinners with an ingredient, rated 4 or 5 and cooked within half an hour
+  return collection.searchRecipes(new RecipeQuery().withMealType("dinner")
+                                                  .withIngredients(generator.randomIngredient())
+                                                  .withRating(4, 5)
+                                                  .withCookTime(0, 30));
+ }
+
+ @Benchmark
+ public List<Recipe> sortSingleRating() {
+  return collection.sortRecipes("single", "rating");
+ }
+
+ @Benchmark
+ public List<Recipe> sortMultipleRatingCookTime() {
+  return collection.sortRecipes("multiple", "rating", "cookTime");
+ }
+
+ @Benchmark
+ public List<Recipe> sortPageTop20() {
+  return collection.sortRecipesPage(0, 20, "multiple", "rating", "cookTime");
+ }
+
+ @Benchmark
+ public List<Recipe> sortAfterChange() {
+  collection.modifyRecipe(names[random.nextInt(names.length)], "rating", String.valueOf(1 + counter++ % 5));
+  return collection.sortRecipes("multiple", "rating", "cookTime");
+ }
+}
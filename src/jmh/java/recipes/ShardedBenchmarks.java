@@ -0,0 +1,96 @@
+package recipes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedBenchmarks {
+ //the same recipes spread over one shard per core, compare with QueryBenchmarks and PersistenceBenchmarks
+ //to see the fan-out pay off
+
+ @Param({"10000"})
+ public int size;
+
+ private SyntheticRecipeGenerator generator;
+ private ShardedRecipeCollection sharded;
+ private String[] names;
+ private File shardFile;
+ private PrintStream out;
+ private final Random random = new Random(7);
+ private int counter;
+
+ @Setup
+ public void setUp() throws IOException {
+  out = System.out;
+  System.setOut(new PrintStream(OutputStream.nullOutputStream())); //hides the export and load messages
+  generator = new SyntheticRecipeGenerator(42);
+  List<Recipe> data = generator.generate(size);
+  sharded = new ShardedRecipeCollection();
+  sharded.addRecipes(data);
+  names = new String[data.size()];
+  for (int i = 0; i < names.length; i++) {
+   names[i] = data.get(i).getRecipeName();
+  }
+  shardFile = File.createTempFile("recipe-bench-sharded", ".txt");
+  shardFile.delete(); //loadRecipes reads the shard files, not this one
+  sharded.saveShards(shardFile.getPath());
+ }
+
+ @TearDown
+ public void tearDown() {
+  for (int s = 0; s < sharded.getShardCount(); s++) {
+   new File(ShardedRecipeCollection.shardFileName(shardFile.getPath(), s)).delete();
+  }
+  System.setOut(out);
+ }
+
+ @Benchmark
+ public List<Recipe> searchPartialName() {
+  return sharded.searchRecipes("recipe name (partial)", "bake " + generator.randomIngredient());
+ }
+
+ @Benchmark
+ public List<Recipe> searchFullText() {
+  return sharded.searchRecipes("full text", "\"air fryer\" crispy golden");
+ }
+
+ @Benchmark
+ public List<Recipe> sortAfterChange() {
+  sharded.modifyRecipe(names[random.nextInt(names.length)], "rating", String.valueOf(1 + counter++ % 5));
+  return sharded.sortRecipes("multiple", "rating", "cookTime");
+ }
+
+ @Benchmark
+ public void saveShards() throws IOException {
+  sharded.saveShards(shardFile.getPath());
+ }
+
+ @Benchmark
+ public ShardedRecipeCollection loadShards() throws IOException {
+  ShardedRecipeCollection loaded = new ShardedRecipeCollection();
+  loaded.loadRecipes(shardFile.getPath());
+  return loaded;
+ }
+}
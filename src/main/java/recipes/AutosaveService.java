@@ -0,0 +1,102 @@
+package recipes;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+public class AutosaveService {
+ //this class runs a save action on a background virtual thread some time after changes are marked
+ //every change marked while a save is waiting is covered by that one save, so a burst of edits costs one write
+ //the action never runs twice at once, and flush or close run any waiting save on the caller's thread
+
+ private final Runnable saveAction;
+ private final long delayMillis;
+ private final ReentrantLock saveLock = new ReentrantLock(); //a lock instead of synchronized so virtual threads aren't pinned while saving
+ private boolean dirty;
+ private boolean closed;
+ private boolean sleeping; //close only interrupts the wait, a save in progress is left to finish its writes
+ private Thread worker;
+
+ public AutosaveService(Runnable saveAction, long delayMillis) {
+  this.saveAction = saveAction;
+  this.delayMillis = delayMillis;
+ }
+
+ public void markDirty() {
+  //records that there is something to save and starts the background save if none is waiting
+  synchronized (this) {
+   dirty = true;
+   if (!closed) {
+    if (worker == null) {
+     worker = Thread.ofVirtual().name("recipe-autosave").start(this::run);
+    }
+    return; //the waiting save picks this change up
+   }
+  }
+  save(); //after close there is no background thread, so save straight away
+ }
+
+ private void run() {
+  while (true) {
+   synchronized (this) {
+    if (closed) {
+     worker = null;
+     return;
+    }
+    sleeping = true;
+   }
+   try {
+    Thread.sleep(delayMillis); //lets more changes arrive before writing
+   } catch (InterruptedException e) {
+    //woken early by close, which saves on its own thread
+   }
+   synchronized (this) {
+    sleeping = false;
+    Thread.interrupted(); //an interrupt that arrived as the sleep ended would break the save's file channels
+    if (!dirty || closed) {
+     worker = null;
+     return;
+    }
+   }
+   save();
+  }
+ }
+
+ public void flush() {
+  //runs a waiting save now, on the calling thread
+  save();
+ }
+
+ private void save() {
+  saveLock.lock();
+  try {
+   synchronized (this) {
+    if (!dirty) {
+     return;
+    }
+    dirty = false; //changes marked from here on need another save
+   }
+   saveAction.run();
+  } finally {
+   saveLock.unlock();
+  }
+ }
+
+ public void close() {
+  //stops the background thread and saves whatever is still waiting
+  Thread running;
+  synchronized (this) {
+   closed = true;
+   running = worker;
+   if (running != null && sleeping) {
+    running.interrupt();
+   }
+  }
+  if (running != null) {
+   try {
+    running.join();
+   } catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+   }
+  }
+  flush();
+ }
+}
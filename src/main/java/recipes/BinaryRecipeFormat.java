@@ -0,0 +1,196 @@
+package recipes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class BinaryRecipeFormat {
+ //this class reads and writes the compact binary snapshot used for files ending in ".bin"
+ //layout: magic, version, a dictionary of shared strings, then one record per recipe
+ //cuisine, meal type, difficulty and ingredients are stored as dictionary ids, the other strings are
+ //length-prefixed UTF-8 and the numbers are fixed-width ints. a null string or list is stored as -1
+
+ static final String EXTENSION = ".bin";
+ private static final int MAGIC = 0x52435042; //"RCPB"
+ private static final int VERSION = 1;
+
+ static boolean isBinary(String fileName) {
+  return fileName.toLowerCase().endsWith(EXTENSION);
+ }
+
+ static void write(List<Recipe> recipes, File file) throws IOException {
+  //first pass collects the dictionary so it can be written ahead of the records
+  Map<String, Integer> dictionary = new HashMap<>();
+  List<String> entries = new ArrayList<>();
+  for (Recipe r : recipes) {
+   addEntry(dictionary, entries, r.getCuisineType());
+   addEntry(dictionary, entries, r.getMealType());
+   addEntry(dictionary, entries, r.getDifficulty());
+   if (r.getIngredients() != null) {
+    for (String ing : r.getIngredients()) {
+     addEntry(dictionary, entries, ing);
+    }
+   }
+  }
+
+  try (FileOutputStream stream = new FileOutputStream(file);
+       FileChannel channel = stream.getChannel()) {
+   ByteBuffer out = ByteBuffer.allocate(1 << 16); //reused encode buffer, drained to the channel when full
+   out.putInt(MAGIC);
+   out.putInt(VERSION);
+   out.putInt(entries.size());
+   for (String entry : entries) {
+    out = writeString(channel, out, entry);
+   }
+   out = ensure(channel, out, 4);
+   out.putInt(recipes.size());
+   for (Recipe r : recipes) {
+    out = writeString(channel, out, r.getRecipeName());
+    List<String> ingredients = r.getIngredients();
+    out = ensure(channel, out, 12 + (ingredients == null ? 0 : 4 * ingredients.size()));
+    out.putInt(idOf(dictionary, r.getCuisineType()));
+    out.putInt(idOf(dictionary, r.getMealType()));
+    out.putInt(ingredients == null ? -1 : ingredients.size());
+    if (ingredients != null) {
+     for (String ing : ingredients) {
+      out.putInt(idOf(dictionary, ing));
+     }
+    }
+    out = writeString(channel, out, r.getPreparationSteps());
+    out = ensure(channel, out, 16);
+    out.putInt(r.getPrepTime());
+    out.putInt(r.getCookTime());
+    out.putInt(idOf(dictionary, r.getDifficulty()));
+    out.putInt(r.getRating());
+    out = writeString(channel, out, r.getNotes());
+   }
+   drain(channel, out);
+  }
+ }
+
+ static List<Recipe> read(File file) throws IOException {
+  //maps the file and decodes it straight from the buffer
+  ByteBuffer in;
+  try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+       FileChannel channel = raf.getChannel()) {
+   if (channel.size() > Integer.MAX_VALUE) {
+    throw new IOException("Binary snapshot is too large: " + file);
+   }
+   in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+  }
+  try {
+   if (in.getInt() != MAGIC) {
+    throw new IOException("Not a binary recipe snapshot: " + file);
+   }
+   int version = in.getInt();
+   if (version != VERSION) {
+    throw new IOException("Unsupported binary snapshot version " + version + ": " + file);
+   }
+   byte[] scratch = new byte[1 << 16]; //reused for every string that fits
+   String[] dictionary = new String[in.getInt()];
+   for (int i = 0; i < dictionary.length; i++) {
+    dictionary[i] = readString(in, scratch);
+   }
+   int[] globalIds = new int[dictionary.length];
+   Arrays.fill(globalIds, -2); //-2 = not looked up yet
+   int count = in.getInt();
+   List<Recipe> recipes = new ArrayList<>(count);
+   for (int i = 0; i < count; i++) {
+    String name = readString(in, scratch);
+    String cuisine = lookup(dictionary, in.getInt());
+    String mealType = lookup(dictionary, in.getInt());
+    int ingredientCount = in.getInt();
+    int[] ingredientIds = null;
+    if (ingredientCount >= 0) {
+     //maps the file's dictionary ids to IngredientDictionary ids, no strings are built per recipe
+     ingredientIds = new int[ingredientCount];
+     for (int j = 0; j < ingredientCount; j++) {
+      int local = in.getInt();
+      if (local >= 0 && globalIds[local] == -2) {
+       globalIds[local] = IngredientDictionary.idOf(dictionary[local]);
+      }
+      ingredientIds[j] = local < 0 ? -1 : globalIds[local];
+     }
+    }
+    String steps = readString(in, scratch);
+    int prepTime = in.getInt();
+    int cookTime = in.getInt();
+    String difficulty = lookup(dictionary, in.getInt());
+    int rating = in.getInt();
+    String notes = readString(in, scratch);
+    Recipe recipe = new Recipe(name, cuisine, mealType, null, steps,
+                               prepTime, cookTime, difficulty, rating, notes);
+    recipe.setIngredientIds(ingredientIds);
+    recipes.add(recipe);
+   }
+   return recipes;
+  } catch (RuntimeException e) {
+   //buffer underflows and bad ids mean the file is truncated or corrupt
+   throw new IOException("Corrupt binary snapshot: " + file, e);
+  }
+ }
+
+ private static void addEntry(Map<String, Integer> dictionary, List<String> entries, String value) {
+  if (value != null && !dictionary.containsKey(value)) {
+   dictionary.put(value, entries.size());
+   entries.add(value);
+  }
+ }
+
+ private static int idOf(Map<String, Integer> dictionary, String value) {
+  return value == null ? -1 : dictionary.get(value);
+ }
+
+ private static String lookup(String[] dictionary, int id) {
+  return id < 0 ? null : dictionary[id];
+ }
+
+ private static ByteBuffer writeString(FileChannel channel, ByteBuffer out, String value) throws IOException {
+  if (value == null) {
+   out = ensure(channel, out, 4);
+   out.putInt(-1);
+   return out;
+  }
+  byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+  out = ensure(channel, out, 4 + bytes.length);
+  out.putInt(bytes.length);
+  out.put(bytes);
+  return out;
+ }
+
+ private static ByteBuffer ensure(FileChannel channel, ByteBuffer out, int needed) throws IOException {
+  //drains the buffer if the next value doesn't fit, growing it only for values bigger than the whole buffer
+  if (out.remaining() >= needed) {
+   return out;
+  }
+  drain(channel, out);
+  return out.capacity() >= needed ? out : ByteBuffer.allocate(needed);
+ }
+
+ private static void drain(FileChannel channel, ByteBuffer out) throws IOException {
+  out.flip();
+  while (out.hasRemaining()) {
+   channel.write(out);
+  }
+  out.clear();
+ }
+
+ private static String readString(ByteBuffer in, byte[] scratch) {
+  int length = in.getInt();
+  if (length < 0) {
+   return null;
+  }
+  byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+  in.get(bytes, 0, length);
+  return new String(bytes, 0, length, StandardCharsets.UTF_8);
+ }
+}
@@ -0,0 +1,78 @@
+package recipes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class BitmapIndex {
+ //one bitset per distinct value of a low cardinality field such as meal type, difficulty or cuisine
+ //bit n is set when the recipe at position n has that value, values match case-insensitively
+ //each distinct value gets an id, so per position only an int is kept instead of the value
+
+ private final Map<String, Integer> ids = new HashMap<>(); //folded value to its id
+ private final List<BitSet> bitmaps = new ArrayList<>(); //indexed by id
+ private int[] idsByPosition = new int[16]; //id + 1 of the value per position, 0 for none, to clear on change
+ private int size; //positions seen
+
+ void update(int position, String value) {
+  //records the value for the recipe at this position, clearing the value recorded before
+  String key = NameIndex.fold(value);
+  int id = key == null ? -1 : ids.computeIfAbsent(key, k -> {
+   bitmaps.add(new BitSet());
+   return bitmaps.size() - 1;
+  });
+  if (position < size) {
+   int oldId = idsByPosition[position] - 1;
+   if (oldId == id) {
+    return;
+   }
+   if (oldId >= 0) {
+    bitmaps.get(oldId).clear(position);
+   }
+  } else {
+   if (position >= idsByPosition.length) {
+    idsByPosition = Arrays.copyOf(idsByPosition, Math.max(position + 1, idsByPosition.length * 2));
+   }
+   size = position + 1;
+  }
+  idsByPosition[position] = id + 1;
+  if (id >= 0) {
+   bitmaps.get(id).set(position);
+  }
+ }
+
+ private BitSet bitmap(String value) {
+  //the bitmap of the value, null if no recipe ever had it
+  String key = NameIndex.fold(value);
+  Integer id = key == null ? null : ids.get(key);
+  return id == null ? null : bitmaps.get(id);
+ }
+
+ BitSet get(String value) {
+  //returns a copy of the bitmap for the value, empty if no recipe has it
+  BitSet bitmap = bitmap(value);
+  return bitmap == null ? new BitSet() : (BitSet) bitmap.clone();
+ }
+
+ BitSet anyOf(Collection<String> values) {
+  //ORs the bitmaps of all the values
+  BitSet result = new BitSet();
+  for (String value : values) {
+   BitSet bitmap = bitmap(value);
+   if (bitmap != null) {
+    result.or(bitmap);
+   }
+  }
+  return result;
+ }
+
+ int count(String value) {
+  //how many recipes have the value, used to pick the most selective filter first
+  BitSet bitmap = bitmap(value);
+  return bitmap == null ? 0 : bitmap.cardinality();
+ }
+}
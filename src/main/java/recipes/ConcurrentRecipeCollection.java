@@ -0,0 +1,229 @@
+package recipes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+public class ConcurrentRecipeCollection implements IRecipeOperations {
+ //this class is a thread-safe IRecipeOperations built on two RecipeCollection copies (the left-right technique)
+ //readers use the active copy without locking while a writer changes the standby copy,
+ //then the copies are swapped and the writer repeats the change on the old one once its readers are gone
+ //recipes are never changed in place, so every recipe handed to a reader stays as it was
+
+ private static final int STRIPES = 64; //reader counters are spread out so readers don't contend on one counter
+ private static final int PADDING = 16; //longs between counters, keeps each on its own cache line
+
+ private final QueryCacheMetrics cacheMetrics = new QueryCacheMetrics(); //counts for both copies' caches together
+ private final RecipeCollection[] copies = {new RecipeCollection(cacheMetrics), new RecipeCollection(cacheMetrics)};
+ private final AtomicLongArray[] readers = {new AtomicLongArray(STRIPES * PADDING),
+                                            new AtomicLongArray(STRIPES * PADDING)};
+ private final ReentrantLock writeLock = new ReentrantLock();
+ private volatile int active = 0; //copy that readers use
+ private volatile int readerVersion = 0; //which reader counters new readers register in
+
+ public void addChangeListener(IRecipeChangeListener listener) {
+  //listeners only go on the first copy so each change is reported once
+  writeLock.lock();
+  try {
+   copies[0].addChangeListener(listener);
+  } finally {
+   writeLock.unlock();
+  }
+ }
+
+ public QueryCacheMetrics getQueryCacheMetrics() {
+  //each copy caches the results read from it, a change makes both caches stale
+  return cacheMetrics;
+ }
+
+ @Override
+ public void addRecipe(Recipe recipe) {
+  if (recipe != null) {
+   write(copy -> copy.addRecipe(recipe));
+  }
+ }
+
+ @Override
+ public void addRecipes(Collection<Recipe> recipes) {
+  //copied first so both copies get the same recipes, then added in one swap
+  List<Recipe> batch = new ArrayList<>(recipes.size());
+  for (Recipe recipe : recipes) {
+   if (recipe != null) {
+    batch.add(recipe);
+   }
+  }
+  if (!batch.isEmpty()) {
+   write(copy -> copy.addRecipes(batch));
+  }
+ }
+
+ @Override
+ public List<Recipe> viewAllRecipes() {
+  //returns an immutable snapshot rather than a view of a list that keeps changing
+  return read(copy -> List.copyOf(copy.viewAllRecipes()));
+ }
+
+ @Override
+ public List<Recipe> searchRecipes(String searchOption, String userInput) {
+  return read(copy -> copy.searchRecipes(searchOption, userInput));
+ }
+
+ @Override
+ public List<Recipe> searchRecipesMultipleIngredients(List<String> ingredientsList) {
+  return read(copy -> copy.searchRecipesMultipleIngredients(ingredientsList));
+ }
+
+ @Override
+ public List<Recipe> searchRecipes(RecipeQuery query) {
+  return read(copy -> copy.searchRecipes(query));
+ }
+
+ public List<Recipe> filterRecipes(Collection<String> mealTypes, Collection<String> difficulties,
+                                   Collection<String> cuisines) {
+  return read(copy -> copy.filterRecipes(mealTypes, difficulties, cuisines));
+ }
+
+ public List<Recipe> filterByRange(int minPrepTime, int maxPrepTime, int minCookTime, int maxCookTime,
+                                   int minRating, int maxRating) {
+  return read(copy -> copy.filterByRange(minPrepTime, maxPrepTime, minCookTime, maxCookTime, minRating, maxRating));
+ }
+
+ @Override
+ public List<Recipe> sortRecipes(String sortChoice, String... fields) {
+  return read(copy -> copy.sortRecipes(sortChoice, fields));
+ }
+
+ @Override
+ public List<Recipe> sortRecipesPage(int offset, int limit, String sortChoice, String... fields) {
+  return read(copy -> copy.sortRecipesPage(offset, limit, sortChoice, fields));
+ }
+
+ @Override
+ public void modifyRecipe(String targetRecipeName, String fieldToModify, String newValue) {
+  //changes a copy of the recipe and swaps it in, readers may still hold the old one
+  writeLock.lock();
+  try {
+   List<Recipe> matches = copies[1 - active].searchRecipes("recipe name (exact)", targetRecipeName);
+   if (matches.isEmpty()) {
+    return; //no recipe with that name
+   }
+   Recipe updated = new Recipe(matches.get(0));
+   if (!RecipeCollection.applyField(updated, fieldToModify, newValue)) {
+    return; //field not recognized
+   }
+   write(copy -> copy.modifyEntireRecipe(targetRecipeName, updated));
+  } finally {
+   writeLock.unlock();
+  }
+ }
+
+ @Override
+ public void modifyEntireRecipe(String targetRecipeName, Recipe newRecipeData) {
+  write(copy -> copy.modifyEntireRecipe(targetRecipeName, newRecipeData));
+ }
+
+ @Override
+ public void modifyRecipes(List<RecipeMutation> mutations) {
+  //field values are checked before either copy is touched, so a bad number can't leave the copies different
+  //field changes are made on copies of the recipes, readers may still hold the old ones
+  List<RecipeMutation> batch = new ArrayList<>(mutations);
+  for (RecipeMutation mutation : batch) {
+   if (!mutation.isReplacement()) {
+    RecipeCollection.applyField(new Recipe(), mutation.getFieldToModify(), mutation.getNewValue());
+   }
+  }
+  if (!batch.isEmpty()) {
+   write(copy -> copy.modifyRecipes(batch, true));
+  }
+ }
+
+ @Override
+ public void exportRecipes(String fileName) throws IOException {
+  //writes a snapshot, so writers are not held up while the file is written
+  List<Recipe> snapshot = viewAllRecipes();
+  RecipeCollection.writeRecipeFile(snapshot, new File(fileName));
+  if (snapshot.isEmpty()) {
+   System.out.println("No recipes to export, file cleared: " + fileName);
+   return;
+  }
+  System.out.println("Recipes exported successfully to " + fileName);
+ }
+
+ @Override
+ public void exportRecipes(Writer writer) throws IOException {
+  RecipeCollection.writeRecipes(viewAllRecipes(), writer);
+ }
+
+ @Override
+ public void exportRecipes(OutputStream out, boolean compress) throws IOException {
+  RecipeCollection.writeRecipes(viewAllRecipes(), out, compress);
+ }
+
+ @Override
+ public void exportRecipes(WritableByteChannel channel) throws IOException {
+  RecipeCollection.writeRecipes(viewAllRecipes(), channel);
+ }
+
+ @Override
+ public void loadRecipes(String fileName) throws IOException {
+  //reads the file once, before touching either copy
+  List<Recipe> loaded = RecipeCollection.readRecipes(fileName);
+  if (loaded == null) {
+   System.out.println("No autosave file found, starting with an empty collection.");
+   return;
+  }
+  write(copy -> copy.addLoaded(loaded));
+  System.out.println("Loaded recipes from " + fileName);
+ }
+
+ private <T> T read(Function<RecipeCollection, T> operation) {
+  //registers the reader, runs the operation on the active copy, then unregisters
+  AtomicLongArray counters = readers[readerVersion];
+  int stripe = (System.identityHashCode(Thread.currentThread()) & (STRIPES - 1)) * PADDING;
+  counters.incrementAndGet(stripe);
+  try {
+   return operation.apply(copies[active]);
+  } finally {
+   counters.decrementAndGet(stripe);
+  }
+ }
+
+ private void write(Consumer<RecipeCollection> operation) {
+  //applies the change to the standby copy, swaps, waits for readers of the old copy, then catches it up
+  writeLock.lock();
+  try {
+   operation.accept(copies[1 - active]);
+   active = 1 - active;
+   int previous = readerVersion;
+   int next = 1 - previous;
+   waitForReaders(readers[next]); //stragglers from the swap before this one
+   readerVersion = next;
+   waitForReaders(readers[previous]);
+   operation.accept(copies[1 - active]);
+  } finally {
+   writeLock.unlock();
+  }
+ }
+
+ private static void waitForReaders(AtomicLongArray counters) {
+  //reads are short, so spin briefly and then give the readers the cpu
+  for (int i = 0; i < STRIPES * PADDING; i += PADDING) {
+   for (int spins = 0; counters.get(i) != 0; spins++) {
+    if (spins < 100) {
+     Thread.onSpinWait();
+    } else {
+     Thread.yield();
+    }
+   }
+  }
+ }
+}
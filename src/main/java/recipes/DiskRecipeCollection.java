@@ -0,0 +1,732 @@
+package recipes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+public class DiskRecipeCollection implements IRecipeOperations {
+ //this class implements IRecipeOperations with the recipes kept in a data file instead of on the heap
+ //the data file is append-only: every add or modify writes a record "length, position, fields", and the latest
+ //record for a position wins. once less than half of the file is latest records it is compacted into a new file.
+ //the heap only holds the record offsets, primitive indexes (name hashes, trigram and ingredient postings,
+ //bitmaps, the numeric columns) and an LRU cache of recently used recipes. names are read back from the file to
+ //confirm a match, every other recipe is decoded from the memory-mapped file when asked for. the ranked full text
+ //index keeps every recipe's words, so it is only built when the constructor asks for it
+ //results are read-only lists that decode their recipes on access, so a search touches only the records it returns
+
+ private static final int DEFAULT_CACHE_SIZE = 10_000; //recipes kept decoded
+ private static final int SEGMENT_BITS = 30; //the file is mapped in 1 GB segments
+ private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+ private static final int HEADER_SIZE = 8; //payload length and position
+ private static final int BATCH_BUFFER_SIZE = 1 << 20; //records of a batch are written in chunks of up to 1 MB
+ private static final long MIN_MAPPING = 1 << 20; //a segment is first mapped this far, then twice as far each time
+ private static final long MIN_COMPACT_SIZE = 4L * 1024 * 1024; //smaller files are never compacted
+
+ private final File dataFile;
+ private FileChannel channel;
+ private long fileSize; //end of the last record, the file itself can be longer, see slice
+ private long liveBytes; //bytes of the file taken by the latest record of each position
+ private final List<MappedByteBuffer> segments = new ArrayList<>();
+ private long[] offsets = new long[1024]; //latest record offset per position
+ private int count;
+ private ByteBuffer encodeBuffer = ByteBuffer.allocate(1 << 12); //reused for every record written
+ private ByteBuffer batchBuffer; //records of the batch in progress that are not written yet, null outside a batch
+ private byte[] scratch = new byte[256]; //reused to decode strings
+ private final Map<Integer, Recipe> cache;
+
+ private final IngredientIndex ingredientIndex = new IngredientIndex();
+ private final NameIndex nameIndex = new NameIndex(this::readName);
+ private final NameSearchIndex nameSearchIndex = new NameSearchIndex(this::readName);
+ private final FullTextIndex fullTextIndex; //null unless asked for, it keeps every recipe's words on the heap
+ private final BitmapIndex mealTypeIndex = new BitmapIndex();
+ private final BitmapIndex difficultyIndex = new BitmapIndex();
+ private final BitmapIndex cuisineIndex = new BitmapIndex();
+ private final RecipeColumns columns = new RecipeColumns();
+ private final QueryPlanner planner;
+ private final Map<String, SortPlan> sortPlans = new HashMap<>();
+
+ public DiskRecipeCollection(String dataFileName) throws IOException {
+  this(dataFileName, DEFAULT_CACHE_SIZE, false);
+ }
+
+ public DiskRecipeCollection(String dataFileName, int cacheSize) throws IOException {
+  this(dataFileName, cacheSize, false);
+ }
+
+ public DiskRecipeCollection(String dataFileName, int cacheSize, boolean fullTextIndex) throws IOException {
+  //without the full text index a "full text" search reads the records from the file instead of ranking them
+  this.fullTextIndex = fullTextIndex ? new FullTextIndex() : null;
+  this.dataFile = new File(dataFileName);
+  this.channel = new RandomAccessFile(dataFile, "rw").getChannel();
+  this.fileSize = channel.size();
+  this.cache = new LinkedHashMap<>(16, 0.75f, true) { //access order, so the eldest entry is the least recently used
+   @Override
+   protected boolean removeEldestEntry(Map.Entry<Integer, Recipe> eldest) {
+    return size() > cacheSize;
+   }
+  };
+  this.planner = new QueryPlanner(ingredientIndex, nameIndex, nameSearchIndex, mealTypeIndex, difficultyIndex,
+                                  cuisineIndex, columns);
+  reopen();
+ }
+
+ private void reopen() throws IOException {
+  //rebuilds the offsets and indexes by reading the data file from the start
+  //a record cut off by a crash is dropped and the file truncated after the last complete one, the zeros
+  //a mapping left past the last record read as an empty header and end the file the same way
+  long offset = 0;
+  while (offset + HEADER_SIZE <= fileSize) {
+   ByteBuffer header = slice(offset, HEADER_SIZE);
+   int length = header.getInt();
+   int position = header.getInt();
+   if (length <= 0 || position < 0 || position > count || offset + HEADER_SIZE + length > fileSize) {
+    break;
+   }
+   Recipe recipe = decode(slice(offset + HEADER_SIZE, length));
+   if (position < count) {
+    liveBytes -= recordSize(offsets[position]);
+   }
+   index(position, recipe);
+   setOffset(position, offset);
+   liveBytes += HEADER_SIZE + length;
+   offset += HEADER_SIZE + length;
+  }
+  fileSize = offset;
+  if (offset < channel.size()) {
+   channel.truncate(offset);
+   segments.clear(); //mappings may cover the removed bytes
+  }
+  compactIfSparse();
+ }
+
+ @Override
+ public void addRecipe(Recipe recipe) {
+  //adds a new recipe if it's not null
+  if (recipe != null) {
+   store(count, recipe);
+  }
+ }
+
+ @Override
+ public void addRecipes(Collection<Recipe> recipes) {
+  //appends the records together in a few large writes instead of one write per recipe
+  beginBatch();
+  try {
+   for (Recipe recipe : recipes) {
+    if (recipe != null) {
+     store(count, recipe);
+    }
+   }
+  } finally {
+   endBatch();
+  }
+ }
+
+ private void beginBatch() {
+  //records appended from here on are collected and written together by endBatch
+  batchBuffer = ByteBuffer.allocate(BATCH_BUFFER_SIZE);
+ }
+
+ private void endBatch() {
+  try {
+   writeBatch();
+  } catch (IOException e) {
+   throw new UncheckedIOException("Failed to write recipes to the data file", e);
+  } finally {
+   batchBuffer = null;
+  }
+  try {
+   compactIfSparse();
+  } catch (IOException e) {
+   throw new UncheckedIOException("Failed to compact the data file", e);
+  }
+ }
+
+ private void writeBatch() throws IOException {
+  //writes the records collected so far, they become readable from the file
+  if (batchBuffer.position() > 0) {
+   batchBuffer.flip();
+   write(batchBuffer);
+   batchBuffer.clear();
+  }
+ }
+
+ private void store(int position, Recipe recipe) {
+  //appends a record for the position and points the indexes and offset at it. the indexes go first, while the
+  //offset still leads to the old record, so the name index can read the old name to remove it
+  try {
+   long offset = append(position, recipe);
+   if (position < count) {
+    liveBytes -= recordSize(offsets[position]);
+   }
+   liveBytes += recordSize(offset);
+   index(position, recipe);
+   setOffset(position, offset);
+   cache.put(position, recipe);
+   if (batchBuffer == null) {
+    compactIfSparse();
+   }
+  } catch (IOException e) {
+   throw new UncheckedIOException("Failed to write recipe to the data file", e);
+  }
+ }
+
+ private int recordSize(long offset) throws IOException {
+  //header and payload bytes of the record at offset, which may still be in the batch buffer
+  if (batchBuffer != null && offset >= fileSize) {
+   return HEADER_SIZE + batchBuffer.getInt((int) (offset - fileSize));
+  }
+  return HEADER_SIZE + slice(offset, HEADER_SIZE).getInt();
+ }
+
+ private String readName(int position) {
+  //the name in the record the position's offset points at, decoded without the rest of the recipe
+  try {
+   long offset = offsets[position];
+   if (batchBuffer != null && offset >= fileSize) {
+    writeBatch(); //the record is still in the batch buffer
+   }
+   int length = slice(offset + HEADER_SIZE, 4).getInt();
+   return length < 0 ? null : getString(slice(offset + HEADER_SIZE, 4 + length));
+  } catch (IOException e) {
+   throw new UncheckedIOException("Failed to read recipe from the data file", e);
+  }
+ }
+
+ private void compactIfSparse() throws IOException {
+  if (fileSize >= MIN_COMPACT_SIZE && liveBytes * 2 < fileSize) {
+   compact();
+  }
+ }
+
+ public void compact() throws IOException {
+  //copies the latest record of every position, in position order, into a new file and swaps it in.
+  //the old file stays in place until the new one is complete, so a crash leaves one or the other
+  if (batchBuffer != null) {
+   writeBatch();
+  }
+  File tmp = new File(dataFile.getPath() + ".compact");
+  long[] moved = new long[offsets.length];
+  long written = 0;
+  try (FileChannel out = new RandomAccessFile(tmp, "rw").getChannel()) {
+   out.truncate(0);
+   ByteBuffer chunk = ByteBuffer.allocate(BATCH_BUFFER_SIZE);
+   for (int position = 0; position < count; position++) {
+    ByteBuffer record = slice(offsets[position], recordSize(offsets[position]));
+    if (record.remaining() > chunk.remaining()) {
+     written += drain(chunk.flip(), out, written);
+     chunk.clear();
+    }
+    moved[position] = written + chunk.position();
+    if (record.remaining() > chunk.remaining()) {
+     written += drain(record, out, written); //bigger than the whole chunk, written on its own
+    } else {
+     chunk.put(record);
+    }
+   }
+   written += drain(chunk.flip(), out, written);
+   out.force(false);
+  }
+  Files.move(tmp.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  channel.close();
+  channel = new RandomAccessFile(dataFile, "rw").getChannel();
+  segments.clear(); //the mappings belong to the old file
+  offsets = moved;
+  fileSize = written;
+  liveBytes = written;
+ }
+
+ private static long drain(ByteBuffer bytes, FileChannel out, long at) throws IOException {
+  //writes all the bytes at the offset, returns how many
+  long start = at;
+  while (bytes.hasRemaining()) {
+   at += out.write(bytes, at);
+  }
+  return at - start;
+ }
+
+ private void setOffset(int position, long offset) {
+  if (position == count) {
+   if (count == offsets.length) {
+    offsets = Arrays.copyOf(offsets, count * 2);
+   }
+   count++;
+  }
+  offsets[position] = offset;
+ }
+
+ private void index(int position, Recipe recipe) {
+  //updates every index for the recipe at this position
+  ingredientIndex.update(position, recipe.getIngredientIds());
+  nameIndex.update(position, recipe.getRecipeName());
+  nameSearchIndex.update(position, recipe.getRecipeName());
+  if (fullTextIndex != null) {
+   fullTextIndex.update(position, recipe.getPreparationSteps(), recipe.getNotes());
+  }
+  mealTypeIndex.update(position, recipe.getMealType());
+  difficultyIndex.update(position, recipe.getDifficulty());
+  cuisineIndex.update(position, recipe.getCuisineType());
+  columns.update(position, recipe);
+ }
+
+ Recipe get(int position) {
+  //the recipe at the position, decoded from the file unless it is cached
+  Recipe recipe = cache.get(position);
+  if (recipe == null) {
+   recipe = load(position);
+   cache.put(position, recipe);
+  }
+  return recipe;
+ }
+
+ private Recipe load(int position) {
+  //decodes the latest record of the position
+  try {
+   long offset = offsets[position];
+   if (batchBuffer != null && offset >= fileSize) {
+    writeBatch(); //the record is still in the batch buffer
+   }
+   int length = slice(offset, HEADER_SIZE).getInt();
+   return decode(slice(offset + HEADER_SIZE, length));
+  } catch (IOException e) {
+   throw new UncheckedIOException("Failed to read recipe from the data file", e);
+  }
+ }
+
+ private class RecordList extends AbstractList<Recipe> implements RandomAccess {
+  //read-only view of positions that decodes each recipe when it is asked for
+  //null positions means every recipe in order, as many as there were when the view was made.
+  //cached views keep what they decode for next time
+  private final int[] positions;
+  private final int size;
+  private final boolean cached;
+
+  RecordList(int[] positions, boolean cached) {
+   this.positions = positions;
+   this.size = positions == null ? count : positions.length;
+   this.cached = cached;
+  }
+
+  @Override
+  public Recipe get(int index) {
+   if (positions == null && (index < 0 || index >= size)) {
+    throw new IndexOutOfBoundsException(index);
+   }
+   int position = positions == null ? index : positions[index];
+   if (cached) {
+    return DiskRecipeCollection.this.get(position);
+   }
+   Recipe recipe = cache.get(position);
+   return recipe != null ? recipe : load(position);
+  }
+
+  @Override
+  public int size() {
+   return size;
+  }
+ }
+
+ private class LoadedList extends AbstractList<Recipe> implements RandomAccess {
+  //the recipes loaded from one file, from position base on, as a list the mutation log can be replayed into
+  private final int base;
+
+  LoadedList(int base) {
+   this.base = base;
+  }
+
+  @Override
+  public Recipe get(int index) {
+   return DiskRecipeCollection.this.get(base + index);
+  }
+
+  @Override
+  public Recipe set(int index, Recipe recipe) {
+   store(base + index, recipe);
+   return null; //the replaced record isn't decoded just to be returned
+  }
+
+  @Override
+  public void add(int index, Recipe recipe) {
+   if (index != size()) {
+    throw new UnsupportedOperationException("Recipes can only be appended");
+   }
+   store(count, recipe);
+  }
+
+  @Override
+  public int size() {
+   return count - base;
+  }
+ }
+
+ @Override
+ public List<Recipe> viewAllRecipes() {
+  //returns a read-only list
+  return new RecordList(null, true);
+ }
+
+ @Override
+ public List<Recipe> searchRecipes(String searchOption, String userInput) {
+  //same modes as RecipeCollection
+  if (searchOption == null || userInput == null) return new ArrayList<>();
+
+  if (searchOption.equalsIgnoreCase("recipe name (fuzzy)")) {
+   return new RecordList(nameSearchIndex.fuzzy(userInput, NameSearchIndex.FUZZY_LIMIT), true);
+  }
+  if (searchOption.equalsIgnoreCase("full text")) {
+   int[] positions = fullTextIndex != null ? fullTextIndex.search(userInput, FullTextIndex.RESULT_LIMIT)
+                     : scanText(userInput, FullTextIndex.RESULT_LIMIT);
+   return new RecordList(positions, true);
+  }
+  RecipeQuery query = RecipeQuery.forSearchOption(searchOption, userInput);
+  if (query == null) {
+   return new ArrayList<>(); //unrecognized search option
+  }
+  return searchRecipes(query);
+ }
+
+ @Override
+ public List<Recipe> searchRecipesMultipleIngredients(List<String> ingredientsList) {
+  if (ingredientsList == null || ingredientsList.isEmpty()) return new ArrayList<>();
+
+  return searchRecipes(new RecipeQuery().withIngredients(ingredientsList));
+ }
+
+ @Override
+ public List<Recipe> searchRecipes(RecipeQuery query) {
+  //the indexes find the positions, the recipes are only decoded when the result is read
+  if (query == null) return new ArrayList<>();
+
+  BitSet matches = planner.run(query);
+  return new RecordList(matches.stream().toArray(), true);
+ }
+
+ @Override
+ public List<Recipe> sortRecipes(String sortChoice, String... fields) {
+  //sorts positions on the numeric columns, the recipes are decoded as the list is read
+  return new RecordList(planFor(sortChoice, fields).sort(columns), true);
+ }
+
+ @Override
+ public List<Recipe> sortRecipesPage(int offset, int limit, String sortChoice, String... fields) {
+  //returns up to limit recipes starting at offset in sorted order
+  List<Recipe> page = new ArrayList<>();
+  if (offset < 0 || limit <= 0) {
+   return page;
+  }
+  int[] order = planFor(sortChoice, fields).sort(columns);
+  for (long i = offset; i < order.length && i < (long) offset + limit; i++) {
+   page.add(get(order[(int) i]));
+  }
+  return page;
+ }
+
+ private SortPlan planFor(String sortChoice, String... fields) {
+  String[] specs = SortPlan.specsFor(sortChoice, fields);
+  String key = String.join(",", specs).toLowerCase();
+  SortPlan plan = sortPlans.get(key);
+  if (plan == null) {
+   if (sortPlans.size() >= 64) {
+    sortPlans.clear(); //only a handful of specs are ever used, this just bounds the map
+   }
+   plan = SortPlan.compile(specs);
+   sortPlans.put(key, plan);
+  }
+  return plan;
+ }
+
+ @Override
+ public void modifyRecipe(String targetRecipeName, String fieldToModify, String newValue) {
+  //updates a single field in the matching recipe and writes the changed record
+  int i = nameIndex.first(targetRecipeName);
+  if (i < 0) {
+   return; //no recipe with that name
+  }
+  Recipe recipe = new Recipe(get(i)); //the cached recipe may be held by a view, it only changes once the record is written
+  if (!RecipeCollection.applyField(recipe, fieldToModify, newValue)) {
+   return; //field not recognized, nothing changed
+  }
+  store(i, recipe);
+ }
+
+ @Override
+ public void modifyEntireRecipe(String targetRecipeName, Recipe newRecipeData) {
+  //replaces the entire recipe with new data
+  int i = nameIndex.first(targetRecipeName);
+  if (i >= 0 && newRecipeData != null) {
+   store(i, newRecipeData);
+  }
+ }
+
+ @Override
+ public void modifyRecipes(List<RecipeMutation> mutations) {
+  //applies the changes in order and writes the changed records together, like addRecipes
+  beginBatch();
+  try {
+   for (RecipeMutation mutation : mutations) {
+    if (mutation.isReplacement()) {
+     modifyEntireRecipe(mutation.getTargetRecipeName(), mutation.getNewRecipeData());
+    } else {
+     modifyRecipe(mutation.getTargetRecipeName(), mutation.getFieldToModify(), mutation.getNewValue());
+    }
+   }
+  } finally {
+   endBatch();
+  }
+ }
+
+ @Override
+ public void exportRecipes(String fileName) throws IOException {
+  //writes all recipes to a file, decoding them one at a time
+  RecipeCollection.writeRecipeFile(scan(), new File(fileName));
+  if (count == 0) {
+   System.out.println("No recipes to export, file cleared: " + fileName);
+   return;
+  }
+  System.out.println("Recipes exported successfully to " + fileName);
+ }
+
+ @Override
+ public void exportRecipes(Writer writer) throws IOException {
+  RecipeCollection.writeRecipes(scan(), writer);
+ }
+
+ @Override
+ public void exportRecipes(OutputStream out, boolean compress) throws IOException {
+  RecipeCollection.writeRecipes(scan(), out, compress);
+ }
+
+ @Override
+ public void exportRecipes(WritableByteChannel channel) throws IOException {
+  RecipeCollection.writeRecipes(scan(), channel);
+ }
+
+ private int[] scanText(String query, int limit) {
+  //positions of the first recipes whose steps or notes have every word of the query, in position order.
+  //used without the full text index: the records are read one at a time, nothing is ranked and quotes are ignored
+  List<String> wanted = FullTextIndex.words(query);
+  IntList found = new IntList();
+  if (wanted.isEmpty()) {
+   return found.toArray();
+  }
+  List<Recipe> all = scan();
+  for (int position = 0; position < all.size() && found.size() < limit; position++) {
+   Recipe recipe = all.get(position);
+   Set<String> words = new HashSet<>(FullTextIndex.words(recipe.getPreparationSteps()));
+   words.addAll(FullTextIndex.words(recipe.getNotes()));
+   if (words.containsAll(wanted)) {
+    found.add(position);
+   }
+  }
+  return found.toArray();
+ }
+
+ private List<Recipe> scan() {
+  //every recipe in order, without filling the cache with a full pass
+  return new RecordList(null, false);
+ }
+
+ @Override
+ public void loadRecipes(String fileName) throws IOException {
+  //appends the recipes from the file to the data file one at a time, so the file never has to fit on the heap
+  File file = new File(fileName);
+  if (!file.exists() && !MutationLog.exists(fileName)) {
+   System.out.println("No autosave file found, starting with an empty collection.");
+   return;
+  }
+  int base = count;
+  beginBatch(); //the loaded records are written in large chunks
+  try {
+   if (file.exists()) {
+    if (BinaryRecipeFormat.isBinary(fileName) || PagedRecipeStore.isPaged(fileName)) {
+     for (Recipe recipe : RecipeCollection.readRecipeFile(file)) { //binary and page files are decoded in one go
+      store(count, recipe);
+     }
+    } else {
+     RecipeCollection.readTextRecipes(file, recipe -> store(count, recipe));
+    }
+   }
+   //replays the changes logged since the file was written, positions are relative to the file.
+   //if an entry couldn't be applied, what was recovered becomes the file's new snapshot
+   List<Recipe> loaded = new LoadedList(base);
+   if (MutationLog.replay(fileName, loaded) > 0) {
+    MutationLog.rewriteSnapshot(fileName, loaded);
+   }
+  } finally {
+   endBatch();
+  }
+  System.out.println("Loaded recipes from " + fileName);
+ }
+
+ public void close() throws IOException {
+  //trims what a mapping added past the last record, forces the data file to disk and closes it
+  channel.truncate(fileSize);
+  channel.force(false);
+  channel.close();
+ }
+
+ private long append(int position, Recipe r) throws IOException {
+  //encodes the recipe after a header and writes it at the end of the file, returns where it starts
+  ByteBuffer out = encodeBuffer;
+  out.clear();
+  out.position(HEADER_SIZE);
+  out = putString(out, r.getRecipeName());
+  out = putString(out, r.getCuisineType());
+  out = putString(out, r.getMealType());
+  int[] ids = r.getIngredientIds();
+  out = ensure(out, 4);
+  out.putInt(ids == null ? -1 : ids.length);
+  if (ids != null) {
+   for (int id : ids) {
+    out = putString(out, IngredientDictionary.nameOf(id));
+   }
+  }
+  out = putString(out, r.getPreparationSteps());
+  out = ensure(out, 8);
+  out.putInt(r.getPrepTime());
+  out.putInt(r.getCookTime());
+  out = putString(out, r.getDifficulty());
+  out = ensure(out, 4);
+  out.putInt(r.getRating());
+  out = putString(out, r.getNotes());
+  encodeBuffer = out;
+
+  out.putInt(0, out.position() - HEADER_SIZE);
+  out.putInt(4, position);
+  out.flip();
+  if (batchBuffer != null) {
+   if (out.remaining() > batchBuffer.remaining()) {
+    writeBatch(); //makes room, a record bigger than the whole buffer is written on its own below
+   }
+   if (out.remaining() <= batchBuffer.remaining()) {
+    long offset = fileSize + batchBuffer.position();
+    batchBuffer.put(out);
+    return offset;
+   }
+  }
+  return write(out);
+ }
+
+ private long write(ByteBuffer out) throws IOException {
+  //writes the bytes at the end of the file, returns where they start
+  long offset = fileSize;
+  long at = offset;
+  while (out.hasRemaining()) {
+   at += channel.write(out, at);
+  }
+  fileSize = at;
+  return offset;
+ }
+
+ private static ByteBuffer putString(ByteBuffer out, String value) {
+  //length-prefixed UTF-8, -1 for null
+  if (value == null) {
+   out = ensure(out, 4);
+   out.putInt(-1);
+   return out;
+  }
+  byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+  out = ensure(out, 4 + bytes.length);
+  out.putInt(bytes.length);
+  out.put(bytes);
+  return out;
+ }
+
+ private static ByteBuffer ensure(ByteBuffer out, int needed) {
+  //grows the encode buffer, keeping what was written so far
+  if (out.remaining() >= needed) {
+   return out;
+  }
+  ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + needed));
+  out.flip();
+  bigger.put(out);
+  return bigger;
+ }
+
+ private Recipe decode(ByteBuffer in) {
+  //reads the fields back in the order append wrote them
+  String name = getString(in);
+  String cuisine = getString(in);
+  String mealType = getString(in);
+  int ingredientCount = in.getInt();
+  List<String> ingredients = null;
+  if (ingredientCount >= 0) {
+   ingredients = new ArrayList<>(ingredientCount);
+   for (int i = 0; i < ingredientCount; i++) {
+    ingredients.add(getString(in));
+   }
+  }
+  String steps = getString(in);
+  int prepTime = in.getInt();
+  int cookTime = in.getInt();
+  String difficulty = getString(in);
+  int rating = in.getInt();
+  String notes = getString(in);
+  return new Recipe(name, cuisine, mealType, ingredients, steps, prepTime, cookTime, difficulty, rating, notes);
+ }
+
+ private String getString(ByteBuffer in) {
+  int length = in.getInt();
+  if (length < 0) {
+   return null;
+  }
+  if (scratch.length < length) {
+   scratch = new byte[Math.max(length, scratch.length * 2)];
+  }
+  in.get(scratch, 0, length);
+  return new String(scratch, 0, length, StandardCharsets.UTF_8);
+ }
+
+ private ByteBuffer slice(long offset, int length) throws IOException {
+  //a buffer over length bytes of the file, from the mapped segment when the bytes are inside one
+  int segment = (int) (offset >>> SEGMENT_BITS);
+  int within = (int) (offset & (SEGMENT_SIZE - 1));
+  if (within + (long) length > SEGMENT_SIZE) {
+   //crosses a segment boundary, rare enough to just read it
+   ByteBuffer copy = ByteBuffer.allocate(length);
+   while (copy.hasRemaining()) {
+    if (channel.read(copy, offset + copy.position()) < 0) {
+     throw new IOException("Unexpected end of the data file");
+    }
+   }
+   return copy.flip();
+  }
+  while (segments.size() <= segment) {
+   segments.add(null);
+  }
+  MappedByteBuffer mapped = segments.get(segment);
+  if (mapped == null || mapped.capacity() < within + length) {
+   //maps the segment past the end of the file, at least twice as far as before, so records appended after it
+   //are read through the same mapping instead of remapping for each one. mapping past the end grows the file
+   //with zeros, which the next append overwrites, close trims and reopen reads as the end
+   long start = (long) segment << SEGMENT_BITS;
+   long wanted = Math.max(fileSize - start, within + (long) length);
+   wanted = Math.max(wanted, mapped == null ? MIN_MAPPING : 2L * mapped.capacity());
+   mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, wanted));
+   segments.set(segment, mapped);
+  }
+  return mapped.slice(within, length);
+ }
+}
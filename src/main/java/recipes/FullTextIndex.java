@@ -0,0 +1,341 @@
+package recipes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+class FullTextIndex {
+ //inverted index over the words of each recipe's preparation steps and notes, ranked with BM25
+ //each word's postings are the positions of the recipes containing it in ascending order, with the word's count
+ //in each recipe in a parallel byte array, so any int position fits. the word ids of every recipe are kept in order too, to check phrases
+ //and to know which postings to remove when the text changes
+
+ static final int RESULT_LIMIT = 20; //results returned by the full text search mode
+ private static final float K1 = 1.2f; //how quickly repeating a word stops adding to the score
+ private static final float B = 0.75f; //how much longer texts are marked down
+ private static final int MAX_COUNT = Byte.MAX_VALUE; //counts above this score the same anyway
+ private static final int FIELD_BREAK = -1; //between the steps and the notes, so a phrase can't span both
+
+ private final Map<String, Integer> wordIds = new HashMap<>();
+ private final List<Postings> postings = new ArrayList<>(); //indexed by word id
+ private final List<int[]> wordsByRecipe = new ArrayList<>(); //word ids in text order, per recipe position
+ private long totalWords;
+
+ void update(int position, String preparationSteps, String notes) {
+  //indexes the text for the recipe at this position, replacing the text indexed before
+  int[] words = encode(preparationSteps, notes);
+  int[] old = position < wordsByRecipe.size() ? wordsByRecipe.get(position) : null;
+  if (old != null && Arrays.equals(old, words)) {
+   return; //same text as before
+  }
+  if (old != null) {
+   int[] counted = countWords(old);
+   for (int i = 0; i < counted.length; i += 2) {
+    postings.get(counted[i]).remove(position);
+   }
+   totalWords -= length(old);
+  }
+  int[] counted = countWords(words);
+  for (int i = 0; i < counted.length; i += 2) {
+   postings.get(counted[i]).add(position, counted[i + 1]);
+  }
+  totalWords += length(words);
+  if (position < wordsByRecipe.size()) {
+   wordsByRecipe.set(position, words);
+  } else {
+   wordsByRecipe.add(words);
+  }
+ }
+
+ static class Statistics {
+  //the corpus figures BM25 weighs a query's words with. the shards of one collection add theirs together,
+  //so every shard scores its recipes as if they were all in one index
+  private int recipes;
+  private long totalWords;
+  private final Map<String, Integer> recipesWithWord = new HashMap<>();
+
+  void add(Statistics other) {
+   recipes += other.recipes;
+   totalWords += other.totalWords;
+   other.recipesWithWord.forEach((word, count) -> recipesWithWord.merge(word, count, Integer::sum));
+  }
+ }
+
+ Statistics statistics(String query) {
+  //this index's figures for the words of the query
+  Statistics statistics = new Statistics();
+  statistics.recipes = wordsByRecipe.size();
+  statistics.totalWords = totalWords;
+  for (String word : words(query)) {
+   Integer id = wordIds.get(word);
+   statistics.recipesWithWord.put(word, id == null ? 0 : postings.get(id).size());
+  }
+  return statistics;
+ }
+
+ int[] search(String query, int limit) {
+  //positions of the best matching recipes, highest score first
+  //words in double quotes are a phrase that must appear as written, e.g. "air fryer" overnight.
+  //other words are optional and only add to the score
+  long[] ranked = ranked(query, limit, statistics(query));
+  int[] result = new int[ranked.length];
+  for (int i = 0; i < result.length; i++) {
+   result[i] = positionOf(ranked[i]);
+  }
+  return result;
+ }
+
+ long[] ranked(String query, int limit, Statistics corpus) {
+  //the best matches as ranked entries, best first: the score's float bits << 32 | (Integer.MAX_VALUE - position)
+  //entries from several indexes scored with the same statistics, with their positions made comparable by
+  //withPosition, combine with best
+  List<int[]> phrases = new ArrayList<>();
+  List<Integer> scored = new ArrayList<>();
+  List<String> scoredWords = new ArrayList<>();
+  String[] parts = query.split("\"", -1);
+  for (int p = 0; p < parts.length; p++) {
+   List<String> words = words(parts[p]);
+   boolean phrase = p % 2 == 1 && p < parts.length - 1; //inside a closed pair of quotes
+   int[] ids = new int[words.size()];
+   for (int i = 0; i < ids.length; i++) {
+    Integer id = wordIds.get(words.get(i));
+    ids[i] = id == null ? -1 : id;
+    if (id == null && phrase) {
+     return new long[0]; //a phrase with an unknown word can't match
+    }
+    if (id != null && !scored.contains(id)) {
+     scored.add(id);
+     scoredWords.add(words.get(i));
+    }
+   }
+   if (phrase && ids.length > 0) {
+    phrases.add(ids);
+   }
+  }
+  if (scored.isEmpty() || limit <= 0) {
+   return new long[0];
+  }
+
+  //walks the postings of every word together in position order, so only recipes containing a word are seen
+  int terms = scored.size();
+  Postings[] lists = new Postings[terms];
+  int[] cursors = new int[terms];
+  float[] weights = new float[terms];
+  boolean[] required = new boolean[terms];
+  int requiredCount = 0;
+  int recipes = corpus.recipes;
+  for (int t = 0; t < terms; t++) {
+   lists[t] = postings.get(scored.get(t));
+   int found = corpus.recipesWithWord.getOrDefault(scoredWords.get(t), lists[t].size());
+   weights[t] = (float) Math.log(1 + (recipes - found + 0.5) / (found + 0.5)); //rarer words count for more
+   for (int[] phrase : phrases) {
+    for (int id : phrase) {
+     required[t] |= id == scored.get(t);
+    }
+   }
+   if (required[t]) {
+    requiredCount++;
+   }
+  }
+  float averageLength = recipes == 0 ? 1 : Math.max(1, (float) corpus.totalWords / recipes);
+
+  PriorityQueue<Long> best = new PriorityQueue<>(); //lowest ranked result on top
+  while (true) {
+   int position = Integer.MAX_VALUE;
+   for (int t = 0; t < terms; t++) {
+    if (cursors[t] < lists[t].size()) {
+     position = Math.min(position, lists[t].positionAt(cursors[t]));
+    }
+   }
+   if (position == Integer.MAX_VALUE) {
+    break;
+   }
+   float norm = K1 * (1 - B + B * length(wordsByRecipe.get(position)) / averageLength);
+   float score = 0;
+   int requiredFound = 0;
+   for (int t = 0; t < terms; t++) {
+    if (cursors[t] < lists[t].size() && lists[t].positionAt(cursors[t]) == position) {
+     int count = lists[t].countAt(cursors[t]++);
+     score += weights[t] * count * (K1 + 1) / (count + norm);
+     if (required[t]) {
+      requiredFound++;
+     }
+    }
+   }
+   if (requiredFound < requiredCount || !hasPhrases(wordsByRecipe.get(position), phrases)) {
+    continue;
+   }
+   //higher scores rank first, then earlier positions
+   long ranked = ((long) Float.floatToIntBits(score) << 32) | (Integer.MAX_VALUE - position);
+   if (best.size() < limit) {
+    best.add(ranked);
+   } else if (ranked > best.peek()) {
+    best.poll();
+    best.add(ranked);
+   }
+  }
+  long[] result = new long[best.size()];
+  for (int i = result.length - 1; i >= 0; i--) {
+   result[i] = best.poll();
+  }
+  return result;
+ }
+
+ static long[] best(long[] ranked, int limit) {
+  //the top limit of the ranked entries, best first
+  long[] sorted = ranked.clone();
+  Arrays.sort(sorted);
+  int count = Math.min(limit, sorted.length);
+  long[] result = new long[count];
+  for (int i = 0; i < count; i++) {
+   result[i] = sorted[sorted.length - 1 - i];
+  }
+  return result;
+ }
+
+ static int positionOf(long rankedEntry) {
+  return Integer.MAX_VALUE - (int) (rankedEntry & 0xFFFFFFFFL);
+ }
+
+ static long withPosition(long rankedEntry, int position) {
+  return (rankedEntry & ~0xFFFFFFFFL) | (Integer.MAX_VALUE - position);
+ }
+
+ private static boolean hasPhrases(int[] words, List<int[]> phrases) {
+  //whether every phrase appears as consecutive words
+  for (int[] phrase : phrases) {
+   boolean found = false;
+   for (int i = 0; i + phrase.length <= words.length && !found; i++) {
+    int j = 0;
+    while (j < phrase.length && words[i + j] == phrase[j]) {
+     j++;
+    }
+    found = j == phrase.length;
+   }
+   if (!found) {
+    return false;
+   }
+  }
+  return true;
+ }
+
+ private int[] encode(String preparationSteps, String notes) {
+  //word ids of both fields in order with a break between them, adding new words to the dictionary
+  List<String> steps = words(preparationSteps);
+  List<String> noteWords = words(notes);
+  int[] ids = new int[steps.size() + 1 + noteWords.size()];
+  int n = 0;
+  for (String word : steps) {
+   ids[n++] = idOf(word);
+  }
+  ids[n++] = FIELD_BREAK;
+  for (String word : noteWords) {
+   ids[n++] = idOf(word);
+  }
+  return ids;
+ }
+
+ private int idOf(String word) {
+  Integer id = wordIds.get(word);
+  if (id == null) {
+   id = postings.size();
+   wordIds.put(word, id);
+   postings.add(new Postings());
+  }
+  return id;
+ }
+
+ static List<String> words(String text) {
+  //lower-cased runs of letters and digits
+  List<String> words = new ArrayList<>();
+  if (text == null) {
+   return words;
+  }
+  int start = -1;
+  for (int i = 0; i <= text.length(); i++) {
+   boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+   if (wordChar && start < 0) {
+    start = i;
+   } else if (!wordChar && start >= 0) {
+    words.add(text.substring(start, i).toLowerCase());
+    start = -1;
+   }
+  }
+  return words;
+ }
+
+ private static int[] countWords(int[] words) {
+  //pairs of word id and count for each distinct word, the field break left out
+  int[] sorted = words.clone();
+  Arrays.sort(sorted);
+  int[] counted = new int[sorted.length * 2];
+  int n = 0;
+  for (int i = 0; i < sorted.length; i++) {
+   if (sorted[i] == FIELD_BREAK) {
+    continue;
+   }
+   if (n > 0 && counted[n - 2] == sorted[i]) {
+    counted[n - 1]++;
+   } else {
+    counted[n++] = sorted[i];
+    counted[n++] = 1;
+   }
+  }
+  return Arrays.copyOf(counted, n);
+ }
+
+ private static int length(int[] words) {
+  return words.length - 1; //without the field break
+ }
+ static class Postings {
+  //one word's postings: recipe positions in ascending order and the word's count in each
+  private int[] positions = new int[4];
+  private byte[] counts = new byte[4];
+  private int size;
+
+  int size() {
+   return size;
+  }
+
+  int positionAt(int index) {
+   return positions[index];
+  }
+
+  int countAt(int index) {
+   return counts[index];
+  }
+
+  void add(int position, int count) {
+   //inserts the position in order, positions are unique per word
+   int pos = size > 0 && positions[size - 1] < position ? size : Arrays.binarySearch(positions, 0, size, position);
+   if (pos < 0) {
+    pos = -pos - 1;
+   } else if (pos < size) {
+    counts[pos] = (byte) Math.min(count, MAX_COUNT);
+    return;
+   }
+   if (size == positions.length) {
+    positions = Arrays.copyOf(positions, size * 2);
+    counts = Arrays.copyOf(counts, size * 2);
+   }
+   System.arraycopy(positions, pos, positions, pos + 1, size - pos);
+   System.arraycopy(counts, pos, counts, pos + 1, size - pos);
+   positions[pos] = position;
+   counts[pos] = (byte) Math.min(count, MAX_COUNT);
+   size++;
+  }
+
+  void remove(int position) {
+   int pos = Arrays.binarySearch(positions, 0, size, position);
+   if (pos < 0) {
+    return;
+   }
+   System.arraycopy(positions, pos + 1, positions, pos, size - pos - 1);
+   System.arraycopy(counts, pos + 1, counts, pos, size - pos - 1);
+   size--;
+  }
+ }
+}
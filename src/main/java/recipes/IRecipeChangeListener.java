@@ -0,0 +1,28 @@
+package recipes;
+
+import java.util.List;
+
+public interface IRecipeChangeListener {
+ //this interface is called by a recipe collection after a recipe is added or modified
+ //position is the recipe's place in the collection, a new recipe gets the next free position
+
+ void recipeChanged(int position, Recipe recipe);
+
+ default void recipesChanged(int[] positions, List<Recipe> recipes) {
+  //called once after a batch of adds or modifies with each changed position and its final recipe,
+  //listeners that save can override it to save the batch in one go
+  for (int i = 0; i < positions.length; i++) {
+   recipeChanged(positions[i], recipes.get(i));
+  }
+ }
+
+ default void recipeAdded(int position, Recipe recipe) {
+  //called instead of recipeChanged when the recipe was appended, for listeners that need to tell the two apart
+  recipeChanged(position, recipe);
+ }
+
+ default void recipesAdded(int[] positions, List<Recipe> recipes) {
+  //called instead of recipesChanged when the whole batch was appended
+  recipesChanged(positions, recipes);
+ }
+}
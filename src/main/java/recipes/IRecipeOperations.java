@@ -0,0 +1,32 @@
+package recipes;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.List;
+
+public interface IRecipeOperations {
+ //this interface defines the contract for all recipe operations
+ //the lists returned by the view, search and sort methods are read-only and may be live views of the collection:
+ //they keep their size, but a recipe modified after the call can show up with its new fields, e.g. in a
+ //DiskRecipeCollection, which decodes each recipe when it is read. copy a result that has to stay as it was
+
+ void addRecipe(Recipe recipe);
+ void addRecipes(Collection<Recipe> recipes);
+ List<Recipe> viewAllRecipes();
+ List<Recipe> searchRecipes(String searchOption, String userInput);
+ List<Recipe> searchRecipesMultipleIngredients(List<String> ingredientsList);
+ List<Recipe> searchRecipes(RecipeQuery query);
+ List<Recipe> sortRecipes(String sortChoice, String... fields);
+ List<Recipe> sortRecipesPage(int offset, int limit, String sortChoice, String... fields);
+ void modifyRecipe(String targetRecipeName, String fieldToModify, String newValue);
+ void modifyEntireRecipe(String targetRecipeName, Recipe newRecipeData);
+ void modifyRecipes(List<RecipeMutation> mutations);
+ void exportRecipes(String fileName) throws IOException;
+ void exportRecipes(Writer writer) throws IOException;
+ void exportRecipes(OutputStream out, boolean compress) throws IOException;
+ void exportRecipes(WritableByteChannel channel) throws IOException;
+ void loadRecipes(String fileName) throws IOException;
+}
@@ -0,0 +1,98 @@
+package recipes;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class IngredientDictionary {
+ //global table of every distinct ingredient string, recipes store ingredients as int ids into it
+ //ids are handed out once and never change, so comparing ingredients is comparing ints
+ //safe to use from several threads, e.g. the parallel loader
+ //the table is shared by every collection in the JVM and never shrinks, an ingredient removed from every recipe
+ //keeps its id. it costs one string and two references per distinct ingredient ever seen, which stays small next
+ //to the recipes, since catalogues reuse a few thousand ingredients; a per-collection table would not work as
+ //recipes are plain objects shared between collections, e.g. the two copies of a ConcurrentRecipeCollection
+
+ private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+ private static final Object lock = new Object();
+ private static volatile String[] names = new String[1024];
+ private static int count; //guarded by lock
+
+ private IngredientDictionary() {
+ }
+
+ static int idOf(String ingredient) {
+  //returns the id of the ingredient, assigning a new one the first time it is seen. null maps to -1
+  if (ingredient == null) {
+   return -1;
+  }
+  Integer id = ids.get(ingredient);
+  if (id != null) {
+   return id;
+  }
+  synchronized (lock) {
+   id = ids.get(ingredient);
+   if (id == null) {
+    String[] current = names;
+    if (count == current.length) {
+     current = Arrays.copyOf(current, count * 2);
+     names = current;
+    }
+    current[count] = ingredient;
+    id = count++;
+    ids.put(ingredient, id); //published after the name is stored
+   }
+   return id;
+  }
+ }
+
+ static String nameOf(int id) {
+  return id < 0 ? null : names[id];
+ }
+
+ static int size() {
+  synchronized (lock) {
+   return count;
+  }
+ }
+
+ static int[] encode(List<String> ingredients) {
+  //turns a list of ingredient strings into ids, null stays null
+  if (ingredients == null) {
+   return null;
+  }
+  int[] encoded = new int[ingredients.size()];
+  for (int i = 0; i < encoded.length; i++) {
+   encoded[i] = idOf(ingredients.get(i));
+  }
+  return encoded;
+ }
+
+ static List<String> decode(int[] ingredientIds) {
+  //read-only list view that looks the strings up on access, null stays null
+  if (ingredientIds == null) {
+   return null;
+  }
+  return new IngredientList(ingredientIds);
+ }
+
+ private static final class IngredientList extends AbstractList<String> implements RandomAccess {
+  private final int[] ingredientIds;
+
+  IngredientList(int[] ingredientIds) {
+   this.ingredientIds = ingredientIds;
+  }
+
+  @Override
+  public String get(int index) {
+   return nameOf(ingredientIds[index]);
+  }
+
+  @Override
+  public int size() {
+   return ingredientIds.length;
+  }
+ }
+}
@@ -0,0 +1,168 @@
+package recipes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+class IngredientIndex {
+ //inverted index from ingredient text to recipe positions
+ //ingredients are IngredientDictionary ids, the trigram index finds ingredients by substring
+ //and each ingredient id keeps the sorted positions of the recipes that use it
+
+ private final List<IntList> recipesByIngredient = new ArrayList<>(); //indexed by ingredient id
+ private final BitSet knownIngredients = new BitSet(); //ids already added to the trigram index
+ private final TrigramIndex ingredientGrams = new TrigramIndex();
+ private final List<int[]> ingredientsByRecipe = new ArrayList<>(); //sorted distinct ids per recipe position
+
+ void update(int position, int[] ingredientIds) {
+  //indexes the ingredients for the recipe at this position, replacing anything indexed before
+  int[] ids = distinct(ingredientIds);
+  if (position < ingredientsByRecipe.size() && Arrays.equals(ids, ingredientsByRecipe.get(position))) {
+   return; //same ingredients as before
+  }
+  if (position < ingredientsByRecipe.size()) {
+   for (int id : ingredientsByRecipe.get(position)) {
+    recipesByIngredient.get(id).removeSorted(position);
+   }
+  }
+  for (int id : ids) {
+   postings(id).addSorted(position);
+  }
+  if (position < ingredientsByRecipe.size()) {
+   ingredientsByRecipe.set(position, ids);
+  } else {
+   ingredientsByRecipe.add(ids);
+  }
+ }
+
+ int[] search(String term) {
+  //positions of recipes with at least one ingredient containing the term, in ascending order
+  return union(matchingIngredients(term));
+ }
+
+ int[] searchAll(List<String> terms) {
+  //positions of recipes where every term is contained in one of its ingredients
+  List<int[]> matches = new ArrayList<>();
+  for (String term : terms) {
+   int[] ids = matchingIngredients(term);
+   if (ids.length == 0) {
+    return new int[0];
+   }
+   matches.add(ids);
+  }
+  //most selective term first, the rest only filter the shrinking candidate list
+  matches.sort(Comparator.comparingLong(this::postingSize));
+  int[] candidates = union(matches.get(0));
+  for (int t = 1; t < matches.size() && candidates.length > 0; t++) {
+   BitSet wanted = new BitSet(recipesByIngredient.size());
+   for (int id : matches.get(t)) {
+    wanted.set(id);
+   }
+   int n = 0;
+   for (int position : candidates) {
+    for (int id : ingredientsByRecipe.get(position)) {
+     if (wanted.get(id)) {
+      candidates[n++] = position;
+      break;
+     }
+    }
+   }
+   candidates = Arrays.copyOf(candidates, n);
+  }
+  return candidates;
+ }
+
+ long estimate(String term) {
+  //upper bound on how many recipes have an ingredient containing the term
+  return postingSize(matchingIngredients(term));
+ }
+
+ BitSet matchingIds(String term) {
+  //ids of the ingredients containing the term, for checking recipes one at a time with hasAny
+  BitSet ids = new BitSet();
+  for (int id : matchingIngredients(term)) {
+   ids.set(id);
+  }
+  return ids;
+ }
+
+ boolean hasAny(int position, BitSet ingredientIds) {
+  //whether the recipe at this position uses any of the ingredients
+  for (int id : ingredientsByRecipe.get(position)) {
+   if (ingredientIds.get(id)) {
+    return true;
+   }
+  }
+  return false;
+ }
+
+ private IntList postings(int id) {
+  //posting list for the ingredient id, adding the ingredient to the trigram index the first time
+  while (recipesByIngredient.size() <= id) {
+   recipesByIngredient.add(new IntList());
+  }
+  if (!knownIngredients.get(id)) {
+   knownIngredients.set(id);
+   ingredientGrams.add(id, IngredientDictionary.nameOf(id));
+  }
+  return recipesByIngredient.get(id);
+ }
+
+ private static int[] distinct(int[] ingredientIds) {
+  //sorted copy without duplicates or missing ingredients
+  if (ingredientIds == null) {
+   return new int[0];
+  }
+  int[] ids = ingredientIds.clone();
+  Arrays.sort(ids);
+  int n = 0;
+  for (int i = 0; i < ids.length; i++) {
+   if (ids[i] >= 0 && (n == 0 || ids[i] != ids[n - 1])) {
+    ids[n++] = ids[i];
+   }
+  }
+  return Arrays.copyOf(ids, n);
+ }
+
+ private int[] matchingIngredients(String term) {
+  //ids of ingredients containing the term that are used by at least one recipe
+  int[] candidates = ingredientGrams.candidates(term);
+  if (candidates == null) {
+   candidates = knownIngredients.stream().toArray(); //term too short for trigrams, check every ingredient
+  }
+  int[] ids = new int[candidates.length];
+  int n = 0;
+  for (int id : candidates) {
+   if (recipesByIngredient.get(id).size() > 0 && IngredientDictionary.nameOf(id).contains(term)) {
+    ids[n++] = id;
+   }
+  }
+  return Arrays.copyOf(ids, n);
+ }
+
+ private long postingSize(int[] ingredientIdList) {
+  //upper bound on how many recipes a term can match
+  long total = 0;
+  for (int id : ingredientIdList) {
+   total += recipesByIngredient.get(id).size();
+  }
+  return total;
+ }
+
+ private int[] union(int[] ingredientIdList) {
+  //merges the recipe positions of several ingredients into one ascending list
+  if (ingredientIdList.length == 1) {
+   return recipesByIngredient.get(ingredientIdList[0]).toArray();
+  }
+  BitSet positions = new BitSet(ingredientsByRecipe.size());
+  for (int id : ingredientIdList) {
+   IntList list = recipesByIngredient.get(id);
+   for (int i = 0; i < list.size(); i++) {
+    positions.set(list.get(i));
+   }
+  }
+  return positions.stream().toArray();
+ }
+}
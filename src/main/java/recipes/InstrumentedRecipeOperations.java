@@ -0,0 +1,377 @@
+package recipes;
+
+import java.io.File;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class InstrumentedRecipeOperations implements IRecipeOperations {
+ //this class wraps any IRecipeOperations and records latency, calls, failures, result sizes and bytes per method
+ //the metrics can be registered with JMX (e.g. seen in jconsole) or printed with dump
+
+ private final IRecipeOperations delegate;
+ private final RecipeMetrics add = new RecipeMetrics("addRecipe");
+ private final RecipeMetrics addBatch = new RecipeMetrics("addRecipes");
+ private final RecipeMetrics viewAll = new RecipeMetrics("viewAllRecipes");
+ private final RecipeMetrics search = new RecipeMetrics("searchRecipes");
+ private final RecipeMetrics searchMultiple = new RecipeMetrics("searchRecipesMultipleIngredients");
+ private final RecipeMetrics searchQuery = new RecipeMetrics("searchRecipesQuery");
+ private final RecipeMetrics sort = new RecipeMetrics("sortRecipes");
+ private final RecipeMetrics sortPage = new RecipeMetrics("sortRecipesPage");
+ private final RecipeMetrics modify = new RecipeMetrics("modifyRecipe");
+ private final RecipeMetrics modifyEntire = new RecipeMetrics("modifyEntireRecipe");
+ private final RecipeMetrics modifyBatch = new RecipeMetrics("modifyRecipes");
+ private final RecipeMetrics exportFile = new RecipeMetrics("exportRecipes");
+ private final RecipeMetrics exportWriter = new RecipeMetrics("exportRecipesWriter");
+ private final RecipeMetrics exportStream = new RecipeMetrics("exportRecipesStream");
+ private final RecipeMetrics exportChannel = new RecipeMetrics("exportRecipesChannel");
+ private final RecipeMetrics load = new RecipeMetrics("loadRecipes");
+ private final RecipeMetrics[] all = {add, addBatch, viewAll, search, searchMultiple, searchQuery, sort, sortPage,
+                                      modify, modifyEntire, modifyBatch, exportFile, exportWriter, exportStream,
+                                      exportChannel, load};
+
+ public InstrumentedRecipeOperations(IRecipeOperations delegate) {
+  this.delegate = delegate;
+ }
+
+ public RecipeMetrics[] getMetrics() {
+  return all.clone();
+ }
+
+ public void registerMBeans(String domain) throws JMException {
+  //one MBean per method, named like domain:type=RecipeMetrics,operation=searchRecipes
+  MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+  for (RecipeMetrics metrics : all) {
+   server.registerMBean(metrics, new ObjectName(domain + ":type=RecipeMetrics,operation=" + metrics.getOperation()));
+  }
+ }
+
+ public void unregisterMBeans(String domain) throws JMException {
+  MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+  for (RecipeMetrics metrics : all) {
+   ObjectName name = new ObjectName(domain + ":type=RecipeMetrics,operation=" + metrics.getOperation());
+   if (server.isRegistered(name)) {
+    server.unregisterMBean(name);
+   }
+  }
+ }
+
+ public void dump(PrintStream out) {
+  //one line per method that has been called
+  out.printf("%-34s %9s %7s %11s %11s %11s %11s %11s %12s %14s%n", "operation", "calls", "errors", "mean us",
+             "p50 us", "p90 us", "p99 us", "max us", "results", "bytes");
+  for (RecipeMetrics m : all) {
+   if (m.getCalls() > 0) {
+    out.printf("%-34s %9d %7d %11.1f %11.1f %11.1f %11.1f %11.1f %12d %14d%n", m.getOperation(), m.getCalls(),
+               m.getErrors(), m.getMeanMicros(), m.getP50Micros(), m.getP90Micros(), m.getP99Micros(),
+               m.getMaxMicros(), m.getResults(), m.getBytes());
+   }
+  }
+ }
+
+ @Override
+ public void addRecipe(Recipe recipe) {
+  long start = System.nanoTime();
+  try {
+   delegate.addRecipe(recipe);
+  } catch (RuntimeException e) {
+   add.recordError();
+   throw e;
+  }
+  add.record(start, 0, 0);
+ }
+
+ @Override
+ public void addRecipes(Collection<Recipe> recipes) {
+  //results counts the recipes in the batch
+  long start = System.nanoTime();
+  try {
+   delegate.addRecipes(recipes);
+  } catch (RuntimeException e) {
+   addBatch.recordError();
+   throw e;
+  }
+  addBatch.record(start, recipes.size(), 0);
+ }
+
+ @Override
+ public List<Recipe> viewAllRecipes() {
+  long start = System.nanoTime();
+  List<Recipe> results;
+  try {
+   results = delegate.viewAllRecipes();
+  } catch (RuntimeException e) {
+   viewAll.recordError();
+   throw e;
+  }
+  viewAll.record(start, results.size(), 0);
+  return results;
+ }
+
+ @Override
+ public List<Recipe> searchRecipes(String searchOption, String userInput) {
+  long start = System.nanoTime();
+  List<Recipe> results;
+  try {
+   results = delegate.searchRecipes(searchOption, userInput);
+  } catch (RuntimeException e) {
+   search.recordError();
+   throw e;
+  }
+  search.record(start, results.size(), 0);
+  return results;
+ }
+
+ @Override
+ public List<Recipe> searchRecipesMultipleIngredients(List<String> ingredientsList) {
+  long start = System.nanoTime();
+  List<Recipe> results;
+  try {
+   results = delegate.searchRecipesMultipleIngredients(ingredientsList);
+  } catch (RuntimeException e) {
+   searchMultiple.recordError();
+   throw e;
+  }
+  searchMultiple.record(start, results.size(), 0);
+  return results;
+ }
+
+ @Override
+ public List<Recipe> searchRecipes(RecipeQuery query) {
+  long start = System.nanoTime();
+  List<Recipe> results;
+  try {
+   results = delegate.searchRecipes(query);
+  } catch (RuntimeException e) {
+   searchQuery.recordError();
+   throw e;
+  }
+  searchQuery.record(start, results.size(), 0);
+  return results;
+ }
+
+ @Override
+ public List<Recipe> sortRecipes(String sortChoice, String... fields) {
+  long start = System.nanoTime();
+  List<Recipe> results;
+  try {
+   results = delegate.sortRecipes(sortChoice, fields);
+  } catch (RuntimeException e) {
+   sort.recordError();
+   throw e;
+  }
+  sort.record(start, results.size(), 0);
+  return results;
+ }
+
+ @Override
+ public List<Recipe> sortRecipesPage(int offset, int limit, String sortChoice, String... fields) {
+  long start = System.nanoTime();
+  List<Recipe> results;
+  try {
+   results = delegate.sortRecipesPage(offset, limit, sortChoice, fields);
+  } catch (RuntimeException e) {
+   sortPage.recordError();
+   throw e;
+  }
+  sortPage.record(start, results.size(), 0);
+  return results;
+ }
+
+ @Override
+ public void modifyRecipe(String targetRecipeName, String fieldToModify, String newValue) {
+  long start = System.nanoTime();
+  try {
+   delegate.modifyRecipe(targetRecipeName, fieldToModify, newValue);
+  } catch (RuntimeException e) {
+   modify.recordError();
+   throw e;
+  }
+  modify.record(start, 0, 0);
+ }
+
+ @Override
+ public void modifyEntireRecipe(String targetRecipeName, Recipe newRecipeData) {
+  long start = System.nanoTime();
+  try {
+   delegate.modifyEntireRecipe(targetRecipeName, newRecipeData);
+  } catch (RuntimeException e) {
+   modifyEntire.recordError();
+   throw e;
+  }
+  modifyEntire.record(start, 0, 0);
+ }
+
+ @Override
+ public void modifyRecipes(List<RecipeMutation> mutations) {
+  //results counts the mutations in the batch
+  long start = System.nanoTime();
+  try {
+   delegate.modifyRecipes(mutations);
+  } catch (RuntimeException e) {
+   modifyBatch.recordError();
+   throw e;
+  }
+  modifyBatch.record(start, mutations.size(), 0);
+ }
+
+ @Override
+ public void exportRecipes(String fileName) throws IOException {
+  long start = System.nanoTime();
+  try {
+   delegate.exportRecipes(fileName);
+  } catch (IOException | RuntimeException e) {
+   exportFile.recordError();
+   throw e;
+  }
+  exportFile.record(start, 0, new File(fileName).length());
+ }
+
+ @Override
+ public void exportRecipes(Writer writer) throws IOException {
+  long start = System.nanoTime();
+  CountingWriter counting = new CountingWriter(writer);
+  try {
+   delegate.exportRecipes(counting);
+  } catch (IOException | RuntimeException e) {
+   exportWriter.recordError();
+   throw e;
+  }
+  exportWriter.record(start, 0, counting.count);
+ }
+
+ @Override
+ public void exportRecipes(OutputStream out, boolean compress) throws IOException {
+  long start = System.nanoTime();
+  CountingOutputStream counting = new CountingOutputStream(out);
+  try {
+   delegate.exportRecipes(counting, compress);
+  } catch (IOException | RuntimeException e) {
+   exportStream.recordError();
+   throw e;
+  }
+  exportStream.record(start, 0, counting.count);
+ }
+
+ @Override
+ public void exportRecipes(WritableByteChannel channel) throws IOException {
+  long start = System.nanoTime();
+  CountingChannel counting = new CountingChannel(channel);
+  try {
+   delegate.exportRecipes(counting);
+  } catch (IOException | RuntimeException e) {
+   exportChannel.recordError();
+   throw e;
+  }
+  exportChannel.record(start, 0, counting.count);
+ }
+
+ @Override
+ public void loadRecipes(String fileName) throws IOException {
+  long start = System.nanoTime();
+  long size = new File(fileName).length(); //0 if the file is missing
+  try {
+   delegate.loadRecipes(fileName);
+  } catch (IOException | RuntimeException e) {
+   load.recordError();
+   throw e;
+  }
+  load.record(start, 0, size);
+ }
+
+ private static class CountingWriter extends FilterWriter {
+  //counts the chars passed on
+  private long count;
+
+  CountingWriter(Writer out) {
+   super(out);
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+   out.write(c);
+   count++;
+  }
+
+  @Override
+  public void write(char[] chars, int offset, int length) throws IOException {
+   out.write(chars, offset, length);
+   count += length;
+  }
+
+  @Override
+  public void write(String text, int offset, int length) throws IOException {
+   out.write(text, offset, length);
+   count += length;
+  }
+ }
+
+ private static class CountingOutputStream extends OutputStream {
+  //counts the bytes passed on, writing arrays through whole rather than a byte at a time like FilterOutputStream
+  private final OutputStream out;
+  private long count;
+
+  CountingOutputStream(OutputStream out) {
+   this.out = out;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+   out.write(b);
+   count++;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+   out.write(bytes, offset, length);
+   count += length;
+  }
+
+  @Override
+  public void flush() throws IOException {
+   out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+   out.close();
+  }
+ }
+
+ private static class CountingChannel implements WritableByteChannel {
+  //counts the bytes written through to the channel
+  private final WritableByteChannel channel;
+  private long count;
+
+  CountingChannel(WritableByteChannel channel) {
+   this.channel = channel;
+  }
+
+  @Override
+  public int write(ByteBuffer buffer) throws IOException {
+   int written = channel.write(buffer);
+   count += written;
+   return written;
+  }
+
+  @Override
+  public boolean isOpen() {
+   return channel.isOpen();
+  }
+
+  @Override
+  public void close() throws IOException {
+   channel.close();
+  }
+ }
+}
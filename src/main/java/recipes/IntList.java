@@ -0,0 +1,87 @@
+package recipes;
+
+import java.util.Arrays;
+
+class IntList {
+ //growable int array used for posting lists, kept in ascending order when using the sorted methods
+
+ private int[] values;
+ private int size;
+
+ IntList() {
+  this.values = new int[4];
+ }
+
+ int size() {
+  return size;
+ }
+
+ int get(int index) {
+  return values[index];
+ }
+
+ void add(int value) {
+  //appends to the end, callers must keep the order themselves
+  if (size == values.length) {
+   values = Arrays.copyOf(values, size * 2);
+  }
+  values[size++] = value;
+ }
+
+ void addSorted(int value) {
+  //inserts the value in order, ignoring duplicates
+  if (size == 0 || values[size - 1] < value) { //common case, new ids are the largest
+   add(value);
+   return;
+  }
+  int pos = Arrays.binarySearch(values, 0, size, value);
+  if (pos >= 0) {
+   return;
+  }
+  pos = -pos - 1;
+  if (size == values.length) {
+   values = Arrays.copyOf(values, size * 2);
+  }
+  System.arraycopy(values, pos, values, pos + 1, size - pos);
+  values[pos] = value;
+  size++;
+ }
+
+ void removeSorted(int value) {
+  //removes the value if present
+  int pos = Arrays.binarySearch(values, 0, size, value);
+  if (pos < 0) {
+   return;
+  }
+  System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+  size--;
+ }
+
+ boolean containsSorted(int value) {
+  return Arrays.binarySearch(values, 0, size, value) >= 0;
+ }
+
+ int[] toArray() {
+  return Arrays.copyOf(values, size);
+ }
+
+ static int[] intersect(int[] a, IntList b) {
+  //merges two ascending lists, keeping values that appear in both
+  int[] out = new int[Math.min(a.length, b.size)];
+  int i = 0;
+  int j = 0;
+  int n = 0;
+  while (i < a.length && j < b.size) {
+   if (a[i] < b.values[j]) {
+    i++;
+   } else if (a[i] > b.values[j]) {
+    j++;
+   } else {
+    out[n++] = a[i];
+    i++;
+    j++;
+   }
+  }
+  return Arrays.copyOf(out, n);
+ }
+}
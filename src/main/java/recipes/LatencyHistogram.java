@@ -0,0 +1,93 @@
+package recipes;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+class LatencyHistogram {
+ //fixed-size histogram of durations in nanoseconds, safe to record into from many threads without allocating
+ //every power of two is split into SUB_COUNT buckets, so a reported percentile is within 1/16 of the real value
+ //from nanoseconds up to centuries, in 960 counters
+
+ private static final int SUB_BITS = 4;
+ private static final int SUB_COUNT = 1 << SUB_BITS;
+ private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+ private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+ private final LongAdder count = new LongAdder();
+ private final LongAdder total = new LongAdder();
+ private final AtomicLong max = new AtomicLong();
+
+ void record(long nanos) {
+  long value = Math.max(nanos, 0);
+  counts.incrementAndGet(bucketOf(value));
+  count.increment();
+  total.add(value);
+  long seen = max.get();
+  while (value > seen && !max.compareAndSet(seen, value)) {
+   seen = max.get();
+  }
+ }
+
+ long count() {
+  return count.sum();
+ }
+
+ long total() {
+  return total.sum();
+ }
+
+ long max() {
+  return max.get();
+ }
+
+ long percentile(double fraction) {
+  //the highest value of the bucket holding this share of the recordings, 0 when nothing was recorded
+  long[] snapshot = new long[BUCKETS];
+  long recorded = 0;
+  for (int i = 0; i < BUCKETS; i++) {
+   snapshot[i] = counts.get(i);
+   recorded += snapshot[i];
+  }
+  if (recorded == 0) {
+   return 0;
+  }
+  long rank = Math.max(1, (long) Math.ceil(fraction * recorded));
+  long seen = 0;
+  for (int i = 0; i < BUCKETS; i++) {
+   seen += snapshot[i];
+   if (seen >= rank) {
+    return Math.min(highestOf(i), max.get());
+   }
+  }
+  return max.get();
+ }
+
+ void reset() {
+  //recordings made while resetting may be partly kept
+  for (int i = 0; i < BUCKETS; i++) {
+   counts.set(i, 0);
+  }
+  count.reset();
+  total.reset();
+  max.set(0);
+ }
+
+ static int bucketOf(long value) {
+  //values below SUB_COUNT get a bucket each, larger ones go by their top bit and the SUB_BITS bits after it
+  if (value < SUB_COUNT) {
+   return (int) value;
+  }
+  int exponent = 63 - Long.numberOfLeadingZeros(value);
+  return (exponent - SUB_BITS + 1) * SUB_COUNT + (int) ((value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1));
+ }
+
+ static long highestOf(int bucket) {
+  if (bucket < SUB_COUNT) {
+   return bucket;
+  }
+  int shift = bucket / SUB_COUNT - 1; //exponent - SUB_BITS
+  long lowest = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+  return lowest + (1L << shift) - 1;
+ }
+}
@@ -0,0 +1,294 @@
+package recipes;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MutationLog implements IRecipeChangeListener {
+ //this class appends each added or modified recipe to "<file>.log" instead of rewriting the whole file
+ //an added recipe is logged as "ADD" and a modified one as "SET <position>", each followed by the recipe and a separator.
+ //adds carry no position, so they are replayed in order even if the snapshot holds fewer recipes than the collection did
+ //entries are buffered and written by an AutosaveService shortly after the change, so a burst of edits is one write
+ //once the log grows past a threshold it is rotated to "<file>.log.old" and a fresh snapshot is written
+
+ private static final String SEPARATOR = "----------------------";
+ private static final String ADD = "ADD";
+ private static final long DEFAULT_COMPACT_THRESHOLD = 4L * 1024 * 1024; //4 MB of log before compacting
+ private static final long AUTOSAVE_DELAY_MILLIS = 200; //how long changes are collected before a write
+
+ private final String fileName;
+ private final long compactThreshold;
+ private final AutosaveService autosave;
+ private StringBuilder pending = new StringBuilder(); //entries not written yet
+ private boolean compactRequested;
+ private OutputStream writer; //only used by the save action
+ private long logSize; //bytes in the log, compared with the threshold
+
+ public MutationLog(String fileName) throws IOException {
+  this(fileName, DEFAULT_COMPACT_THRESHOLD);
+ }
+
+ public MutationLog(String fileName, long compactThreshold) throws IOException {
+  this.fileName = fileName;
+  this.compactThreshold = compactThreshold;
+  File log = logFile(fileName);
+  this.logSize = log.length();
+  this.writer = openForAppend(log);
+  this.autosave = new AutosaveService(this::writePending, AUTOSAVE_DELAY_MILLIS);
+ }
+
+ @Override
+ public void recipeChanged(int position, Recipe recipe) {
+  //formats only the changed recipe, the write happens in the background
+  append("SET " + position + "\n" + recipe + SEPARATOR + "\n");
+ }
+
+ @Override
+ public void recipeAdded(int position, Recipe recipe) {
+  append(ADD + "\n" + recipe + SEPARATOR + "\n");
+ }
+
+ @Override
+ public void recipesChanged(int[] positions, List<Recipe> recipes) {
+  //formats the whole batch first and hands it to the background save at once, so it is written in one go
+  StringBuilder entries = new StringBuilder();
+  for (int i = 0; i < positions.length; i++) {
+   entries.append("SET ").append(positions[i]).append('\n').append(recipes.get(i)).append(SEPARATOR).append('\n');
+  }
+  append(entries.toString());
+ }
+
+ @Override
+ public void recipesAdded(int[] positions, List<Recipe> recipes) {
+  StringBuilder entries = new StringBuilder();
+  for (Recipe recipe : recipes) {
+   entries.append(ADD).append('\n').append(recipe).append(SEPARATOR).append('\n');
+  }
+  append(entries.toString());
+ }
+
+ private void append(String entries) {
+  synchronized (this) {
+   pending.append(entries);
+  }
+  autosave.markDirty();
+ }
+
+ public void compact() {
+  //asks the next save to rotate the log and write a fresh snapshot
+  synchronized (this) {
+   compactRequested = true;
+  }
+  autosave.markDirty();
+ }
+
+ public void flush() {
+  //writes any buffered entries now
+  autosave.flush();
+ }
+
+ private void writePending() {
+  //the autosave action, appends everything buffered since the last save in one write
+  String entries;
+  boolean compactNow;
+  synchronized (this) {
+   entries = pending.toString();
+   pending = new StringBuilder();
+   compactNow = compactRequested;
+   compactRequested = false;
+  }
+  try {
+   //encoded here, in the charset the log is read back with, so logSize counts bytes like log.length() does
+   byte[] bytes = entries.getBytes(Charset.defaultCharset());
+   writer.write(bytes);
+   writer.flush();
+   logSize += bytes.length;
+  } catch (IOException e) {
+   System.out.println("Warning: failed to autosave recipes: " + e.getMessage());
+   synchronized (this) {
+    pending.insert(0, entries); //kept for the next save
+   }
+   return;
+  }
+  if (compactNow || logSize >= compactThreshold) {
+   rotateAndSnapshot();
+  }
+ }
+
+ private void rotateAndSnapshot() {
+  //moves the log aside, then rebuilds the snapshot from the old snapshot and the rotated log
+  //this runs on the save thread, so nothing is appended to the new log meanwhile and the live
+  //collection is never read from the background
+  try {
+   writer.close();
+   File log = logFile(fileName);
+   File old = oldLogFile(fileName);
+   if (old.exists()) {
+    //a previous compaction failed, keep its entries and add ours after them
+    Files.write(old.toPath(), Files.readAllBytes(log.toPath()), StandardOpenOption.APPEND);
+    Files.delete(log.toPath());
+   } else {
+    Files.move(log.toPath(), old.toPath(), StandardCopyOption.REPLACE_EXISTING);
+   }
+   writer = openForAppend(log);
+   logSize = 0;
+  } catch (IOException e) {
+   System.out.println("Warning: failed to rotate the autosave log: " + e.getMessage());
+   return;
+  }
+
+  //writes the snapshot, then drops the rotated log. only the rotated log is replayed, the new one is empty
+  //and already open for the next entries
+  try {
+   File file = new File(fileName);
+   List<Recipe> snapshot = file.exists() ? RecipeCollection.readRecipeFile(file) : new ArrayList<>();
+   int rejected = replayFile(oldLogFile(fileName), snapshot);
+   writeSnapshot(fileName, snapshot);
+   if (rejected > 0) {
+    setAside(oldLogFile(fileName), fileName);
+   } else {
+    Files.deleteIfExists(oldLogFile(fileName).toPath());
+   }
+  } catch (IOException e) {
+   //the rotated log is kept, so nothing is lost and the next compaction tries again
+   System.out.println("Warning: failed to compact the autosave log: " + e.getMessage());
+  }
+ }
+
+ public void close() throws IOException {
+  //writes whatever is still buffered and closes the log
+  autosave.close();
+  writer.close();
+ }
+
+ static boolean exists(String fileName) {
+  //checks whether there is anything to replay for this file
+  return logFile(fileName).exists() || oldLogFile(fileName).exists();
+ }
+
+ static int replay(String fileName, List<Recipe> recipes) throws IOException {
+  //applies every complete log entry to the recipes, the rotated log first, returns how many couldn't be applied
+  return replayFile(oldLogFile(fileName), recipes) + replayFile(logFile(fileName), recipes);
+ }
+
+ private static int replayFile(File log, List<Recipe> recipes) throws IOException {
+  if (!log.exists()) {
+   return 0;
+  }
+  int rejected = 0;
+  try (BufferedReader reader = new BufferedReader(new FileReader(log))) {
+   String line;
+   String header = null;
+   List<String> chunk = new ArrayList<>();
+   while ((line = reader.readLine()) != null) {
+    if (line.equals(ADD) || line.startsWith("SET ")) {
+     //start of a new entry
+     header = line;
+     chunk.clear();
+    } else if (line.trim().equals(SEPARATOR)) {
+     //end of an entry, apply it
+     String problem = apply(header, RecipeCollection.parseRecipeChunk(chunk), recipes);
+     if (problem != null) {
+      System.out.println("Warning: could not replay \"" + header + "\" from " + log.getName() + ": " + problem);
+      rejected++;
+     }
+     header = null;
+     chunk.clear();
+    } else {
+     chunk.add(line);
+    }
+   }
+   //a trailing entry without a separator was cut off mid-write and is ignored
+  }
+  return rejected;
+ }
+
+ private static String apply(String header, Recipe recipe, List<Recipe> recipes) {
+  //applies one entry, returns why it couldn't be applied or null
+  if (header == null) {
+   return "the entry has no header";
+  }
+  if (recipe == null) {
+   return "the entry has no recipe";
+  }
+  if (header.equals(ADD)) {
+   recipes.add(recipe);
+   return null;
+  }
+  int position;
+  try {
+   position = Integer.parseInt(header.substring("SET ".length()).trim());
+  } catch (NumberFormatException e) {
+   return "the position is not a number";
+  }
+  if (position >= 0 && position < recipes.size()) {
+   recipes.set(position, recipe);
+  } else if (position == recipes.size()) {
+   recipes.add(recipe); //logs written before adds had their own entry used SET for them too
+  } else {
+   return "there are only " + recipes.size() + " recipes";
+  }
+  return null;
+ }
+
+ static void rewriteSnapshot(String fileName, List<Recipe> recipes) throws IOException {
+  //writes the recipes as the new snapshot and sets the logs aside in "<file>.log.rejected",
+  //so the file agrees with the collection again and the entries that were skipped can still be looked at
+  System.out.println("Warning: the autosave log for " + fileName + " did not match the file, saving a fresh copy."
+                     + " The old log is kept in " + rejectedLogFile(fileName).getName());
+  writeSnapshot(fileName, recipes);
+  setAside(oldLogFile(fileName), fileName);
+  setAside(logFile(fileName), fileName);
+ }
+
+ private static void writeSnapshot(String fileName, List<Recipe> recipes) throws IOException {
+  //writes the recipes to a temporary file and swaps it in, the temporary file keeps the extension so the
+  //snapshot has the right format
+  String extension = BinaryRecipeFormat.isBinary(fileName) ? BinaryRecipeFormat.EXTENSION
+                     : PagedRecipeStore.isPaged(fileName) ? PagedRecipeStore.EXTENSION : "";
+  File tmp = new File(fileName + ".tmp" + extension);
+  RecipeCollection.writeRecipeFile(recipes, tmp);
+  Files.move(tmp.toPath(), new File(fileName).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+ }
+
+ private static void setAside(File log, String fileName) throws IOException {
+  //appends the log to "<file>.log.rejected" and empties it. the current log is truncated rather than deleted,
+  //because an attached MutationLog may still have it open in append mode
+  if (!log.exists()) {
+   return;
+  }
+  Files.write(rejectedLogFile(fileName).toPath(), Files.readAllBytes(log.toPath()),
+              StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  if (log.equals(oldLogFile(fileName))) {
+   Files.delete(log.toPath());
+  } else {
+   Files.write(log.toPath(), new byte[0], StandardOpenOption.TRUNCATE_EXISTING);
+  }
+ }
+
+ private static OutputStream openForAppend(File log) throws IOException {
+  return new BufferedOutputStream(new FileOutputStream(log, true));
+ }
+
+ private static File logFile(String fileName) {
+  return new File(fileName + ".log");
+ }
+
+ private static File oldLogFile(String fileName) {
+  return new File(fileName + ".log.old");
+ }
+
+ private static File rejectedLogFile(String fileName) {
+  return new File(fileName + ".log.rejected");
+ }
+}
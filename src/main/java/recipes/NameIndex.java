@@ -0,0 +1,186 @@
+package recipes;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+class NameIndex {
+ //case-insensitive hash index from recipe name to the positions of recipes with that name
+ //names are folded one char at a time the same way String.equalsIgnoreCase compares them
+ //only ints are kept per position: the folded name's hash and the next position in its bucket's chain.
+ //the names themselves are read back through nameAt to rule out hash collisions, so the index holds no strings
+ //and works the same for recipes on the heap and recipes in a file
+
+ private static final int NONE = -1;
+
+ private final IntFunction<String> nameAt; //current name of the recipe at a position
+ private int[] heads = new int[16]; //first position of each bucket's chain, chains are in ascending order
+ private int[] next = new int[16]; //next position in the same chain
+ private int[] hashes = new int[16]; //folded name hash per position, to find its chain again on rename
+ private boolean[] named = new boolean[16]; //whether the position is in a chain, null names aren't
+ private int size; //positions seen
+ private int entries; //positions in a chain
+
+ NameIndex(IntFunction<String> nameAt) {
+  this.nameAt = nameAt;
+  Arrays.fill(heads, NONE);
+ }
+
+ void update(int position, String name) {
+  //indexes the name for the recipe at this position, replacing the name indexed before
+  int hash = name == null ? 0 : hash(name);
+  if (position < size) {
+   if (named[position] && name != null && hashes[position] == hash) {
+    return; //same chain, nothing to move
+   }
+   if (named[position]) {
+    unlink(position);
+   }
+  } else {
+   grow(position + 1);
+   size = position + 1;
+  }
+  if (name != null) {
+   hashes[position] = hash;
+   link(position);
+  }
+ }
+
+ int first(String name) {
+  //position of the first recipe with this name, or -1
+  if (name == null) {
+   return -1;
+  }
+  int hash = hash(name);
+  for (int p = heads[bucket(hash)]; p != NONE; p = next[p]) {
+   if (hashes[p] == hash && sameFolded(nameAt.apply(p), name)) {
+    return p;
+   }
+  }
+  return -1;
+ }
+
+ int[] all(String name) {
+  //positions of every recipe with this name, in ascending order
+  IntList matches = new IntList();
+  if (name != null) {
+   int hash = hash(name);
+   for (int p = heads[bucket(hash)]; p != NONE; p = next[p]) {
+    if (hashes[p] == hash && sameFolded(nameAt.apply(p), name)) {
+     matches.add(p);
+    }
+   }
+  }
+  return matches.toArray();
+ }
+
+ private void link(int position) {
+  //inserts the position into its bucket's chain, keeping the chain in ascending order
+  if (entries + 1 > heads.length - heads.length / 4) {
+   rehash(heads.length * 2);
+  }
+  insert(position);
+  named[position] = true;
+  entries++;
+ }
+
+ private void insert(int position) {
+  int bucket = bucket(hashes[position]);
+  int previous = NONE;
+  int p = heads[bucket];
+  while (p != NONE && p < position) {
+   previous = p;
+   p = next[p];
+  }
+  next[position] = p;
+  if (previous == NONE) {
+   heads[bucket] = position;
+  } else {
+   next[previous] = position;
+  }
+ }
+
+ private void unlink(int position) {
+  int bucket = bucket(hashes[position]);
+  if (heads[bucket] == position) {
+   heads[bucket] = next[position];
+  } else {
+   int p = heads[bucket];
+   while (next[p] != position) {
+    p = next[p];
+   }
+   next[p] = next[position];
+  }
+  named[position] = false;
+  entries--;
+ }
+
+ private void rehash(int capacity) {
+  //rebuilds the chains for a bigger table, going through the positions in order keeps each chain sorted
+  heads = new int[capacity];
+  Arrays.fill(heads, NONE);
+  int[] tails = new int[capacity];
+  for (int position = 0; position < size; position++) {
+   if (named[position]) {
+    int bucket = bucket(hashes[position]);
+    if (heads[bucket] == NONE) {
+     heads[bucket] = position;
+    } else {
+     next[tails[bucket]] = position;
+    }
+    tails[bucket] = position;
+    next[position] = NONE;
+   }
+  }
+ }
+
+ private void grow(int needed) {
+  if (needed > next.length) {
+   int capacity = Math.max(needed, next.length * 2);
+   next = Arrays.copyOf(next, capacity);
+   hashes = Arrays.copyOf(hashes, capacity);
+   named = Arrays.copyOf(named, capacity);
+  }
+ }
+
+ private int bucket(int hash) {
+  int mixed = hash * 0x9E3779B9;
+  return (mixed ^ (mixed >>> 16)) & (heads.length - 1);
+ }
+
+ private static int hash(String name) {
+  //String.hashCode of fold(name), without building the folded string
+  int hash = 0;
+  for (int i = 0; i < name.length(); i++) {
+   hash = 31 * hash + fold(name.charAt(i));
+  }
+  return hash;
+ }
+
+ private static boolean sameFolded(String a, String b) {
+  //fold(a).equals(fold(b)), without building the folded strings
+  if (a == null || a.length() != b.length()) {
+   return false;
+  }
+  for (int i = 0; i < a.length(); i++) {
+   if (fold(a.charAt(i)) != fold(b.charAt(i))) {
+    return false;
+   }
+  }
+  return true;
+ }
+
+ private static char fold(char c) {
+  return Character.toLowerCase(Character.toUpperCase(c));
+ }
+
+ static String fold(String name) {
+  if (name == null) {
+   return null;
+  }
+  char[] chars = name.toCharArray();
+  for (int i = 0; i < chars.length; i++) {
+   chars[i] = fold(chars[i]);
+  }
+  return new String(chars);
+ }
+}
@@ -0,0 +1,250 @@
+package recipes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+class NameSearchIndex {
+ //lower-cased recipe names by position with a trigram index over them, for partial and fuzzy name searches
+ //names are indexed padded as "  name " so the first letters of a name make trigrams of their own,
+ //which lets a fuzzy search line up words that only share a short start
+ //by default the lower-cased names are kept here. built with nameAt it keeps only the trigram postings and reads
+ //each name back when it is checked, for a collection whose recipes live in a file
+
+ static final int FUZZY_LIMIT = 20; //results returned by the fuzzy search mode
+ private static final double MIN_SIMILARITY = 0.5; //share of the search's trigrams a fuzzy match must have
+ private static final int CLOSEST_BAND = 3; //matches may share this many trigrams fewer than the best one, about one more typo
+
+ private final List<String> lowerNames; //lower-cased once here instead of on every search, null with nameAt
+ private final IntFunction<String> nameAt; //the name stored for a position, null when the names are kept here
+ private final TrigramIndex grams = new TrigramIndex();
+ private int size; //positions seen
+
+ NameSearchIndex() {
+  this.lowerNames = new ArrayList<>();
+  this.nameAt = null;
+ }
+
+ NameSearchIndex(IntFunction<String> nameAt) {
+  //nameAt must still return the old name while update replaces it, so the old trigrams can be removed
+  this.lowerNames = null;
+  this.nameAt = nameAt;
+ }
+
+ void update(int position, String name) {
+  //indexes the name for the recipe at this position, replacing the name indexed before
+  String lower = name == null ? null : name.toLowerCase();
+  if (position < size) {
+   String old = lowerName(position);
+   if (Objects.equals(old, lower)) {
+    return;
+   }
+   if (old != null) {
+    grams.remove(position, pad(old));
+   }
+   if (lowerNames != null) {
+    lowerNames.set(position, lower);
+   }
+  } else {
+   if (lowerNames != null) {
+    lowerNames.add(lower);
+   }
+   size = position + 1;
+  }
+  if (lower != null) {
+   grams.add(position, pad(lower));
+  }
+ }
+
+ private String lowerName(int position) {
+  if (lowerNames != null) {
+   return lowerNames.get(position);
+  }
+  String name = nameAt.apply(position);
+  return name == null ? null : name.toLowerCase();
+ }
+
+ boolean contains(int position, String lowerTerm) {
+  //whether the name at this position contains the already lower-cased term
+  String name = lowerName(position);
+  return name != null && name.contains(lowerTerm);
+ }
+
+ int[] candidates(String lowerTerm) {
+  //positions whose names have every trigram of the term, null if the term is too short to narrow anything down
+  return grams.candidates(lowerTerm);
+ }
+
+ BitSet containing(String lowerTerm, int[] candidates) {
+  //positions whose names contain the term, checking only the candidates unless there are none to go on
+  BitSet matches = new BitSet(size);
+  if (candidates == null) {
+   for (int i = 0; i < size; i++) {
+    if (contains(i, lowerTerm)) {
+     matches.set(i);
+    }
+   }
+  } else {
+   for (int position : candidates) {
+    if (contains(position, lowerTerm)) {
+     matches.set(position);
+    }
+   }
+  }
+  return matches;
+ }
+
+ int[] fuzzy(String term, int limit) {
+  //positions of the closest names, best first. a match shares at least half of the term's trigrams and no more
+  //than CLOSEST_BAND fewer than the best match does. ranked by shared trigrams, then by how close the name's
+  //length is to the term's, then by position
+  long[] ranked = fuzzyRanked(term, limit);
+  int[] result = new int[ranked.length];
+  for (int i = 0; i < result.length; i++) {
+   result[i] = positionOf(ranked[i]);
+  }
+  return result;
+ }
+
+ long[] fuzzyRanked(String term, int limit) {
+  //the fuzzy matches as ranked entries, best first: (4095 - shared trigrams) << 52 | length gap << 32 | position.
+  //entries from several indexes, with their positions made comparable by withPosition, combine with closest
+  String lower = term.trim().toLowerCase();
+  if (lower.isEmpty() || limit <= 0) {
+   return new long[0];
+  }
+  long[] wanted = TrigramIndex.trigrams(pad(lower)).stream().mapToLong(Long::longValue).toArray();
+  int needed = (int) Math.ceil(wanted.length * MIN_SIMILARITY);
+  List<IntList> lists = new ArrayList<>();
+  for (long gram : wanted) {
+   IntList list = grams.postings(gram);
+   lists.add(list == null ? new IntList() : list);
+  }
+  lists.sort(Comparator.comparingInt(IntList::size));
+
+  //counts how many of the term's trigrams each name has by walking the postings, rarest first.
+  //a name in none of the first k lists shares at most length - k trigrams, so at least length - needed + 1
+  //lists are read. after that a list is only read while it is shorter than the number of names found so far,
+  //past that point checking the names that could still make it directly is cheaper
+  short[] counts = new short[size];
+  IntList touched = new IntList();
+  int read = 0;
+  while (read < lists.size()
+         && (read < wanted.length - needed + 1 || lists.get(read).size() <= touched.size())) {
+   IntList list = lists.get(read++);
+   for (int i = 0; i < list.size(); i++) {
+    int position = list.get(i);
+    if (counts[position]++ == 0) {
+     touched.add(position);
+    }
+   }
+  }
+  int unread = wanted.length - read; //trigrams a name may have beyond its count
+  int mostCounted = 0;
+  for (int i = 0; i < touched.size(); i++) {
+   mostCounted = Math.max(mostCounted, counts[touched.get(i)]);
+  }
+
+  long[] table = unread > 0 ? gramTable(wanted) : null;
+  boolean[] seen = unread > 0 ? new boolean[table.length] : null;
+  long[] ranked = new long[16];
+  int n = 0;
+  int best = 0;
+  for (int i = 0; i < touched.size(); i++) {
+   int position = touched.get(i);
+   //the best match shares at least mostCounted, so anything that can't reach the band below it is skipped
+   if (counts[position] + unread < Math.max(needed, Math.max(mostCounted, best) - CLOSEST_BAND)) {
+    continue;
+   }
+   String name = lowerName(position);
+   int shared = unread > 0 ? sharedTrigrams(name, table, seen) : counts[position];
+   if (shared >= Math.max(needed, best - CLOSEST_BAND)) {
+    best = Math.max(best, shared);
+    int lengthGap = Math.min(Math.abs(name.length() - lower.length()), (1 << 20) - 1);
+    if (n == ranked.length) {
+     ranked = Arrays.copyOf(ranked, n * 2);
+    }
+    //fewer shared trigrams sort later, then a bigger length gap, then a later position
+    ranked[n++] = ((long) (4095 - Math.min(shared, 4095)) << 52) | ((long) lengthGap << 32) | position;
+   }
+  }
+  return closest(ranked, n, limit);
+ }
+
+ static long[] closest(long[] ranked, int n, int limit) {
+  //sorts the first n ranked entries and keeps up to limit of those within CLOSEST_BAND of the best one
+  Arrays.sort(ranked, 0, n);
+  int floor = n == 0 ? 0 : sharedOf(ranked[0]) - CLOSEST_BAND;
+  int count = 0;
+  while (count < n && count < limit && sharedOf(ranked[count]) >= floor) {
+   count++;
+  }
+  return Arrays.copyOf(ranked, count);
+ }
+
+ static int positionOf(long rankedEntry) {
+  return (int) rankedEntry;
+ }
+
+ static long withPosition(long rankedEntry, int position) {
+  return (rankedEntry & ~0xFFFFFFFFL) | position;
+ }
+
+ private static int sharedOf(long rankedEntry) {
+  return 4095 - (int) (rankedEntry >>> 52);
+ }
+
+ private static long[] gramTable(long[] grams) {
+  //small open-addressing set of the term's trigrams, slot value -1 is empty
+  long[] table = new long[Integer.highestOneBit(Math.max(grams.length, 1) * 4 - 1) << 1];
+  Arrays.fill(table, -1);
+  for (long gram : grams) {
+   int slot = slotOf(table, gram);
+   table[slot] = gram;
+  }
+  return table;
+ }
+
+ private static int slotOf(long[] table, long gram) {
+  //the slot holding the gram, or the empty slot where it would go
+  int mask = table.length - 1;
+  int slot = (int) ((gram * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+  while (table[slot] != -1 && table[slot] != gram) {
+   slot = (slot + 1) & mask;
+  }
+  return slot;
+ }
+
+ private static int sharedTrigrams(String name, long[] table, boolean[] seen) {
+  //how many of the term's trigrams the padded name has, without building the padded string
+  Arrays.fill(seen, false);
+  int shared = 0;
+  int length = name.length() + 3;
+  char a = ' ';
+  char b = ' ';
+  for (int i = 2; i < length; i++) {
+   char c = paddedChar(name, i);
+   int slot = slotOf(table, TrigramIndex.pack(a, b, c));
+   if (table[slot] != -1 && !seen[slot]) {
+    seen[slot] = true;
+    shared++;
+   }
+   a = b;
+   b = c;
+  }
+  return shared;
+ }
+
+ private static char paddedChar(String name, int i) {
+  //char i of "  " + name + " "
+  return i < 2 || i - 2 >= name.length() ? ' ' : name.charAt(i - 2);
+ }
+
+ private static String pad(String lowerName) {
+  return "  " + lowerName + " ";
+ }
+}
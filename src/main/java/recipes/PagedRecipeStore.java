@@ -0,0 +1,1306 @@
+package recipes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+public class PagedRecipeStore implements IRecipeChangeListener {
+ //this class keeps a collection's recipes in a file of fixed-size pages, so a save writes only the pages that changed
+ //page 0 is a header, every other page is either slotted or part of an overflow chain. a slotted page has a slot
+ //directory at the front and the records packed from the back, each tagged with its recipe position and a sequence
+ //number. a changed recipe is rewritten in its own slot when its page has room, otherwise it moves to another page
+ //and its home slot becomes a stub forwarding to it. changes only touch pages in memory and the autosave thread
+ //writes the dirty ones, so a save costs about a page per changed recipe whatever the size of the catalogue
+ //a replaced record is removed one save after its replacement was forced to disk, and on open the highest sequence
+ //number of each position wins. pages are rewritten in place, so a save first writes the images of all its pages to
+ //a journal file next to the page file and forces it (a double-write area): a page torn by a crash is written again
+ //from the journal on open, and a journal cut short means the page file wasn't touched yet. a page that is damaged
+ //anyway, or a position without a record, makes open and read refuse the file instead of guessing what was lost.
+ //the same background save compacts the file while less than half of it is in use: records move off the emptiest
+ //and the last pages, emptied pages are reused and empty pages at the end are cut off
+ //usage, with a collection loaded from the same file so the positions match:
+ //  collection.loadRecipes("recipes.pages"); collection.addChangeListener(new PagedRecipeStore("recipes.pages"));
+
+ static final String EXTENSION = ".pages";
+ static final String JOURNAL_EXTENSION = ".journal"; //added to the page file's name
+ static final int PAGE_SIZE = 8192;
+ private static final long MAGIC = 0x5243504147455331L; //"RCPAGES1"
+ private static final long JOURNAL_MAGIC = 0x52434A524E4C3031L; //"RCJRNL01"
+ private static final int JOURNAL_HEADER = 20; //magic, pages in the file after the save, page count, checksum
+ private static final int FORMAT_VERSION = 1;
+ private static final int PAGE_HEADER = 12; //checksum, type, slot count, start of the record area
+ private static final int SLOT_SIZE = 4; //offset and length of a record
+ private static final int RECORD_HEADER = 13; //kind, position, sequence
+ private static final int OVERFLOW_HEADER = 16; //checksum, type, next page, bytes used
+ private static final int OVERFLOW_CAPACITY = PAGE_SIZE - OVERFLOW_HEADER;
+ private static final int INLINE_LIMIT = PAGE_SIZE / 2; //bigger recipes are kept in a chain of overflow pages
+ private static final byte EMPTY = 0; //page types
+ private static final byte SLOTTED = 1;
+ private static final byte OVERFLOW = 2;
+ private static final byte DATA = 1; //record kinds, a recipe in its home slot
+ private static final byte MOVED = 2; //a recipe that didn't fit in its home page any more
+ private static final byte FORWARD = 3; //a home slot pointing at the moved recipe
+ private static final byte OVERFLOWED = 0x10; //added to DATA or MOVED when the recipe is in overflow pages
+ private static final long AUTOSAVE_DELAY_MILLIS = 200; //how long changes are collected before a write
+ private static final double COMPACT_BELOW = 0.5; //share of the file in use below which it is compacted
+ private static final int COMPACT_PAGES_PER_SAVE = 64; //pages emptied per background save, so no save takes long
+ private static final int CLEAN_PAGES_CACHED = 1024; //pages kept in memory after they are written, 8 MB
+ private static final int WRITE_CHUNK_PAGES = 128; //consecutive pages written or read in one call, 1 MB
+
+ private interface PageSource {
+  byte[] page(int number) throws IOException;
+ }
+
+ private final String fileName;
+ private final FileChannel channel;
+ private final FileChannel journal;
+ private final AutosaveService autosave;
+ private final ReentrantLock lock = new ReentrantLock(); //guards the pages and the directory
+ private final ReentrantLock saveLock = new ReentrantLock(); //one save at a time, background or compact
+ private final Map<Integer, byte[]> dirtyPages = new HashMap<>();
+ private final Map<Integer, byte[]> writingPages = new HashMap<>(); //taken by a save that hasn't finished writing
+ private final Map<Integer, byte[]> cleanPages = new LinkedHashMap<>(16, 0.75f, true) {
+  private static final long serialVersionUID = 1L;
+
+  @Override
+  protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+   return size() > CLEAN_PAGES_CACHED;
+  }
+ };
+ private final TreeSet<Integer> freePages = new TreeSet<>(); //the lowest is reused first, so the end can be cut off
+ private int pageCount; //including the header page
+ private byte[] pageTypes = new byte[16];
+ private int[] liveBytes = new int[16]; //bytes used by records and their slots, the whole page for overflow pages
+ private int fillPage = -1; //the page new and moved records go to
+ private long[] locations = new long[16]; //record id (page << 16 | slot) of each position's recipe
+ private long[] homes = new long[16]; //record id of each position's home slot, the location unless it moved
+ private int count;
+ private long nextSequence = 1;
+ private List<long[]> retiring = new ArrayList<>(); //replaced records, {record id, sequence} or {-1, overflow page}
+ private List<long[]> retirable = new ArrayList<>(); //replaced before the last save, so their replacements are on disk
+ private long pagesWritten;
+ private boolean closed;
+
+ public PagedRecipeStore(String fileName) throws IOException {
+  this.fileName = fileName;
+  this.channel = FileChannel.open(new File(fileName).toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                  StandardOpenOption.CREATE);
+  try {
+   this.journal = FileChannel.open(new File(fileName + JOURNAL_EXTENSION).toPath(), StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+  } catch (IOException e) {
+   channel.close();
+   throw e;
+  }
+  try {
+   open();
+  } catch (IOException | RuntimeException e) {
+   channel.close();
+   journal.close();
+   throw e;
+  }
+  this.autosave = new AutosaveService(this::save, AUTOSAVE_DELAY_MILLIS);
+  if (!dirtyPages.isEmpty()) {
+   autosave.markDirty(); //writes what open repaired
+  }
+ }
+
+ static boolean isPaged(String fileName) {
+  return fileName.toLowerCase().endsWith(EXTENSION);
+ }
+
+ static List<Recipe> read(File file) throws IOException {
+  //every recipe in the file in position order, with the pages of a save a crash interrupted taken from its journal
+  //without writing them. throws if a page is damaged or a recipe is missing, rather than return fewer recipes
+  try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+   Journal saved = null;
+   File journalFile = new File(file.getPath() + JOURNAL_EXTENSION);
+   if (journalFile.exists()) {
+    try (FileChannel journalIn = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ)) {
+     saved = Journal.read(journalIn);
+    }
+   }
+   return new Scan(in, true, saved, file.getName()).recipes;
+  }
+ }
+
+ static void write(List<Recipe> recipes, File file) throws IOException {
+  //writes a fresh file with the recipes packed into as few pages as possible
+  Files.deleteIfExists(file.toPath());
+  Files.deleteIfExists(new File(file.getPath() + JOURNAL_EXTENSION).toPath()); //belongs to the old file
+  PagedRecipeStore store = new PagedRecipeStore(file.getPath());
+  try {
+   for (int i = 0; i < recipes.size(); i++) {
+    byte[] encoded = encode(recipes.get(i));
+    store.lock.lock();
+    try {
+     store.put(i, encoded);
+    } finally {
+     store.lock.unlock();
+    }
+    if (store.dirtyPages.size() >= WRITE_CHUNK_PAGES) {
+     store.save(); //keeps a large catalogue from piling up in memory
+    }
+   }
+   store.save();
+  } finally {
+   store.close();
+  }
+ }
+
+ @Override
+ public void recipeChanged(int position, Recipe recipe) {
+  //encodes the recipe and updates its page in memory, the write happens in the background
+  byte[] encoded = encode(recipe);
+  lock.lock();
+  try {
+   put(position, encoded);
+  } finally {
+   lock.unlock();
+  }
+  autosave.markDirty();
+ }
+
+ @Override
+ public void recipesChanged(int[] positions, List<Recipe> recipes) {
+  //encodes the whole batch first so the pages are only locked while they are updated
+  byte[][] encoded = new byte[positions.length][];
+  for (int i = 0; i < positions.length; i++) {
+   encoded[i] = encode(recipes.get(i));
+  }
+  lock.lock();
+  try {
+   for (int i = 0; i < positions.length; i++) {
+    put(positions[i], encoded[i]);
+   }
+  } finally {
+   lock.unlock();
+  }
+  autosave.markDirty();
+ }
+
+ public void flush() {
+  //writes the dirty pages now
+  autosave.flush();
+ }
+
+ public void compact() {
+  //compacts as far as it goes now instead of a few pages per save, e.g. before the file is copied somewhere
+  while (save(Integer.MAX_VALUE)) {
+   //each round frees the records the previous one replaced
+  }
+ }
+
+ public void close() throws IOException {
+  //writes the dirty pages and closes the file
+  lock.lock();
+  try {
+   closed = true;
+  } finally {
+   lock.unlock();
+  }
+  autosave.close();
+  channel.close();
+  journal.close();
+ }
+
+ public int getPageCount() {
+  lock.lock();
+  try {
+   return pageCount;
+  } finally {
+   lock.unlock();
+  }
+ }
+
+ public long getPagesWritten() {
+  //pages written to the page file since the store was opened, each is written to the journal first as well
+  lock.lock();
+  try {
+   return pagesWritten;
+  } finally {
+   lock.unlock();
+  }
+ }
+
+ long locationOf(int position) {
+  //record id of the position's recipe, page << 16 | slot
+  lock.lock();
+  try {
+   return locations[position];
+  } finally {
+   lock.unlock();
+  }
+ }
+
+ long homeOf(int position) {
+  //record id of the position's home slot, the same as its location unless the recipe moved
+  lock.lock();
+  try {
+   return homes[position];
+  } finally {
+   lock.unlock();
+  }
+ }
+
+ private void put(int position, byte[] encoded) {
+  //adds or replaces the recipe at the position in memory
+  if (position > count) {
+   return; //the collection never skips a position
+  }
+  if (position == count) {
+   if (count == locations.length) {
+    locations = Arrays.copyOf(locations, count * 2);
+    homes = Arrays.copyOf(homes, count * 2);
+   }
+   long rid = insertAnywhere(dataRecord(DATA, position, encoded));
+   locations[position] = rid;
+   homes[position] = rid;
+   count++;
+   return;
+  }
+  long location = locations[position];
+  long home = homes[position];
+  byte[] record = dataRecord(DATA, position, encoded);
+  //where it is now, in its home slot or where it moved to
+  if (rewriteAt(location, withKind(record, location == home ? DATA : MOVED))) {
+   return;
+  }
+  //back home, the moved copy goes once this is on disk
+  if (location != home && rewriteAt(home, withKind(record, DATA))) {
+   retire(location);
+   locations[position] = home;
+   return;
+  }
+  //to the fill page, with the home slot forwarding to it
+  long moved = insertAnywhere(withKind(record, MOVED));
+  if (location != home) {
+   retire(location);
+  }
+  if (isStub(home)) {
+   rewriteAt(home, forwardRecord(position, moved)); //on open the newest copy wins wherever the stub points
+  } else {
+   retire(home); //keeps the old recipe until the new copy is on disk, then becomes the stub
+  }
+  locations[position] = moved;
+ }
+
+ private byte[] dataRecord(byte kind, int position, byte[] encoded) {
+  //a record holding the recipe, or pointing at an overflow chain holding it if it is too big for a page
+  if (encoded.length <= INLINE_LIMIT) {
+   return record(kind, position, encoded);
+  }
+  int first = writeChain(encoded);
+  byte[] body = ByteBuffer.allocate(8).putInt(first).putInt(encoded.length).array();
+  return record((byte) (kind | OVERFLOWED), position, body);
+ }
+
+ private byte[] forwardRecord(int position, long target) {
+  byte[] body = ByteBuffer.allocate(6).putInt(pageOf(target)).putShort((short) slotOf(target)).array();
+  return record(FORWARD, position, body);
+ }
+
+ private byte[] record(byte kind, int position, byte[] body) {
+  byte[] record = new byte[RECORD_HEADER + body.length];
+  ByteBuffer.wrap(record).put(kind).putInt(position).putLong(nextSequence++).put(body);
+  return record;
+ }
+
+ private static byte[] withKind(byte[] record, byte kind) {
+  record[0] = (byte) ((record[0] & OVERFLOWED) | kind);
+  return record;
+ }
+
+ private long insertAnywhere(byte[] record) {
+  //puts the record in the fill page, starting a new fill page when it is full
+  if (fillPage > 0) {
+   byte[] page = page(fillPage);
+   int slot = insert(page, record);
+   if (slot >= 0) {
+    changed(fillPage, page, record.length + SLOT_SIZE);
+    return rid(fillPage, slot);
+   }
+  }
+  fillPage = allocatePage(SLOTTED);
+  byte[] page = page(fillPage);
+  int slot = insert(page, record); //always fits, records are at most half a page
+  changed(fillPage, page, record.length + SLOT_SIZE);
+  return rid(fillPage, slot);
+ }
+
+ private boolean rewriteAt(long rid, byte[] record) {
+  //replaces the record in its slot if the page has room, an overflow chain it pointed at goes once this is on disk
+  int number = pageOf(rid);
+  byte[] page = page(number);
+  ByteBuffer b = ByteBuffer.wrap(page);
+  int slot = slotOf(rid);
+  int offset = slotOffset(b, slot);
+  int oldLength = slotLength(b, slot);
+  int oldChain = (page[offset] & OVERFLOWED) != 0 ? b.getInt(offset + RECORD_HEADER) : -1;
+  if (!rewrite(page, slot, record)) {
+   return false;
+  }
+  changed(number, page, record.length - oldLength);
+  if (oldChain > 0) {
+   retiring.add(new long[] {-1, oldChain});
+  }
+  return true;
+ }
+
+ private boolean isStub(long rid) {
+  byte[] page = page(pageOf(rid));
+  return page[slotOffset(ByteBuffer.wrap(page), slotOf(rid))] == FORWARD;
+ }
+
+ private void retire(long rid) {
+  //the record is replaced, it is removed or turned into a stub one save after the replacement is written
+  ByteBuffer b = ByteBuffer.wrap(page(pageOf(rid)));
+  retiring.add(new long[] {rid, b.getLong(slotOffset(b, slotOf(rid)) + 5)});
+ }
+
+ private void retireNow(long[] entry) {
+  if (entry[0] < 0) {
+   freeChain((int) entry[1]);
+   return;
+  }
+  long rid = entry[0];
+  int number = pageOf(rid);
+  int slot = slotOf(rid);
+  byte[] page = page(number);
+  ByteBuffer b = ByteBuffer.wrap(page);
+  if (pageTypes[number] != SLOTTED || slot >= slotCount(b) || slotOffset(b, slot) == 0) {
+   return;
+  }
+  int offset = slotOffset(b, slot);
+  if (b.getLong(offset + 5) != entry[1]) {
+   return; //rewritten since, e.g. the recipe moved back home
+  }
+  int position = b.getInt(offset + 1);
+  if (locations[position] == rid) {
+   return;
+  }
+  int chain = (page[offset] & OVERFLOWED) != 0 ? b.getInt(offset + RECORD_HEADER) : -1;
+  int oldLength = slotLength(b, slot);
+  if (homes[position] == rid) {
+   byte[] stub = forwardRecord(position, locations[position]);
+   rewrite(page, slot, stub); //smaller than any recipe, fits in place
+   changed(number, page, stub.length - oldLength);
+  } else {
+   clearSlot(page, slot);
+   changed(number, page, -oldLength - SLOT_SIZE);
+   releaseIfEmpty(number, page);
+  }
+  if (chain > 0) {
+   freeChain(chain);
+  }
+ }
+
+ private void releaseIfEmpty(int number, byte[] page) {
+  if (slotCount(ByteBuffer.wrap(page)) == 0 && number != fillPage) {
+   format(page, EMPTY);
+   pageTypes[number] = EMPTY;
+   liveBytes[number] = 0;
+   freePages.add(number);
+  }
+ }
+
+ private int writeChain(byte[] encoded) {
+  //writes the recipe into new overflow pages back to front, so each page knows the next one, returns the first
+  int chunks = (encoded.length + OVERFLOW_CAPACITY - 1) / OVERFLOW_CAPACITY;
+  int next = -1;
+  for (int c = chunks - 1; c >= 0; c--) {
+   int number = allocatePage(OVERFLOW);
+   byte[] page = page(number);
+   int from = c * OVERFLOW_CAPACITY;
+   int length = Math.min(OVERFLOW_CAPACITY, encoded.length - from);
+   ByteBuffer.wrap(page).putInt(8, next).putInt(12, length);
+   System.arraycopy(encoded, from, page, OVERFLOW_HEADER, length);
+   next = number;
+  }
+  return next;
+ }
+
+ private void freeChain(int first) {
+  for (int number = first; number > 0 && number < pageCount && pageTypes[number] == OVERFLOW; ) {
+   byte[] page = page(number);
+   int next = ByteBuffer.wrap(page).getInt(8);
+   format(page, EMPTY);
+   pageTypes[number] = EMPTY;
+   changed(number, page, -liveBytes[number]);
+   freePages.add(number);
+   number = next;
+  }
+ }
+
+ private int allocatePage(byte type) {
+  //the lowest free page, or a new one at the end
+  Integer free = freePages.pollFirst();
+  int number;
+  if (free != null) {
+   number = free;
+  } else {
+   number = pageCount++;
+   if (pageCount > pageTypes.length) {
+    pageTypes = Arrays.copyOf(pageTypes, pageCount * 2);
+    liveBytes = Arrays.copyOf(liveBytes, pageCount * 2);
+   }
+  }
+  byte[] page = new byte[PAGE_SIZE];
+  format(page, type);
+  pageTypes[number] = type;
+  liveBytes[number] = type == OVERFLOW ? PAGE_SIZE : 0;
+  cleanPages.remove(number);
+  dirtyPages.put(number, page);
+  return number;
+ }
+
+ private void changed(int number, byte[] page, int liveDelta) {
+  liveBytes[number] += liveDelta;
+  cleanPages.remove(number);
+  dirtyPages.put(number, page);
+ }
+
+ private byte[] page(int number) {
+  //the page from memory, or read and checked from the file
+  byte[] page = dirtyPages.get(number);
+  if (page == null) {
+   page = writingPages.get(number); //the file still has the old version
+  }
+  if (page == null) {
+   page = cleanPages.get(number);
+  }
+  if (page == null) {
+   try {
+    page = readPage(channel, number);
+   } catch (IOException e) {
+    throw new UncheckedIOException(e);
+   }
+   if (!checksumMatches(page)) {
+    throw new UncheckedIOException(new IOException("Page " + number + " of " + fileName + " is damaged"));
+   }
+   cleanPages.put(number, page);
+  }
+  return page;
+ }
+
+ private void save() {
+  save(COMPACT_PAGES_PER_SAVE);
+ }
+
+ private boolean save(int compactPages) {
+  //the autosave action: removes the records replaced before the last save, compacts a little, then writes the
+  //dirty pages, overflow pages first so no record on disk points at a chain that isn't. true if more work is left
+  saveLock.lock();
+  try {
+   int[] numbers;
+   byte[][] images;
+   int keepPages;
+   boolean more;
+   lock.lock();
+   try {
+    for (long[] entry : retirable) {
+     retireNow(entry);
+    }
+    retirable = retiring;
+    retiring = new ArrayList<>();
+    boolean moved = compactStep(compactPages);
+    dropEmptyTail();
+    numbers = dirtyPages.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+    images = new byte[numbers.length][];
+    for (int i = 0; i < numbers.length; i++) {
+     byte[] page = dirtyPages.get(numbers[i]);
+     images[i] = page.clone();
+     setChecksum(images[i]);
+     writingPages.put(numbers[i], page);
+    }
+    dirtyPages.clear();
+    keepPages = pageCount;
+    more = moved || !retirable.isEmpty();
+   } finally {
+    lock.unlock();
+   }
+
+   try {
+    if (numbers.length > 0 || channel.size() > (long) keepPages * PAGE_SIZE) {
+     Journal.write(journal, numbers, images, keepPages);
+     writePages(numbers, images);
+     if (channel.size() > (long) keepPages * PAGE_SIZE) {
+      channel.truncate((long) keepPages * PAGE_SIZE);
+     }
+     channel.force(false);
+     //left unforced: until the next save overwrites it, the journal holds what the file already has, so
+     //writing it again on open changes nothing
+     journal.truncate(0);
+    }
+   } catch (IOException e) {
+    System.out.println("Warning: failed to save recipe pages: " + e.getMessage());
+    lock.lock();
+    try {
+     for (int number : numbers) {
+      byte[] page = writingPages.remove(number);
+      if (!dirtyPages.containsKey(number) && number < pageCount) {
+       dirtyPages.put(number, page); //kept for the next save
+      }
+     }
+     retiring.addAll(retirable); //their replacements may not be on disk
+     retirable = new ArrayList<>();
+    } finally {
+     lock.unlock();
+    }
+    return false;
+   }
+
+   lock.lock();
+   try {
+    pagesWritten += numbers.length;
+    for (int number : numbers) {
+     byte[] page = writingPages.remove(number);
+     if (!dirtyPages.containsKey(number)) {
+      cleanPages.put(number, page);
+     }
+    }
+    if (more && !closed && compactPages == COMPACT_PAGES_PER_SAVE) {
+     autosave.markDirty(); //another round to free what was replaced, the worker is running so this just returns
+    }
+   } finally {
+    lock.unlock();
+   }
+   return more;
+  } finally {
+   saveLock.unlock();
+  }
+ }
+
+ private void writePages(int[] numbers, byte[][] images) throws IOException {
+  //writes runs of consecutive pages in one call each
+  ByteBuffer run = ByteBuffer.allocate(WRITE_CHUNK_PAGES * PAGE_SIZE);
+  int runStart = -1;
+  for (int i = 0; i < numbers.length; i++) {
+   if (runStart >= 0 && (numbers[i] != runStart + run.position() / PAGE_SIZE || !run.hasRemaining())) {
+    writeRun(run, runStart);
+    runStart = -1;
+   }
+   if (runStart < 0) {
+    runStart = numbers[i];
+   }
+   run.put(images[i]);
+  }
+  if (runStart >= 0) {
+   writeRun(run, runStart);
+  }
+ }
+
+ private void writeRun(ByteBuffer run, int firstPage) throws IOException {
+  run.flip();
+  long at = (long) firstPage * PAGE_SIZE;
+  while (run.hasRemaining()) {
+   at += channel.write(run, at);
+  }
+  run.clear();
+ }
+
+ private boolean compactStep(int maxPages) {
+  //moves records off the emptiest pages, and off the last pages while there are free pages below them,
+  //when less than half of the file is in use. returns true if it moved anything
+  long live = 0;
+  for (int number = 1; number < pageCount; number++) {
+   live += liveBytes[number];
+  }
+  if (pageCount < 3 || live >= COMPACT_BELOW * (pageCount - 1) * PAGE_SIZE) {
+   return false;
+  }
+  List<Integer> candidates = new ArrayList<>();
+  for (int number = 1; number < pageCount; number++) {
+   if (pageTypes[number] == SLOTTED && number != fillPage && liveBytes[number] < COMPACT_BELOW * PAGE_SIZE) {
+    candidates.add(number);
+   }
+  }
+  candidates.sort((a, b) -> Integer.compare(liveBytes[a], liveBytes[b]));
+  Integer lowestFree = freePages.isEmpty() ? null : freePages.first();
+  for (int number = pageCount - 1; lowestFree != null && number > lowestFree; number--) {
+   if (pageTypes[number] == SLOTTED && number != fillPage && liveBytes[number] >= COMPACT_BELOW * PAGE_SIZE) {
+    candidates.add(number);
+   }
+  }
+  boolean moved = false;
+  for (int i = 0; i < candidates.size() && i < maxPages; i++) {
+   int number = candidates.get(i);
+   if (pageTypes[number] != SLOTTED || number == fillPage) {
+    continue;
+   }
+   ByteBuffer b = ByteBuffer.wrap(page(number));
+   for (int slot = 0; slot < slotCount(b); slot++) {
+    int offset = slotOffset(b, slot);
+    if (offset == 0) {
+     continue;
+    }
+    int position = b.getInt(offset + 1);
+    long rid = rid(number, slot);
+    if (position < count && (locations[position] == rid || homes[position] == rid)) {
+     relocate(position);
+     moved = true;
+    }
+   }
+  }
+  return moved;
+ }
+
+ private void relocate(int position) {
+  //gives the recipe a new home in the fill page, its old home and location go once the copy is on disk
+  long location = locations[position];
+  long home = homes[position];
+  byte[] page = page(pageOf(location));
+  ByteBuffer b = ByteBuffer.wrap(page);
+  int offset = slotOffset(b, slotOf(location));
+  int length = slotLength(b, slotOf(location));
+  byte[] encoded;
+  if ((page[offset] & OVERFLOWED) != 0) {
+   try {
+    encoded = readChain(this::page, b.getInt(offset + RECORD_HEADER), b.getInt(offset + RECORD_HEADER + 4));
+   } catch (IOException e) {
+    throw new UncheckedIOException(e);
+   }
+  } else {
+   encoded = Arrays.copyOfRange(page, offset + RECORD_HEADER, offset + length);
+  }
+  long moved = insertAnywhere(dataRecord(DATA, position, encoded)); //a chain is copied too, it may sit at the end
+  retire(location);
+  if (home != location) {
+   retire(home);
+  }
+  locations[position] = moved;
+  homes[position] = moved;
+ }
+
+ private void dropEmptyTail() {
+  //forgets empty pages at the end of the file, the save cuts them off
+  while (pageCount > 1 && liveBytes[pageCount - 1] == 0 && pageTypes[pageCount - 1] != OVERFLOW) {
+   int last = --pageCount;
+   freePages.remove(last);
+   dirtyPages.remove(last);
+   cleanPages.remove(last);
+   pageTypes[last] = EMPTY;
+   if (fillPage == last) {
+    fillPage = -1;
+   }
+  }
+ }
+
+ private void open() throws IOException {
+  //writes the header of a new file, or rebuilds the directory from an existing one and repairs what a crash left
+  if (channel.size() == 0) {
+   journal.truncate(0); //left by a file that was deleted
+
+   ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE).putLong(MAGIC).putInt(FORMAT_VERSION).putInt(PAGE_SIZE);
+   header.clear();
+   while (header.hasRemaining()) {
+    channel.write(header, header.position());
+   }
+   channel.force(false);
+   pageCount = 1;
+   return;
+  }
+  Journal interrupted = Journal.read(journal);
+  if (interrupted != null) {
+   interrupted.apply(channel); //finishes the save a crash interrupted, torn pages included
+   journal.truncate(0);
+   journal.force(false);
+  }
+  Scan scan = new Scan(channel, false, null, new File(fileName).getName());
+  pageCount = scan.pageCount;
+  pageTypes = Arrays.copyOf(scan.types, Math.max(16, pageCount));
+  liveBytes = Arrays.copyOf(scan.live, Math.max(16, pageCount));
+  count = scan.count;
+  nextSequence = scan.maxSequence + 1;
+  locations = Arrays.copyOf(scan.best, Math.max(16, count));
+  homes = new long[locations.length];
+  for (int position = 0; position < count; position++) {
+   long stub = scan.stubs[position];
+   boolean atHome = (scan.bestKind[position] & 0x0F) == DATA;
+   homes[position] = stub == 0 || atHome ? locations[position] : stub;
+   if (stub != 0 && atHome) {
+    scan.losers.add(stub); //the home moved, e.g. by compaction
+   } else if (stub != 0 && scan.stubTargets[position] != locations[position]) {
+    rewriteAt(stub, forwardRecord(position, locations[position]));
+   }
+  }
+  //records replaced by a newer copy on disk, and overflow pages no recipe points at any more
+  for (long rid : scan.losers) {
+   byte[] page = page(pageOf(rid));
+   int oldLength = slotLength(ByteBuffer.wrap(page), slotOf(rid));
+   clearSlot(page, slotOf(rid));
+   changed(pageOf(rid), page, -oldLength - SLOT_SIZE);
+  }
+  for (int number = 1; number < pageCount; number++) {
+   if (pageTypes[number] == OVERFLOW && !scan.liveChains.get(number)) {
+    byte[] page = page(number);
+    format(page, EMPTY);
+    pageTypes[number] = EMPTY;
+    changed(number, page, -liveBytes[number]);
+   }
+   if (pageTypes[number] == SLOTTED && liveBytes[number] == 0) {
+    byte[] page = page(number);
+    format(page, EMPTY);
+    pageTypes[number] = EMPTY;
+    changed(number, page, 0);
+   }
+   if (pageTypes[number] == EMPTY) {
+    liveBytes[number] = 0;
+    freePages.add(number);
+   }
+  }
+ }
+
+ private static final class Scan {
+  //what a pass over the whole file finds: the newest record of each position, the home stubs and the pages.
+  //saves are all or nothing thanks to the journal, so a damaged page or a position without a record means data
+  //was lost, and the scan throws instead of letting an older copy of a recipe or a shorter collection stand in
+  final List<Recipe> recipes = new ArrayList<>();
+  final List<Long> losers = new ArrayList<>();
+  final BitSet liveChains = new BitSet();
+  final List<Integer> damaged = new ArrayList<>();
+  int pageCount;
+  byte[] types = new byte[16];
+  int[] live = new int[16];
+  long[] best = new long[16]; //record id of each position's newest recipe, 0 for none
+  long[] bestSequence = new long[16];
+  byte[] bestKind = new byte[16];
+  long[] stubs = new long[16];
+  long[] stubSequence = new long[16];
+  long[] stubTargets = new long[16];
+  int[] chains = new int[16]; //first overflow page and length of the newest recipe, if it has one
+  int[] chainLengths = new int[16];
+  long maxSequence;
+  int count;
+
+  Scan(FileChannel channel, boolean decode, Journal saved, String name) throws IOException {
+   //saved is the journal of an interrupted save, its pages are used in place of the file's
+   int filePages = (int) (channel.size() / PAGE_SIZE);
+   pageCount = saved != null ? saved.pageCount : filePages;
+   if (filePages < 1) {
+    throw new IOException("Not a recipe page file");
+   }
+   ByteBuffer header = ByteBuffer.wrap(readPage(channel, 0));
+   if (header.getLong() != MAGIC || header.getInt() != FORMAT_VERSION || header.getInt() != PAGE_SIZE) {
+    throw new IOException("Not a recipe page file");
+   }
+   types = new byte[pageCount];
+   live = new int[pageCount];
+   ByteBuffer chunk = ByteBuffer.allocate(WRITE_CHUNK_PAGES * PAGE_SIZE);
+   byte[] page = new byte[PAGE_SIZE];
+   for (int first = 1; first < pageCount; first += WRITE_CHUNK_PAGES) {
+    int pages = Math.min(WRITE_CHUNK_PAGES, pageCount - first);
+    chunk.clear().limit(pages * PAGE_SIZE);
+    long at = (long) first * PAGE_SIZE;
+    while (chunk.hasRemaining()) {
+     if (channel.read(chunk, at + chunk.position()) < 0) {
+      chunk.put(new byte[chunk.remaining()]); //pages past the end are only in the journal
+     }
+    }
+    chunk.flip();
+    for (int number = first; number < first + pages; number++) {
+     chunk.get(page);
+     byte[] image = saved != null ? saved.pages.get(number) : null;
+     scanPage(number, image != null ? image : page, decode);
+    }
+   }
+   if (!damaged.isEmpty()) {
+    throw new IOException("Pages " + damaged + " of " + name + " are damaged, the recipes on them can't be read."
+                          + " The file is left as it is, restore it from a backup");
+   }
+
+   for (int position = 0; position < best.length; position++) {
+    if (best[position] != 0 || stubs[position] != 0) {
+     count = position + 1;
+    }
+   }
+   List<Integer> missing = new ArrayList<>();
+   for (int position = 0; position < count && missing.size() < 10; position++) {
+    if (best[position] == 0) {
+     missing.add(position);
+    }
+   }
+   if (!missing.isEmpty()) {
+    throw new IOException("Recipes at positions " + missing + " are missing from " + name
+                          + ". The file is left as it is, restore it from a backup");
+   }
+   PageSource source = number -> {
+    byte[] read = saved != null && saved.pages.containsKey(number) ? saved.pages.get(number)
+                                                                   : readPage(channel, number);
+    if (!checksumMatches(read) || read[4] != OVERFLOW) {
+     throw new IOException("Overflow page " + number + " is damaged");
+    }
+    return read;
+   };
+   for (int position = 0; position < count; position++) {
+    if (chains[position] > 0) {
+     for (int number = chains[position]; number > 0; number = ByteBuffer.wrap(source.page(number)).getInt(8)) {
+      liveChains.set(number);
+     }
+     if (decode) {
+      recipes.set(position, decode(ByteBuffer.wrap(readChain(source, chains[position], chainLengths[position]))));
+     }
+    }
+   }
+  }
+
+  private void scanPage(int number, byte[] page, boolean decode) {
+   if (!checksumMatches(page)) {
+    if (!isZero(page)) {
+     damaged.add(number);
+    }
+    types[number] = EMPTY; //never written, e.g. the file grew but the save didn't get that far
+    return;
+   }
+   types[number] = page[4];
+   if (page[4] == OVERFLOW) {
+    live[number] = PAGE_SIZE;
+    return;
+   }
+   if (page[4] != SLOTTED) {
+    return;
+   }
+   ByteBuffer b = ByteBuffer.wrap(page);
+   for (int slot = 0; slot < slotCount(b); slot++) {
+    int offset = slotOffset(b, slot);
+    if (offset == 0) {
+     continue;
+    }
+    int length = slotLength(b, slot);
+    live[number] += length + SLOT_SIZE;
+    byte kind = page[offset];
+    int position = b.getInt(offset + 1);
+    long sequence = b.getLong(offset + 5);
+    long rid = rid(number, slot);
+    maxSequence = Math.max(maxSequence, sequence);
+    if (position < 0) {
+     losers.add(rid);
+     continue;
+    }
+    grow(position);
+    if ((kind & 0x0F) == FORWARD) {
+     if (sequence > stubSequence[position]) {
+      if (stubs[position] != 0) {
+       losers.add(stubs[position]);
+      }
+      stubs[position] = rid;
+      stubSequence[position] = sequence;
+      stubTargets[position] = rid(b.getInt(offset + RECORD_HEADER), b.getShort(offset + RECORD_HEADER + 4));
+     } else {
+      losers.add(rid);
+     }
+     continue;
+    }
+    if (sequence <= bestSequence[position]) {
+     losers.add(rid);
+     continue;
+    }
+    if (best[position] != 0) {
+     losers.add(best[position]);
+    }
+    best[position] = rid;
+    bestSequence[position] = sequence;
+    bestKind[position] = kind;
+    chains[position] = 0;
+    while (decode && recipes.size() <= position) {
+     recipes.add(null);
+    }
+    if ((kind & OVERFLOWED) != 0) {
+     chains[position] = b.getInt(offset + RECORD_HEADER);
+     chainLengths[position] = b.getInt(offset + RECORD_HEADER + 4);
+    } else if (decode) {
+     recipes.set(position, decode(ByteBuffer.wrap(page, offset + RECORD_HEADER, length - RECORD_HEADER)));
+    }
+   }
+  }
+
+  private void grow(int position) {
+   if (position < best.length) {
+    return;
+   }
+   int size = Math.max(position + 1, best.length * 2);
+   best = Arrays.copyOf(best, size);
+   bestSequence = Arrays.copyOf(bestSequence, size);
+   bestKind = Arrays.copyOf(bestKind, size);
+   stubs = Arrays.copyOf(stubs, size);
+   stubSequence = Arrays.copyOf(stubSequence, size);
+   stubTargets = Arrays.copyOf(stubTargets, size);
+   chains = Arrays.copyOf(chains, size);
+   chainLengths = Arrays.copyOf(chainLengths, size);
+  }
+ }
+
+ static final class Journal {
+  //the images of the pages one save writes, followed by the page count the file has after it. the checksum
+  //covers everything, so a journal the crash cut short is ignored: the page file wasn't written yet
+  final Map<Integer, byte[]> pages = new HashMap<>();
+  int pageCount;
+
+  static void write(FileChannel journal, int[] numbers, byte[][] images, int pageCount) throws IOException {
+   //writes and forces the journal, after this the pages may be written in place
+   ByteBuffer head = ByteBuffer.allocate(JOURNAL_HEADER + numbers.length * 4);
+   head.putLong(JOURNAL_MAGIC).putInt(pageCount).putInt(numbers.length).putInt(0);
+   for (int number : numbers) {
+    head.putInt(number);
+   }
+   CRC32C crc = new CRC32C();
+   crc.update(head.array(), 8, 8);
+   crc.update(head.array(), JOURNAL_HEADER, numbers.length * 4);
+   for (byte[] image : images) {
+    crc.update(image);
+   }
+   head.putInt(16, (int) crc.getValue());
+   head.flip();
+   long at = 0;
+   while (head.hasRemaining()) {
+    at += journal.write(head, at);
+   }
+   for (byte[] image : images) {
+    ByteBuffer b = ByteBuffer.wrap(image);
+    while (b.hasRemaining()) {
+     at += journal.write(b, at);
+    }
+   }
+   journal.truncate(at);
+   journal.force(false);
+  }
+
+  static Journal read(FileChannel journal) throws IOException {
+   //the journal of an interrupted save, or null if there is none or it was cut short
+   long size = journal.size();
+   if (size < JOURNAL_HEADER) {
+    return null;
+   }
+   ByteBuffer head = ByteBuffer.allocate(JOURNAL_HEADER);
+   readFully(journal, head, 0);
+   int pageCount = head.getInt(8);
+   int count = head.getInt(12);
+   if (head.getLong(0) != JOURNAL_MAGIC || count < 0 || pageCount < 1
+       || size != JOURNAL_HEADER + (long) count * (4 + PAGE_SIZE)) {
+    return null;
+   }
+   ByteBuffer numbers = ByteBuffer.allocate(count * 4);
+   readFully(journal, numbers, JOURNAL_HEADER);
+   CRC32C crc = new CRC32C();
+   crc.update(head.array(), 8, 8);
+   crc.update(numbers.array());
+   Journal read = new Journal();
+   read.pageCount = pageCount;
+   long at = JOURNAL_HEADER + (long) count * 4;
+   for (int i = 0; i < count; i++, at += PAGE_SIZE) {
+    ByteBuffer image = ByteBuffer.allocate(PAGE_SIZE);
+    readFully(journal, image, at);
+    crc.update(image.array());
+    int number = numbers.getInt(i * 4);
+    if (number < 1 || number >= pageCount) {
+     return null;
+    }
+    read.pages.put(number, image.array());
+   }
+   return head.getInt(16) == (int) crc.getValue() ? read : null;
+  }
+
+  void apply(FileChannel channel) throws IOException {
+   //writes the pages where they belong and gives the file its page count, then forces it
+   for (Map.Entry<Integer, byte[]> page : pages.entrySet()) {
+    ByteBuffer b = ByteBuffer.wrap(page.getValue());
+    long at = (long) page.getKey() * PAGE_SIZE;
+    while (b.hasRemaining()) {
+     at += channel.write(b, at);
+    }
+   }
+   if (channel.size() > (long) pageCount * PAGE_SIZE) {
+    channel.truncate((long) pageCount * PAGE_SIZE);
+   }
+   channel.force(false);
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long at) throws IOException {
+   while (buffer.hasRemaining()) {
+    if (channel.read(buffer, at + buffer.position()) < 0) {
+     throw new IOException("The page file's journal ended early");
+    }
+   }
+  }
+ }
+
+ private static byte[] readPage(FileChannel channel, int number) throws IOException {
+  ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+  long at = (long) number * PAGE_SIZE;
+  while (buffer.hasRemaining()) {
+   if (channel.read(buffer, at + buffer.position()) < 0) {
+    throw new IOException("Page " + number + " is past the end of the file");
+   }
+  }
+  return buffer.array();
+ }
+
+ private static byte[] readChain(PageSource source, int first, int length) throws IOException {
+  byte[] encoded = new byte[length];
+  int filled = 0;
+  for (int number = first; number > 0 && filled < length; ) {
+   ByteBuffer b = ByteBuffer.wrap(source.page(number));
+   int used = Math.min(b.getInt(12), length - filled);
+   System.arraycopy(b.array(), OVERFLOW_HEADER, encoded, filled, used);
+   filled += used;
+   number = b.getInt(8);
+  }
+  if (filled < length) {
+   throw new IOException("Overflow chain at page " + first + " is cut short");
+  }
+  return encoded;
+ }
+
+ //slotted pages: [checksum][type][0][slot count][record area start][0] then slots of [offset][length],
+ //records are packed from the end of the page. a slot with offset 0 is free
+
+ private static void format(byte[] page, byte type) {
+  Arrays.fill(page, (byte) 0);
+  page[4] = type;
+  if (type == OVERFLOW) {
+   ByteBuffer.wrap(page).putInt(8, -1); //no next page
+  } else {
+   ByteBuffer.wrap(page).putShort(8, (short) PAGE_SIZE); //no records
+  }
+ }
+
+ private static int slotCount(ByteBuffer b) {
+  return b.getShort(6);
+ }
+
+ private static int dataStart(ByteBuffer b) {
+  return b.getShort(8) & 0xFFFF;
+ }
+
+ private static int slotOffset(ByteBuffer b, int slot) {
+  return b.getShort(PAGE_HEADER + slot * SLOT_SIZE);
+ }
+
+ private static int slotLength(ByteBuffer b, int slot) {
+  return b.getShort(PAGE_HEADER + slot * SLOT_SIZE + 2);
+ }
+
+ private static int insert(byte[] page, byte[] record) {
+  //puts the record in a free slot of the page, returns the slot or -1 if the page is too full
+  ByteBuffer b = ByteBuffer.wrap(page);
+  int slots = slotCount(b);
+  int slot = 0;
+  while (slot < slots && slotOffset(b, slot) != 0) {
+   slot++;
+  }
+  int needed = slot == slots ? slots + 1 : slots;
+  if (!makeRoom(b, needed, record.length, -1)) {
+   return -1;
+  }
+  place(b, slot, needed, record);
+  return slot;
+ }
+
+ private static boolean rewrite(byte[] page, int slot, byte[] record) {
+  //replaces the record in the slot, false if the page has no room for the new one
+  ByteBuffer b = ByteBuffer.wrap(page);
+  int offset = slotOffset(b, slot);
+  if (record.length <= slotLength(b, slot)) {
+   System.arraycopy(record, 0, page, offset, record.length);
+   b.putShort(PAGE_HEADER + slot * SLOT_SIZE + 2, (short) record.length);
+   return true;
+  }
+  if (!makeRoom(b, slotCount(b), record.length, slot)) {
+   return false;
+  }
+  place(b, slot, slotCount(b), record);
+  return true;
+ }
+
+ private static boolean makeRoom(ByteBuffer b, int slots, int length, int replacedSlot) {
+  //makes length bytes free between the slot directory and the records, packing the records if the gaps
+  //between them are enough. the record in replacedSlot is about to be replaced and doesn't count
+  int directoryEnd = PAGE_HEADER + slots * SLOT_SIZE;
+  if (dataStart(b) - directoryEnd >= length) {
+   return true;
+  }
+  int used = 0;
+  for (int slot = 0; slot < slotCount(b); slot++) {
+   if (slot != replacedSlot && slotOffset(b, slot) != 0) {
+    used += slotLength(b, slot);
+   }
+  }
+  if (PAGE_SIZE - directoryEnd - used < length) {
+   return false;
+  }
+  //moves the records to the end of the page, the highest first so none is overwritten before it moves
+  byte[] page = b.array();
+  Integer[] order = new Integer[slotCount(b)];
+  for (int slot = 0; slot < order.length; slot++) {
+   order[slot] = slot;
+  }
+  Arrays.sort(order, (x, y) -> Integer.compare(slotOffset(b, y), slotOffset(b, x)));
+  int end = PAGE_SIZE;
+  for (int slot : order) {
+   int offset = slotOffset(b, slot);
+   if (offset == 0 || slot == replacedSlot) {
+    continue;
+   }
+   int recordLength = slotLength(b, slot);
+   end -= recordLength;
+   System.arraycopy(page, offset, page, end, recordLength);
+   b.putShort(PAGE_HEADER + slot * SLOT_SIZE, (short) end);
+  }
+  if (replacedSlot >= 0) {
+   b.putInt(PAGE_HEADER + replacedSlot * SLOT_SIZE, 0);
+  }
+  b.putShort(8, (short) end);
+  return true;
+ }
+
+ private static void place(ByteBuffer b, int slot, int slots, byte[] record) {
+  int start = dataStart(b) - record.length;
+  System.arraycopy(record, 0, b.array(), start, record.length);
+  b.putShort(8, (short) start);
+  b.putShort(6, (short) slots);
+  b.putShort(PAGE_HEADER + slot * SLOT_SIZE, (short) start);
+  b.putShort(PAGE_HEADER + slot * SLOT_SIZE + 2, (short) record.length);
+ }
+
+ private static void clearSlot(byte[] page, int slot) {
+  //frees the slot, and the free slots at the end of the directory with it
+  ByteBuffer b = ByteBuffer.wrap(page);
+  b.putInt(PAGE_HEADER + slot * SLOT_SIZE, 0);
+  int slots = slotCount(b);
+  while (slots > 0 && slotOffset(b, slots - 1) == 0) {
+   slots--;
+  }
+  b.putShort(6, (short) slots);
+  if (slots == 0) {
+   b.putShort(8, (short) PAGE_SIZE);
+  }
+ }
+
+ private static long rid(int page, int slot) {
+  return (long) page << 16 | slot;
+ }
+
+ private static int pageOf(long rid) {
+  return (int) (rid >>> 16);
+ }
+
+ private static int slotOf(long rid) {
+  return (int) (rid & 0xFFFF);
+ }
+
+ private static void setChecksum(byte[] page) {
+  CRC32C crc = new CRC32C();
+  crc.update(page, 4, PAGE_SIZE - 4);
+  ByteBuffer.wrap(page).putInt(0, (int) crc.getValue());
+ }
+
+ private static boolean checksumMatches(byte[] page) {
+  CRC32C crc = new CRC32C();
+  crc.update(page, 4, PAGE_SIZE - 4);
+  return ByteBuffer.wrap(page).getInt(0) == (int) crc.getValue();
+ }
+
+ private static boolean isZero(byte[] page) {
+  for (byte value : page) {
+   if (value != 0) {
+    return false;
+   }
+  }
+  return true;
+ }
+
+ //recipes are stored as length-prefixed UTF-8 strings (-1 for null) and ints, in the field order of the text format
+
+ private static byte[] encode(Recipe r) {
+  List<String> ingredients = r.getIngredients();
+  ByteBuffer out = ByteBuffer.allocate(256);
+  out = putString(out, r.getRecipeName());
+  out = putString(out, r.getCuisineType());
+  out = putString(out, r.getMealType());
+  out = ensure(out, 4);
+  out.putInt(ingredients == null ? -1 : ingredients.size());
+  if (ingredients != null) {
+   for (String ingredient : ingredients) {
+    out = putString(out, ingredient);
+   }
+  }
+  out = putString(out, r.getPreparationSteps());
+  out = ensure(out, 8);
+  out.putInt(r.getPrepTime());
+  out.putInt(r.getCookTime());
+  out = putString(out, r.getDifficulty());
+  out = ensure(out, 4);
+  out.putInt(r.getRating());
+  out = putString(out, r.getNotes());
+  return Arrays.copyOf(out.array(), out.position());
+ }
+
+ private static ByteBuffer putString(ByteBuffer out, String value) {
+  if (value == null) {
+   out = ensure(out, 4);
+   out.putInt(-1);
+   return out;
+  }
+  byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+  out = ensure(out, 4 + bytes.length);
+  out.putInt(bytes.length);
+  out.put(bytes);
+  return out;
+ }
+
+ private static ByteBuffer ensure(ByteBuffer out, int needed) {
+  if (out.remaining() >= needed) {
+   return out;
+  }
+  ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + needed));
+  out.flip();
+  bigger.put(out);
+  return bigger;
+ }
+
+ private static Recipe decode(ByteBuffer in) {
+  String name = getString(in);
+  String cuisine = getString(in);
+  String mealType = getString(in);
+  int ingredientCount = in.getInt();
+  List<String> ingredients = null;
+  if (ingredientCount >= 0) {
+   ingredients = new ArrayList<>(ingredientCount);
+   for (int i = 0; i < ingredientCount; i++) {
+    ingredients.add(getString(in));
+   }
+  }
+  String steps = getString(in);
+  int prepTime = in.getInt();
+  int cookTime = in.getInt();
+  String difficulty = getString(in);
+  int rating = in.getInt();
+  String notes = getString(in);
+  return new Recipe(name, cuisine, mealType, ingredients, steps, prepTime, cookTime, difficulty, rating, notes);
+ }
+
+ private static String getString(ByteBuffer in) {
+  int length = in.getInt();
+  if (length < 0) {
+   return null;
+  }
+  String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+  in.position(in.position() + length);
+  return value;
+ }
+}
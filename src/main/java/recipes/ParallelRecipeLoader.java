@@ -0,0 +1,159 @@
+package recipes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+class ParallelRecipeLoader {
+ //this class loads a recipe text file by memory mapping it, cutting it into regions that end on a separator line,
+ //and parsing the regions in parallel on the common fork-join pool
+ //the result has the same recipes in the same order as reading the file line by line
+
+ private static final String SEPARATOR = "----------------------";
+
+ static boolean canLoad(File file) {
+  //a single mapping is limited to 2 GB and the line splitting assumes an ASCII compatible charset
+  return file.length() <= Integer.MAX_VALUE
+         && Arrays.equals("\r\n -".getBytes(Charset.defaultCharset()), "\r\n -".getBytes(StandardCharsets.US_ASCII));
+ }
+
+ static List<Recipe> load(File file) throws IOException {
+  MappedByteBuffer buffer;
+  try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+       FileChannel channel = raf.getChannel()) {
+   buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); //stays valid after closing
+  }
+
+  //picks region boundaries just after a separator line near evenly spaced offsets
+  int size = buffer.limit();
+  int parts = Math.max(1, Runtime.getRuntime().availableProcessors() * 4);
+  List<int[]> regions = new ArrayList<>();
+  int start = 0;
+  for (int i = 1; i < parts && start < size; i++) {
+   int end = nextBoundary(buffer, Math.max(start, (int) ((long) size * i / parts)));
+   if (end > start) {
+    regions.add(new int[] {start, end});
+    start = end;
+   }
+  }
+  if (start < size) {
+   regions.add(new int[] {start, size});
+  }
+
+  //parallel streams keep encounter order, so the merged list follows the file order
+  AtomicInteger skipped = new AtomicInteger();
+  List<Recipe> loaded = regions.parallelStream()
+                               .map(region -> parseRegion(buffer, region[0], region[1], skipped))
+                               .flatMap(List::stream)
+                               .collect(Collectors.toList());
+  RecipeCollection.warnSkipped(file, skipped.get());
+  return loaded;
+ }
+
+ private static int nextBoundary(MappedByteBuffer buffer, int offset) {
+  //returns the offset just past the first separator line starting at or after the offset
+  int size = buffer.limit();
+  int pos = offset;
+  if (pos > 0) {
+   //skip the rest of the line we landed in
+   while (pos < size && buffer.get(pos - 1) != '\n' && buffer.get(pos - 1) != '\r') {
+    pos++;
+   }
+  }
+  while (pos < size) {
+   int lineEnd = pos;
+   while (lineEnd < size && buffer.get(lineEnd) != '\n' && buffer.get(lineEnd) != '\r') {
+    lineEnd++;
+   }
+   int next = lineEnd;
+   if (next + 1 < size && buffer.get(next) == '\r' && buffer.get(next + 1) == '\n') {
+    next += 2;
+   } else if (next < size) {
+    next++;
+   }
+   if (isSeparator(buffer, pos, lineEnd)) {
+    return next;
+   }
+   pos = next;
+  }
+  return size;
+ }
+
+ private static boolean isSeparator(MappedByteBuffer buffer, int from, int to) {
+  //same check as line.trim().equals(separator), trim only removes chars up to a space
+  while (from < to && (buffer.get(from) & 0xff) <= ' ') {
+   from++;
+  }
+  while (to > from && (buffer.get(to - 1) & 0xff) <= ' ') {
+   to--;
+  }
+  if (to - from != SEPARATOR.length()) {
+   return false;
+  }
+  for (int i = from; i < to; i++) {
+   if (buffer.get(i) != '-') {
+    return false;
+   }
+  }
+  return true;
+ }
+
+ private static List<Recipe> parseRegion(MappedByteBuffer buffer, int from, int to, AtomicInteger skipped) {
+  //decodes one region and parses it exactly like the serial reader, counting the chunks it has to skip
+  byte[] bytes = new byte[to - from];
+  buffer.slice(from, to - from).get(bytes);
+  String text = new String(bytes, Charset.defaultCharset());
+
+  List<Recipe> parsed = new ArrayList<>();
+  List<String> chunk = new ArrayList<>();
+  int pos = 0;
+  while (pos < text.length()) {
+   //splits lines on \n, \r or \r\n like BufferedReader.readLine
+   int lineEnd = pos;
+   while (lineEnd < text.length() && text.charAt(lineEnd) != '\n' && text.charAt(lineEnd) != '\r') {
+    lineEnd++;
+   }
+   String line = text.substring(pos, lineEnd);
+   pos = lineEnd;
+   if (pos < text.length() && text.charAt(pos) == '\r') {
+    pos++;
+    if (pos < text.length() && text.charAt(pos) == '\n') {
+     pos++;
+    }
+   } else if (pos < text.length()) {
+    pos++;
+   }
+
+   if (line.trim().equals(SEPARATOR)) {
+    Recipe recipe = RecipeCollection.parseRecipeChunk(chunk);
+    if (recipe != null) {
+     parsed.add(recipe);
+    } else if (!RecipeCollection.isBlank(chunk)) {
+     skipped.incrementAndGet();
+    }
+    chunk.clear();
+   } else {
+    chunk.add(line);
+   }
+  }
+  //only the last region can end without a separator
+  if (!chunk.isEmpty()) {
+   Recipe recipe = RecipeCollection.parseRecipeChunk(chunk);
+   if (recipe != null) {
+    parsed.add(recipe);
+   } else if (!RecipeCollection.isBlank(chunk)) {
+    skipped.incrementAndGet();
+   }
+  }
+  return parsed;
+ }
+}
@@ -0,0 +1,111 @@
+package recipes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+class QueryCache {
+ //bounded cache of query results, kept as recipe positions and keyed on the normalised query
+ //the cache holds results for one collection version only: the first lookup after any change drops everything,
+ //so a result computed before an edit is never served and nothing has to work out which queries an edit affects
+ //readers of a ConcurrentRecipeCollection copy share it without locking: the results of a version are a
+ //ConcurrentHashMap that is swapped for an empty one when the version moves on, and eviction is approximately
+ //least recently used, each entry remembers the tick of its last hit and the oldest go when a put goes over the bounds
+
+ static final int MAX_ENTRIES = 256;
+ static final long MAX_POSITIONS = 4L << 20; //positions held by all entries together (16 MB), so a few full sorts fit
+
+ private static class Entry {
+  final int[] positions;
+  volatile long lastUsed; //racing hits may leave either tick, which is close enough for eviction
+
+  Entry(int[] positions, long lastUsed) {
+   this.positions = positions;
+   this.lastUsed = lastUsed;
+  }
+ }
+
+ private static class Generation {
+  //the results computed at one version
+  final long version;
+  final Map<String, Entry> results = new ConcurrentHashMap<>();
+  final AtomicLong positions = new AtomicLong();
+
+  Generation(long version) {
+   this.version = version;
+  }
+ }
+
+ private final QueryCacheMetrics metrics;
+ private final AtomicReference<Generation> current = new AtomicReference<>(new Generation(0));
+ private final AtomicLong ticks = new AtomicLong(); //lookup clock for the eviction order
+ private final AtomicBoolean evicting = new AtomicBoolean(); //one put trims at a time, the others don't wait
+
+ QueryCache(QueryCacheMetrics metrics) {
+  this.metrics = metrics;
+ }
+
+ int[] get(String key, long currentVersion) {
+  //the cached positions for the key, or null if they have to be computed
+  Generation generation = generation(currentVersion);
+  Entry entry = generation.version == currentVersion ? generation.results.get(key) : null;
+  if (entry == null) {
+   metrics.recordMiss();
+   return null;
+  }
+  entry.lastUsed = ticks.incrementAndGet();
+  metrics.recordHit();
+  return entry.positions;
+ }
+
+ void put(String key, long currentVersion, int[] result) {
+  //stores a result computed at currentVersion, evicting the least recently used results over the bounds
+  Generation generation = generation(currentVersion);
+  if (generation.version != currentVersion || result.length > MAX_POSITIONS) {
+   return; //computed before a change another lookup has already seen, or too big to be worth keeping
+  }
+  Entry old = generation.results.put(key, new Entry(result, ticks.incrementAndGet()));
+  long held = generation.positions.addAndGet(result.length - (old == null ? 0 : old.positions.length));
+  if ((generation.results.size() > MAX_ENTRIES || held > MAX_POSITIONS) && evicting.compareAndSet(false, true)) {
+   try {
+    evict(generation);
+   } finally {
+    evicting.set(false);
+   }
+  }
+ }
+
+ private void evict(Generation generation) {
+  //removes the entries used longest ago until the generation is back within the bounds
+  List<Map.Entry<String, Entry>> entries = new ArrayList<>(generation.results.entrySet());
+  entries.sort((a, b) -> Long.compare(a.getValue().lastUsed, b.getValue().lastUsed));
+  int size = entries.size();
+  for (int i = 0; i < entries.size() && (size > MAX_ENTRIES || generation.positions.get() > MAX_POSITIONS); i++) {
+   Map.Entry<String, Entry> eldest = entries.get(i);
+   if (generation.results.remove(eldest.getKey(), eldest.getValue())) {
+    generation.positions.addAndGet(-eldest.getValue().positions.length);
+    size--;
+   }
+  }
+ }
+
+ private Generation generation(long currentVersion) {
+  //the results for currentVersion, starting an empty set when the collection has changed since the last lookup
+  Generation generation = current.get();
+  while (currentVersion > generation.version) {
+   Generation next = new Generation(currentVersion);
+   if (current.compareAndSet(generation, next)) {
+    if (!generation.results.isEmpty()) {
+     metrics.recordInvalidation();
+    }
+    return next;
+   }
+   generation = current.get();
+  }
+  return generation;
+ }
+}
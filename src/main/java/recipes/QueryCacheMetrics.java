@@ -0,0 +1,76 @@
+package recipes;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class QueryCacheMetrics implements QueryCacheMetricsMBean {
+ //this class counts how often the query result cache of a collection answers a search or sort
+ //concurrent readers update it, so the counts are LongAdders
+
+ private final LongAdder hits = new LongAdder();
+ private final LongAdder misses = new LongAdder();
+ private final LongAdder invalidations = new LongAdder(); //times cached results were dropped because the recipes changed
+
+ void recordHit() {
+  hits.increment();
+ }
+
+ void recordMiss() {
+  misses.increment();
+ }
+
+ void recordInvalidation() {
+  invalidations.increment();
+ }
+
+ @Override
+ public long getHits() {
+  return hits.sum();
+ }
+
+ @Override
+ public long getMisses() {
+  return misses.sum();
+ }
+
+ @Override
+ public double getHitRatio() {
+  long hitCount = hits.sum();
+  long total = hitCount + misses.sum();
+  return total == 0 ? 0 : (double) hitCount / total;
+ }
+
+ @Override
+ public long getInvalidations() {
+  return invalidations.sum();
+ }
+
+ @Override
+ public void reset() {
+  hits.reset();
+  misses.reset();
+  invalidations.reset();
+ }
+
+ public void registerMBean(String domain) throws JMException {
+  //named like domain:type=QueryCache, next to the RecipeMetrics of the same domain
+  ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(domain + ":type=QueryCache"));
+ }
+
+ public void unregisterMBean(String domain) throws JMException {
+  MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+  ObjectName name = new ObjectName(domain + ":type=QueryCache");
+  if (server.isRegistered(name)) {
+   server.unregisterMBean(name);
+  }
+ }
+
+ public void dump(PrintStream out) {
+  out.printf("query cache: %d hits, %d misses, %.1f%% hit ratio, %d invalidations%n", getHits(), getMisses(),
+             getHitRatio() * 100, getInvalidations());
+ }
+}
@@ -0,0 +1,11 @@
+package recipes;
+
+public interface QueryCacheMetricsMBean {
+ //this interface is what JMX shows for the query result cache
+
+ long getHits();
+ long getMisses();
+ double getHitRatio();
+ long getInvalidations();
+ void reset();
+}
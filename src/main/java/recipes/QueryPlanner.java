@@ -0,0 +1,227 @@
+package recipes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+class QueryPlanner {
+ //runs a RecipeQuery against a RecipeCollection's indexes
+ //each criterion becomes a step with an estimated match count. the cheapest, most selective steps produce
+ //bitmaps that are ANDed together, and once the candidates are few the rest are checked per candidate
+ //in one pass instead of building more bitmaps
+
+ private static final int SAMPLE_SIZE = 1024; //rows sampled to estimate range selectivity
+
+ private final IngredientIndex ingredientIndex;
+ private final NameIndex nameIndex;
+ private final NameSearchIndex nameSearchIndex;
+ private final BitmapIndex mealTypeIndex;
+ private final BitmapIndex difficultyIndex;
+ private final BitmapIndex cuisineIndex;
+ private final RecipeColumns columns;
+
+ QueryPlanner(IngredientIndex ingredientIndex, NameIndex nameIndex, NameSearchIndex nameSearchIndex,
+              BitmapIndex mealTypeIndex, BitmapIndex difficultyIndex, BitmapIndex cuisineIndex,
+              RecipeColumns columns) {
+  this.ingredientIndex = ingredientIndex;
+  this.nameIndex = nameIndex;
+  this.nameSearchIndex = nameSearchIndex;
+  this.mealTypeIndex = mealTypeIndex;
+  this.difficultyIndex = difficultyIndex;
+  this.cuisineIndex = cuisineIndex;
+  this.columns = columns;
+ }
+
+ private abstract static class Step {
+  long estimate; //expected number of matches
+
+  abstract BitSet evaluate(); //every matching position
+
+  abstract boolean test(int position); //checks one candidate
+ }
+
+ BitSet run(RecipeQuery query) {
+  //returns the positions of the matching recipes
+  int size = columns.size();
+  List<Step> steps = plan(query);
+  steps.sort(Comparator.comparingLong(step -> step.estimate));
+
+  BitSet result = null;
+  int next = 0;
+  //a candidate set this small is cheaper to check one by one than to build another bitmap for
+  long residualLimit = Math.max(64, size / 64);
+  while (next < steps.size() && (result == null || result.cardinality() > residualLimit)) {
+   BitSet matches = steps.get(next++).evaluate();
+   if (result == null) {
+    result = matches;
+   } else {
+    result.and(matches);
+   }
+  }
+  if (result == null) {
+   result = new BitSet(size);
+   result.set(0, size); //no criteria, everything matches
+  }
+  for (int i = result.nextSetBit(0); i >= 0 && next < steps.size(); i = result.nextSetBit(i + 1)) {
+   for (int s = next; s < steps.size(); s++) {
+    if (!steps.get(s).test(i)) {
+     result.clear(i);
+     break;
+    }
+   }
+  }
+  return result;
+ }
+
+ private List<Step> plan(RecipeQuery query) {
+  //one step per criterion that is set, with its estimate
+  List<Step> steps = new ArrayList<>();
+  int size = columns.size();
+
+  if (query.getName() != null) {
+   int[] positions = nameIndex.all(query.getName());
+   steps.add(new Step() {
+    BitSet evaluate() {
+     BitSet bits = new BitSet(size);
+     for (int position : positions) {
+      bits.set(position);
+     }
+     return bits;
+    }
+
+    boolean test(int position) {
+     return Arrays.binarySearch(positions, position) >= 0;
+    }
+   });
+   last(steps).estimate = positions.length;
+  }
+
+  if (query.getIngredients() != null && !query.getIngredients().isEmpty()) {
+   List<String> terms = query.getIngredients();
+   long estimate = size;
+   for (String term : terms) {
+    estimate = Math.min(estimate, ingredientIndex.estimate(term));
+   }
+   steps.add(new Step() {
+    private List<BitSet> idSets;
+
+    BitSet evaluate() {
+     BitSet bits = new BitSet(size);
+     for (int position : ingredientIndex.searchAll(terms)) {
+      bits.set(position);
+     }
+     return bits;
+    }
+
+    boolean test(int position) {
+     if (idSets == null) {
+      idSets = new ArrayList<>();
+      for (String term : terms) {
+       idSets.add(ingredientIndex.matchingIds(term));
+      }
+     }
+     for (BitSet ids : idSets) {
+      if (!ingredientIndex.hasAny(position, ids)) {
+       return false;
+      }
+     }
+     return true;
+    }
+   });
+   last(steps).estimate = estimate;
+  }
+
+  addBitmapStep(steps, mealTypeIndex, query.getMealTypes());
+  addBitmapStep(steps, difficultyIndex, query.getDifficulties());
+  addBitmapStep(steps, cuisineIndex, query.getCuisines());
+
+  if (query.hasRanges()) {
+   steps.add(new Step() {
+    BitSet evaluate() {
+     return columns.scan(query.getMinPrepTime(), query.getMaxPrepTime(), query.getMinCookTime(),
+                         query.getMaxCookTime(), query.getMinRating(), query.getMaxRating(),
+                         Byte.MIN_VALUE, Byte.MAX_VALUE);
+    }
+
+    boolean test(int position) {
+     return inRange(position, query);
+    }
+   });
+   last(steps).estimate = estimateRanges(query);
+  }
+
+  if (query.getNameContaining() != null) {
+   String partial = query.getNameContaining().toLowerCase();
+   int[] candidates = nameSearchIndex.candidates(partial); //names with every trigram of the text
+   steps.add(new Step() {
+    BitSet evaluate() {
+     return nameSearchIndex.containing(partial, candidates);
+    }
+
+    boolean test(int position) {
+     return nameSearchIndex.contains(position, partial);
+    }
+   });
+   last(steps).estimate = candidates == null ? size : candidates.length; //too short for trigrams means a scan
+  }
+  return steps;
+ }
+
+ private void addBitmapStep(List<Step> steps, BitmapIndex index, List<String> values) {
+  if (values == null || values.isEmpty()) {
+   return;
+  }
+  long estimate = 0;
+  for (String value : values) {
+   estimate += index.count(value);
+  }
+  steps.add(new Step() {
+   private BitSet bits;
+
+   BitSet evaluate() {
+    return index.anyOf(values);
+   }
+
+   boolean test(int position) {
+    if (bits == null) {
+     bits = index.anyOf(values);
+    }
+    return bits.get(position);
+   }
+  });
+  last(steps).estimate = estimate;
+ }
+
+ private long estimateRanges(RecipeQuery query) {
+  //checks evenly spaced rows and scales the hit rate up to the whole collection
+  int size = columns.size();
+  if (size == 0) {
+   return 0;
+  }
+  int stride = Math.max(1, size / SAMPLE_SIZE);
+  int sampled = 0;
+  int hits = 0;
+  for (int i = 0; i < size; i += stride) {
+   sampled++;
+   if (inRange(i, query)) {
+    hits++;
+   }
+  }
+  return (long) size * (hits + 1) / (sampled + 1);
+ }
+
+ private boolean inRange(int position, RecipeQuery query) {
+  int prep = columns.prepTime(position);
+  int cook = columns.cookTime(position);
+  int rating = columns.rating(position);
+  return prep >= query.getMinPrepTime() && prep <= query.getMaxPrepTime()
+         && cook >= query.getMinCookTime() && cook <= query.getMaxCookTime()
+         && rating >= query.getMinRating() && rating <= query.getMaxRating();
+ }
+
+ private static Step last(List<Step> steps) {
+  return steps.get(steps.size() - 1);
+ }
+}
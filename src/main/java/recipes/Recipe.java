@@ -1,12 +1,16 @@
+package recipes;
+
 import java.util.List;
 
 public class Recipe {
  //this class stores all details about a single recipe and provides get and set for each field
+ //the ingredients are stored as ids, so getIngredients returns a read-only list and the list given to the
+ //constructor or setIngredients is copied: change a recipe's ingredients by setting a new list
 
  private String recipeName;
  private String cuisineType;
  private String mealType;
- private List<String> ingredients;
+ private int[] ingredientIds; //ids into the shared IngredientDictionary instead of one string per recipe
  private String preparationSteps;
  private int prepTime;
  private int cookTime;
@@ -25,7 +29,7 @@ public class Recipe {
   this.recipeName = recipeName;
   this.cuisineType = cuisineType;
   this.mealType = mealType;
-  this.ingredients = ingredients;
+  this.ingredientIds = IngredientDictionary.encode(ingredients);
   this.preparationSteps = preparationSteps;
   this.prepTime = prepTime;
   this.cookTime = cookTime;
@@ -34,6 +38,13 @@ public class Recipe {
   this.notes = notes;
  }
 
+ //copy constructor, the ingredient ids are shared since they are replaced rather than changed in place
+ public Recipe(Recipe other) {
+  this(other.recipeName, other.cuisineType, other.mealType, null, other.preparationSteps,
+       other.prepTime, other.cookTime, other.difficulty, other.rating, other.notes);
+  this.ingredientIds = other.ingredientIds;
+ }
+
  //get and set for each field
  public String getRecipeName() {
   return recipeName;
@@ -60,11 +71,22 @@ public class Recipe {
  }
 
  public List<String> getIngredients() {
-  return ingredients;
+  //read-only view that decodes the ingredient ids back to strings, adding to it or setting an element throws
+  //UnsupportedOperationException. it keeps showing the ingredients of the time it was returned
+  return IngredientDictionary.decode(ingredientIds);
  }
 
  public void setIngredients(List<String> ingredients) {
-  this.ingredients = ingredients;
+  //copies the list, changing it afterwards doesn't change the recipe
+  this.ingredientIds = IngredientDictionary.encode(ingredients);
+ }
+
+ int[] getIngredientIds() {
+  return ingredientIds;
+ }
+
+ void setIngredientIds(int[] ingredientIds) {
+  this.ingredientIds = ingredientIds;
  }
 
  public String getPreparationSteps() {
@@ -121,7 +143,7 @@ public class Recipe {
   return "Recipe Name: " + recipeName + "\n"
          + "Cuisine: " + cuisineType + "\n"
          + "Meal Type: " + mealType + "\n"
-         + "Ingredients: " + ingredients + "\n"
+         + "Ingredients: " + getIngredients() + "\n"
          + "Preparation Steps: " + preparationSteps + "\n"
          + "Prep Time: " + prepTime + " minutes\n"
          + "Cook Time: " + cookTime + " minutes\n"
@@ -1,24 +1,65 @@
+package recipes;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
+import javax.management.JMException;
 
 public class RecipeApp {
  //this class contains the main method, automatically loads from recipesautosave.txt, and handles user interaction
+ //run with --server [port] to serve the recipes as JSON over HTTP instead of the menu, see RecipeServer
+ //or with --batch [file] to run the commands in the file, or on stdin, without the menu, see RecipeBatchRunner
+
+ private static final int DEFAULT_PORT = 8080;
 
  public static void main(String[] args) {
+  if (args.length > 0 && args[0].equals("--server")) {
+   runServer(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+   return;
+  }
+  if (args.length > 0 && args[0].equals("--batch")) {
+   System.exit(runBatch(args.length > 1 ? args[1] : "-"));
+  }
   Scanner scanner = new Scanner(System.in); //read user input
-  IRecipeOperations recipeCollection = new RecipeCollection(); //manage recipe operation
+  RecipeCollection recipeCollection = new RecipeCollection(); //manage recipe operation
+  //times every operation, the figures are shown by "show metrics" and over JMX (e.g. in jconsole)
+  InstrumentedRecipeOperations recipes = new InstrumentedRecipeOperations(recipeCollection);
+  try {
+   recipes.registerMBeans("RecipeApp");
+   recipeCollection.getQueryCacheMetrics().registerMBean("RecipeApp");
+  } catch (JMException e) {
+   System.out.println("Warning: metrics are not available over JMX: " + e.getMessage());
+  }
 
   //automatically load from recipesautosave.txt if it exists
   try {
-   recipeCollection.loadRecipes("recipesautosave.txt");
+   recipes.loadRecipes("recipesautosave.txt");
   } catch (IOException e) {
     //error message if recipes can't be loaded at startup
    System.out.println("Error loading recipes on startup: " + e.getMessage());
   }
 
+  //autosave each add and modify by appending only the changed recipe to recipesautosave.txt.log
+  //the writes happen in the background, so edits don't wait for the disk
+  MutationLog autosaveLog = null;
+  try {
+   autosaveLog = new MutationLog("recipesautosave.txt");
+   recipeCollection.addChangeListener(autosaveLog);
+  } catch (IOException e) {
+   System.out.println("Warning: autosave is disabled: " + e.getMessage());
+  }
+
   String userCommand = ""; //stores users command
   while (!userCommand.equalsIgnoreCase("exit")) {
    //display menu options to the user
@@ -28,6 +69,7 @@ public class RecipeApp {
    System.out.println("3. Search Recipes");
    System.out.println("4. Sort Recipes");
    System.out.println("5. Modify Recipe");
+   System.out.println("6. Show Metrics");
    System.out.println("Type 'exit' to quit");
    System.out.print("> ");
 
@@ -36,23 +78,28 @@ public class RecipeApp {
    switch (userCommand.toLowerCase()) {
     case "1":
     case "add recipe": //user can choose to type 1 or add recipe
-     addRecipeFlow(recipeCollection, scanner);
+     addRecipeFlow(recipes, scanner);
      break;
     case "2":
     case "view all recipes":
-     viewAllFlow(recipeCollection);
+     viewAllFlow(recipes);
      break;
     case "3":
     case "search recipes":
-     searchRecipeFlow(recipeCollection, scanner);
+     searchRecipeFlow(recipes, scanner);
      break;
     case "4":
     case "sort recipes":
-     sortRecipeFlow(recipeCollection, scanner);
+     sortRecipeFlow(recipes, scanner);
      break;
     case "5":
     case "modify recipe":
-     modifyRecipeFlow(recipeCollection, scanner);
+     modifyRecipeFlow(recipes, scanner);
+     break;
+    case "6":
+    case "show metrics":
+     recipes.dump(System.out);
+     recipeCollection.getQueryCacheMetrics().dump(System.out);
      break;
     case "exit":
      System.out.println("Goodbye!");
@@ -62,6 +109,93 @@ public class RecipeApp {
    }
   }
   scanner.close(); //closes scanner after loop ends
+  if (autosaveLog != null) {
+   try {
+    autosaveLog.close(); //writes any changes still waiting to be saved
+   } catch (IOException e) {
+    System.out.println("Warning: failed to close autosave log: " + e.getMessage());
+   }
+  }
+ }
+
+ private static int runBatch(String commandFile) {
+  //runs a command script without prompts, returns the exit code: 0, or 1 if any line failed
+  //all output, including the collection's own messages, goes through one buffer instead of a write per line
+  PrintStream console = System.out;
+  PrintStream buffered = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024), false);
+  System.setOut(buffered);
+  Writer out = new OutputStreamWriter(buffered);
+  RecipeCollection recipeCollection = new RecipeCollection();
+  int failures;
+  try {
+   recipeCollection.loadRecipes("recipesautosave.txt");
+   //changes reach the autosave log in large appends, one per batch or autosave delay, and the file is
+   //rewritten once at the end
+   MutationLog autosaveLog = new MutationLog("recipesautosave.txt");
+   recipeCollection.addChangeListener(autosaveLog);
+   try (BufferedReader in = commandFile.equals("-")
+                            ? new BufferedReader(new InputStreamReader(System.in), 64 * 1024)
+                            : new BufferedReader(new FileReader(commandFile), 64 * 1024)) {
+    failures = new RecipeBatchRunner(recipeCollection, out).run(in);
+   } finally {
+    autosaveLog.compact();
+    autosaveLog.close();
+   }
+  } catch (IOException e) {
+   System.out.flush();
+   System.err.println("Batch failed: " + e.getMessage());
+   return 1;
+  } finally {
+   System.out.flush();
+   System.setOut(console);
+  }
+  return failures == 0 ? 0 : 1;
+ }
+
+ private static void runServer(int port) {
+  //serves a thread-safe collection to many clients, with the same autosave and metrics as the menu
+  ConcurrentRecipeCollection recipeCollection = new ConcurrentRecipeCollection();
+  InstrumentedRecipeOperations recipes = new InstrumentedRecipeOperations(recipeCollection);
+  try {
+   recipes.registerMBeans("RecipeApp");
+   recipeCollection.getQueryCacheMetrics().registerMBean("RecipeApp");
+  } catch (JMException e) {
+   System.out.println("Warning: metrics are not available over JMX: " + e.getMessage());
+  }
+  try {
+   recipes.loadRecipes("recipesautosave.txt");
+  } catch (IOException e) {
+   System.out.println("Error loading recipes on startup: " + e.getMessage());
+  }
+  MutationLog autosaveLog = null;
+  try {
+   autosaveLog = new MutationLog("recipesautosave.txt");
+   recipeCollection.addChangeListener(autosaveLog);
+  } catch (IOException e) {
+   System.out.println("Warning: autosave is disabled: " + e.getMessage());
+  }
+
+  RecipeServer server;
+  try {
+   server = new RecipeServer(recipes, port);
+  } catch (IOException e) {
+   System.out.println("Error starting the server: " + e.getMessage());
+   return;
+  }
+  MutationLog log = autosaveLog;
+  Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+   //on Ctrl+C: finish the running requests, then write the changes still waiting to be saved
+   server.stop();
+   if (log != null) {
+    try {
+     log.close();
+    } catch (IOException e) {
+     System.out.println("Warning: failed to close autosave log: " + e.getMessage());
+    }
+   }
+  }));
+  server.start();
+  System.out.println("Serving recipes at http://127.0.0.1:" + server.getPort() + "/recipes, press Ctrl+C to stop");
  }
 
  private static void addRecipeFlow(IRecipeOperations recipeCollection, Scanner scanner) {
@@ -148,14 +282,7 @@ public class RecipeApp {
                                 preparationSteps, prepTime, cookTime, difficulty,
                                 rating, notes);
 
-  recipeCollection.addRecipe(newRecipe);//adds recipe to the collection
-
-  //autosave to recipesautosave.txt right after adding
-  try {
-   recipeCollection.exportRecipes("recipesautosave.txt");
-  } catch (IOException e) {
-   System.out.println("Warning: failed to autosave recipe: " + e.getMessage());
-  }
+  recipeCollection.addRecipe(newRecipe);//adds recipe to the collection, the autosave log records it
 
   System.out.println("Recipe added successfully!");
  }
@@ -181,6 +308,8 @@ public class RecipeApp {
   System.out.println("3. Recipe name (exact)");
   System.out.println("4. Recipe name (partial)");
   System.out.println("5. Meal type");
+  System.out.println("6. Recipe name (fuzzy)");
+  System.out.println("7. Steps and notes (full text)");
   System.out.print("> ");
 
   String option = scanner.nextLine().trim().toLowerCase();
@@ -218,6 +347,18 @@ public class RecipeApp {
     String meal = scanner.nextLine();
     results = recipeCollection.searchRecipes("meal type", meal);
     break;
+   case "6":
+   case "recipe name (fuzzy)":
+    System.out.print("Enter recipe name (typos are fine): ");
+    String fuzzyName = scanner.nextLine();
+    results = recipeCollection.searchRecipes("recipe name (fuzzy)", fuzzyName);
+    break;
+   case "7":
+   case "full text":
+    System.out.print("Enter words to find in steps and notes (use quotes for a phrase): ");
+    String text = scanner.nextLine();
+    results = recipeCollection.searchRecipes("full text", text);
+    break;
    default:
     System.out.println("Invalid search option.");
     return;
@@ -364,29 +505,15 @@ public class RecipeApp {
 
    Recipe updatedRecipe = new Recipe(recipeName, cuisine, meal, ingredients, steps,
                                      prepT, cookT, diff, rat, note);
-   recipeCollection.modifyEntireRecipe(target, updatedRecipe);
+   recipeCollection.modifyEntireRecipe(target, updatedRecipe); //the autosave log records the change
    System.out.println("Recipe updated successfully!");
 
-   //autosave after modifying
-   try {
-    recipeCollection.exportRecipes("recipesautosave.txt");
-   } catch (IOException e) {
-    System.out.println("Warning: failed to autosave modified recipe: " + e.getMessage());
-   }
-
   } else {
    //user modifies just one field
    System.out.println("Enter the new value:");
    String newValue = scanner.nextLine(); //reads new value
-   recipeCollection.modifyRecipe(target, field, newValue); //updates specified field
+   recipeCollection.modifyRecipe(target, field, newValue); //updates specified field, the autosave log records it
    System.out.println("Recipe updated successfully!");
-
-   //autosave after modifying
-   try {
-    recipeCollection.exportRecipes("recipesautosave.txt"); //saves recipes to file
-   } catch (IOException e) { //handles errors during saving
-    System.out.println("Warning: failed to autosave modified recipe: " + e.getMessage());
-   }
   }
  }
 }
@@ -0,0 +1,209 @@
+package recipes;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RecipeBatchRunner {
+ //this class runs recipe commands from a script, one per line, with fields separated by |
+ //  add|name|cuisine|meal type|ingredient,ingredient|steps|prep time|cook time|difficulty|rating|notes
+ //  modify|name|field|value            same fields as the Modify Recipe menu, e.g. modify|Pancakes|rating|5
+ //  replace|name|<the ten add fields>  replaces the whole recipe
+ //  search|mode|value                  a searchRecipes mode, or "multiple ingredients" with a comma separated list
+ //  sort|single or multiple|field,field[|offset|limit]
+ //  view
+ //  export|file
+ //  load|file
+ //a | inside a field is written \|, a backslash \\ and a line break \n. blank lines and lines starting with # are skipped
+ //commands that return recipes write each recipe's name on its own line followed by an empty line
+ //runs of adds and of modifies/replaces are applied together with addRecipes and modifyRecipes, so a script
+ //of a million adds is a few hundred batches. a bad line is reported on stderr and the rest of the script still runs
+
+ private static final int BATCH_SIZE = 10_000; //commands collected before a batch is applied
+ private static final List<String> MEAL_TYPES = List.of("breakfast", "lunch", "dinner", "snack");
+ private static final List<String> DIFFICULTIES = List.of("easy", "medium", "hard");
+
+ private final IRecipeOperations recipes;
+ private final Writer out;
+ private final List<Recipe> pendingAdds = new ArrayList<>();
+ private final List<RecipeMutation> pendingMutations = new ArrayList<>();
+ private int failures;
+
+ public RecipeBatchRunner(IRecipeOperations recipes, Writer out) {
+  this.recipes = recipes;
+  this.out = out;
+ }
+
+ public int run(BufferedReader in) throws IOException {
+  //runs every command in the stream and applies what is still collected, returns the number of failed lines
+  String line;
+  int lineNumber = 0;
+  while ((line = in.readLine()) != null) {
+   lineNumber++;
+   if (line.isBlank() || line.startsWith("#")) {
+    continue;
+   }
+   try {
+    execute(split(line));
+   } catch (IllegalArgumentException e) { //includes NumberFormatException
+    failures++;
+    System.err.println("Line " + lineNumber + ": " + e.getMessage());
+   }
+  }
+  applyPending();
+  out.flush();
+  return failures;
+ }
+
+ private void execute(List<String> fields) throws IOException {
+  String command = fields.get(0).trim().toLowerCase();
+  switch (command) {
+   case "add":
+    expect(fields, 11, "add|name|cuisine|meal type|ingredients|steps|prep time|cook time|difficulty|rating|notes");
+    applyPendingMutations(); //keeps the script's order
+    pendingAdds.add(recipeFrom(fields, 1));
+    if (pendingAdds.size() >= BATCH_SIZE) {
+     applyPendingAdds();
+    }
+    break;
+   case "modify":
+    expect(fields, 4, "modify|name|field|value");
+    if (!RecipeCollection.applyField(new Recipe(), fields.get(2), fields.get(3))) { //also checks numbers now
+     throw new IllegalArgumentException("Unknown field " + fields.get(2));
+    }
+    queueMutation(new RecipeMutation(fields.get(1), fields.get(2), fields.get(3)));
+    break;
+   case "replace":
+    expect(fields, 12, "replace|name|<the ten add fields>");
+    queueMutation(new RecipeMutation(fields.get(1), recipeFrom(fields, 2)));
+    break;
+   case "search":
+    expect(fields, 3, "search|mode|value");
+    applyPending();
+    if (fields.get(1).equalsIgnoreCase("multiple ingredients")) {
+     writeNames(recipes.searchRecipesMultipleIngredients(Arrays.asList(fields.get(2).split(","))));
+    } else {
+     writeNames(recipes.searchRecipes(fields.get(1), fields.get(2)));
+    }
+    break;
+   case "sort":
+    if (fields.size() != 3 && fields.size() != 5) {
+     throw new IllegalArgumentException("Expected sort|single or multiple|fields[|offset|limit]");
+    }
+    applyPending();
+    String[] sortFields = fields.get(2).split(",");
+    if (fields.size() == 5) {
+     writeNames(recipes.sortRecipesPage(Integer.parseInt(fields.get(3).trim()), Integer.parseInt(fields.get(4).trim()),
+                                        fields.get(1), sortFields));
+    } else {
+     writeNames(recipes.sortRecipes(fields.get(1), sortFields));
+    }
+    break;
+   case "view":
+    applyPending();
+    writeNames(recipes.viewAllRecipes());
+    break;
+   case "export":
+    expect(fields, 2, "export|file");
+    applyPending();
+    out.flush(); //the collection prints its own message, after the results before it
+    recipes.exportRecipes(fields.get(1));
+    break;
+   case "load":
+    expect(fields, 2, "load|file");
+    applyPending();
+    out.flush();
+    recipes.loadRecipes(fields.get(1));
+    break;
+   default:
+    throw new IllegalArgumentException("Unknown command " + fields.get(0));
+  }
+ }
+
+ private void queueMutation(RecipeMutation mutation) {
+  applyPendingAdds(); //a modify may target a recipe added just before it
+  pendingMutations.add(mutation);
+  if (pendingMutations.size() >= BATCH_SIZE) {
+   applyPendingMutations();
+  }
+ }
+
+ private void applyPending() {
+  applyPendingAdds();
+  applyPendingMutations();
+ }
+
+ private void applyPendingAdds() {
+  if (!pendingAdds.isEmpty()) {
+   recipes.addRecipes(pendingAdds);
+   pendingAdds.clear();
+  }
+ }
+
+ private void applyPendingMutations() {
+  if (!pendingMutations.isEmpty()) {
+   recipes.modifyRecipes(pendingMutations);
+   pendingMutations.clear();
+  }
+ }
+
+ private void writeNames(List<Recipe> results) throws IOException {
+  for (Recipe recipe : results) {
+   out.write(String.valueOf(recipe.getRecipeName()));
+   out.write('\n');
+  }
+  out.write('\n');
+ }
+
+ private static Recipe recipeFrom(List<String> fields, int from) {
+  //the ten recipe fields starting at from, in the order of the add command, checked like the Add Recipe menu does
+  String mealType = fields.get(from + 2).trim().toLowerCase();
+  if (!MEAL_TYPES.contains(mealType)) {
+   throw new IllegalArgumentException("Meal type must be breakfast, lunch, dinner or snack");
+  }
+  List<String> ingredients = new ArrayList<>();
+  for (String ingredient : fields.get(from + 3).split(",")) {
+   ingredients.add(ingredient.trim().toLowerCase());
+  }
+  String difficulty = fields.get(from + 7).trim().toLowerCase();
+  if (!DIFFICULTIES.contains(difficulty)) {
+   throw new IllegalArgumentException("Difficulty must be easy, medium or hard");
+  }
+  int rating = Integer.parseInt(fields.get(from + 8).trim());
+  if (rating < 1 || rating > 5) {
+   throw new IllegalArgumentException("Rating must be between 1 and 5");
+  }
+  return new Recipe(fields.get(from), fields.get(from + 1), mealType, ingredients, fields.get(from + 4),
+                    Integer.parseInt(fields.get(from + 5).trim()), Integer.parseInt(fields.get(from + 6).trim()),
+                    difficulty, rating, fields.get(from + 9));
+ }
+
+ private static void expect(List<String> fields, int count, String usage) {
+  if (fields.size() != count) {
+   throw new IllegalArgumentException("Expected " + usage);
+  }
+ }
+
+ static List<String> split(String line) {
+  //the fields of a line, undoing the \| \\ and \n escapes
+  List<String> fields = new ArrayList<>();
+  StringBuilder field = new StringBuilder();
+  for (int i = 0; i < line.length(); i++) {
+   char c = line.charAt(i);
+   if (c == '\\' && i + 1 < line.length()) {
+    char next = line.charAt(++i);
+    field.append(next == 'n' ? '\n' : next);
+   } else if (c == '|') {
+    fields.add(field.toString());
+    field.setLength(0);
+   } else {
+    field.append(c);
+   }
+  }
+  fields.add(field.toString());
+  return fields;
+ }
+}
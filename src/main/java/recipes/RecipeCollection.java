@@ -0,0 +1,809 @@
+package recipes;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+public class RecipeCollection implements IRecipeOperations {
+ //this class implements the IRecipeOperations interface and stores all recipes in a list
+
+ private static final long PARALLEL_LOAD_THRESHOLD = 1024 * 1024; //files from 1 MB up are parsed in parallel
+
+ private List<Recipe> recipes;
+ private IngredientIndex ingredientIndex; //finds recipes by ingredient without scanning every recipe
+ private NameIndex nameIndex; //finds recipes by name for exact searches and edits
+ private NameSearchIndex nameSearchIndex; //lower-cased names and their trigrams for partial and fuzzy searches
+ private FullTextIndex fullTextIndex; //words of the preparation steps and notes for ranked text search
+ private BitmapIndex mealTypeIndex; //bitmaps for filtering on the low cardinality fields
+ private BitmapIndex difficultyIndex;
+ private BitmapIndex cuisineIndex;
+ private Map<String, SortedView> sortedViews; //recipe positions kept in order for each sort field
+ private RecipeColumns columns; //numeric fields as arrays for range filters and sorting
+ private Map<String, SortPlan> sortPlans; //compiled sort specs
+ private List<IRecipeChangeListener> listeners; //told about every add and modify, e.g. the mutation log
+ private QueryPlanner planner; //picks the order to apply query criteria in from the index sizes
+ private QueryCache queryCache; //results of repeated searches and sorts until the next change
+ private QueryCacheMetrics cacheMetrics;
+ private long version; //bumped by every change, cached results from an older version are dropped
+
+ public RecipeCollection() {
+  this(new QueryCacheMetrics());
+ }
+
+ RecipeCollection(QueryCacheMetrics cacheMetrics) {
+  //cacheMetrics can be shared, e.g. by the two copies of a ConcurrentRecipeCollection
+  this.recipes = new ArrayList<>();
+  this.ingredientIndex = new IngredientIndex();
+  this.nameIndex = new NameIndex(position -> recipes.get(position).getRecipeName());
+  this.nameSearchIndex = new NameSearchIndex();
+  this.fullTextIndex = new FullTextIndex();
+  this.mealTypeIndex = new BitmapIndex();
+  this.difficultyIndex = new BitmapIndex();
+  this.cuisineIndex = new BitmapIndex();
+  this.columns = new RecipeColumns();
+  this.sortPlans = new ConcurrentHashMap<>(); //read operations add to it, so it must be safe for concurrent readers
+  this.sortedViews = new HashMap<>();
+  for (String field : List.of("preptime", "cooktime", "rating", "difficulty")) {
+   sortedViews.put(field, SortedView.forField(field));
+  }
+  this.listeners = new ArrayList<>();
+  this.planner = new QueryPlanner(ingredientIndex, nameIndex, nameSearchIndex, mealTypeIndex, difficultyIndex,
+                                  cuisineIndex, columns);
+  this.queryCache = new QueryCache(cacheMetrics);
+  this.cacheMetrics = cacheMetrics;
+ }
+
+ public QueryCacheMetrics getQueryCacheMetrics() {
+  //hit and miss counts of the search and sort result cache
+  return cacheMetrics;
+ }
+
+ void setQueryCacheEnabled(boolean enabled) {
+  //without the cache every search and sort is computed, e.g. to measure the queries themselves
+  queryCache = enabled ? new QueryCache(cacheMetrics) : null;
+ }
+
+ public void addChangeListener(IRecipeChangeListener listener) {
+  //registers a listener that is called after each recipe is added or modified
+  if (listener != null) {
+   listeners.add(listener);
+  }
+ }
+
+ @Override
+ public void addRecipe(Recipe recipe) {
+  //adds a new recipe if it's not null. null = no object in memory or absence of value
+  if (recipe != null) {
+   insert(recipe);
+   notifyAdded(recipes.size() - 1, recipe);
+  }
+ }
+
+ @Override
+ public void addRecipes(Collection<Recipe> newRecipes) {
+  //adds every recipe that isn't null, then tells the listeners about the whole batch at once so it is saved once
+  int first = recipes.size();
+  for (Recipe recipe : newRecipes) {
+   if (recipe != null) {
+    insert(recipe);
+   }
+  }
+  notifyAdded(first);
+ }
+
+ private void insert(Recipe recipe) {
+  //appends the recipe and indexes it without telling the listeners
+  recipes.add(recipe);
+  index(recipes.size() - 1, recipe);
+ }
+
+ private void replace(int position, Recipe recipe) {
+  //swaps the recipe at a position and reindexes it without telling the listeners
+  recipes.set(position, recipe);
+  index(position, recipe);
+ }
+
+ private void index(int position, Recipe recipe) {
+  //updates every index for the recipe at this position. every add, modify and load goes through here,
+  //so this is also where the version moves on and the cached results go stale
+  version++;
+  ingredientIndex.update(position, recipe.getIngredientIds());
+  nameIndex.update(position, recipe.getRecipeName());
+  nameSearchIndex.update(position, recipe.getRecipeName());
+  fullTextIndex.update(position, recipe.getPreparationSteps(), recipe.getNotes());
+  mealTypeIndex.update(position, recipe.getMealType());
+  difficultyIndex.update(position, recipe.getDifficulty());
+  cuisineIndex.update(position, recipe.getCuisineType());
+  for (SortedView view : sortedViews.values()) {
+   view.update(position, recipe);
+  }
+  columns.update(position, recipe);
+ }
+
+ private void notifyChanged(int position, Recipe recipe) {
+  for (IRecipeChangeListener listener : listeners) {
+   listener.recipeChanged(position, recipe);
+  }
+ }
+
+ private void notifyChanged(int[] positions) {
+  //reports a batch of changed positions with their current recipes
+  if (positions.length == 0 || listeners.isEmpty()) {
+   return;
+  }
+  List<Recipe> changed = new ArrayList<>(positions.length);
+  for (int position : positions) {
+   changed.add(recipes.get(position));
+  }
+  for (IRecipeChangeListener listener : listeners) {
+   listener.recipesChanged(positions, changed);
+  }
+ }
+
+ private void notifyAdded(int position, Recipe recipe) {
+  for (IRecipeChangeListener listener : listeners) {
+   listener.recipeAdded(position, recipe);
+  }
+ }
+
+ private void notifyAdded(int first) {
+  //reports every recipe appended from position first on as one batch of adds
+  if (first == recipes.size() || listeners.isEmpty()) {
+   return;
+  }
+  int[] positions = new int[recipes.size() - first];
+  for (int i = 0; i < positions.length; i++) {
+   positions[i] = first + i;
+  }
+  List<Recipe> added = new ArrayList<>(recipes.subList(first, recipes.size()));
+  for (IRecipeChangeListener listener : listeners) {
+   listener.recipesAdded(positions, added);
+  }
+ }
+
+ @Override
+ public List<Recipe> viewAllRecipes() {
+  //returns a read-only list
+  return Collections.unmodifiableList(recipes);
+ }
+
+ @Override
+ public List<Recipe> searchRecipes(String searchOption, String userInput) {
+  //search by various criteria, repeated searches are answered from the query cache
+  List<Recipe> results = new ArrayList<>();
+  if (searchOption == null || userInput == null) return results;
+  return recipesAt(searchPositions(searchOption, userInput));
+ }
+
+ int[] searchPositions(String searchOption, String userInput) {
+  //positions found by a searchRecipes mode: ranked modes best first, the others in position order
+  //the cache key holds the input the way the mode compares it, so e.g. "Pancakes" and "pancakes" share a result
+  String mode = searchOption.toLowerCase();
+  String key;
+  switch (mode) {
+   case "recipe name (exact)":
+   case "meal type":
+    key = NameIndex.fold(userInput); //compared ignoring case, but surrounding spaces count
+    break;
+   case "recipe name (partial)":
+    key = userInput.toLowerCase();
+    break;
+   case "recipe name (fuzzy)":
+   case "single ingredient":
+   case "full text":
+    key = userInput.trim().toLowerCase();
+    break;
+   default:
+    return new int[0]; //unrecognized search option
+  }
+  return cachedPositions(mode + '\0' + key, () -> runSearch(mode, userInput));
+ }
+
+ private int[] runSearch(String mode, String userInput) {
+  switch (mode) {
+   case "recipe name (fuzzy)":
+    //closest names first, tolerating typos such as "chiken"
+    return nameSearchIndex.fuzzy(userInput, NameSearchIndex.FUZZY_LIMIT);
+   case "full text":
+    //best matches in the preparation steps and notes first, "quoted words" must appear as a phrase
+    return fullTextIndex.search(userInput, FullTextIndex.RESULT_LIMIT);
+   default:
+    return planner.run(RecipeQuery.forSearchOption(mode, userInput)).stream().toArray();
+  }
+ }
+
+ @Override
+ public List<Recipe> searchRecipesMultipleIngredients(List<String> ingredientsList) {
+    List<Recipe> results = new ArrayList<>();
+    if (ingredientsList == null || ingredientsList.isEmpty()) return results;
+
+    return recipesAt(ingredientPositions(ingredientsList));
+ }
+
+ int[] ingredientPositions(List<String> ingredientsList) {
+  //every term has to match, the planner starts from the rarest one
+  RecipeQuery query = new RecipeQuery().withIngredients(ingredientsList); //trims and lower-cases the terms
+  return cachedPositions("ingredients\0" + String.join("\0", query.getIngredients()),
+                         () -> planner.run(query).stream().toArray());
+ }
+
+ private int[] cachedPositions(String key, Supplier<int[]> query) {
+  //runs the query unless its positions are cached for the current version
+  QueryCache cache = queryCache;
+  if (cache == null) {
+   return query.get();
+  }
+  long current = version;
+  int[] positions = cache.get(key, current);
+  if (positions == null) {
+   positions = query.get();
+   cache.put(key, current, positions);
+  }
+  return positions;
+ }
+
+ long[] fuzzyRanked(String userInput, int limit) {
+  //the fuzzy matches with their ranks, for merging with other collections' matches
+  return nameSearchIndex.fuzzyRanked(userInput, limit);
+ }
+
+ FullTextIndex.Statistics fullTextStatistics(String userInput) {
+  return fullTextIndex.statistics(userInput);
+ }
+
+ long[] fullTextRanked(String userInput, int limit, FullTextIndex.Statistics corpus) {
+  //the full text matches with their scores, weighed with the given statistics instead of this collection's own
+  return fullTextIndex.ranked(userInput, limit, corpus);
+ }
+
+ int firstPosition(String recipeName) {
+  //position of the first recipe with this name, or -1
+  return nameIndex.first(recipeName);
+ }
+
+ Recipe get(int position) {
+  return recipes.get(position);
+ }
+
+ RecipeColumns columns() {
+  return columns;
+ }
+
+ private List<Recipe> recipesAt(int[] positions) {
+  List<Recipe> results = new ArrayList<>(positions.length);
+  for (int position : positions) {
+   results.add(recipes.get(position));
+  }
+  return results;
+ }
+
+ @Override
+ public List<Recipe> searchRecipes(RecipeQuery query) {
+  //returns the recipes matching every criterion of the query, in the order they were added
+  List<Recipe> results = new ArrayList<>();
+  if (query == null) return results;
+
+  return recipesAt(queryPositions(query));
+ }
+
+ int[] queryPositions(RecipeQuery query) {
+  return planner.run(query).stream().toArray();
+ }
+
+ public List<Recipe> filterRecipes(Collection<String> mealTypes, Collection<String> difficulties,
+                                   Collection<String> cuisines) {
+  //returns recipes matching any of the meal types AND any of the difficulties AND any of the cuisines
+  //a null or empty collection leaves that field unfiltered, e.g. dinner AND easy AND Italian:
+  //filterRecipes(List.of("dinner"), List.of("easy"), List.of("italian"))
+  RecipeQuery query = new RecipeQuery();
+  if (mealTypes != null) {
+   query.withMealType(mealTypes);
+  }
+  if (difficulties != null) {
+   query.withDifficulty(difficulties);
+  }
+  if (cuisines != null) {
+   query.withCuisine(cuisines);
+  }
+  return searchRecipes(query);
+ }
+
+ public List<Recipe> filterByRange(int minPrepTime, int maxPrepTime, int minCookTime, int maxCookTime,
+                                   int minRating, int maxRating) {
+  //returns recipes whose prep time, cook time and rating are all inside the inclusive ranges
+  //e.g. a quick weeknight dinner: filterByRange(0, Integer.MAX_VALUE, 0, 30, 4, 5)
+  return searchRecipes(new RecipeQuery().withPrepTime(minPrepTime, maxPrepTime)
+                                        .withCookTime(minCookTime, maxCookTime)
+                                        .withRating(minRating, maxRating));
+ }
+
+ @Override
+ public List<Recipe> sortRecipes(String sortChoice, String... fields) {
+  //returns a new list that is sorted, leaving the original list unchanged
+  return recipesAt(sortPositions(SortPlan.specsFor(sortChoice, fields)));
+ }
+
+ int[] sortPositions(String[] specs) {
+  return cachedPositions("sort\0" + specKey(specs), () -> planFor(specs).sort(columns));
+ }
+
+ SortPlan planFor(String[] specs) {
+  //plans are compiled once per spec and reused
+  String key = specKey(specs);
+  SortPlan plan = sortPlans.get(key);
+  if (plan == null) {
+   if (sortPlans.size() >= 64) {
+    sortPlans.clear(); //only a handful of specs are ever used, this just bounds the map
+   }
+   plan = SortPlan.compile(specs);
+   sortPlans.put(key, plan);
+  }
+  return plan;
+ }
+
+ private static String specKey(String[] specs) {
+  return String.join(",", specs).toLowerCase();
+ }
+
+ @Override
+ public List<Recipe> sortRecipesPage(int offset, int limit, String sortChoice, String... fields) {
+  //returns up to limit recipes starting at offset in sorted order
+  //one or two fields in their default direction walk the maintained sorted views, so only the recipes up to
+  //the end of the page are visited. other specs are sorted in full by the compiled plan
+  if (offset < 0 || limit <= 0) {
+   return new ArrayList<>();
+  }
+  return recipesAt(pagePositions(offset, limit, SortPlan.specsFor(sortChoice, fields)));
+ }
+
+ int[] pagePositions(int offset, int limit, String[] specs) {
+  return cachedPositions("page\0" + specKey(specs) + '\0' + offset + '\0' + limit,
+                         () -> sortedPage(offset, limit, specs));
+ }
+
+ private int[] sortedPage(int offset, int limit, String[] specs) {
+  IntList page = new IntList();
+  long end = (long) offset + limit;
+  SortPlan plan = planFor(specs);
+  if (plan.isEmpty() || plan.fieldCount() > 2 || plan.hasExplicitDirection()) {
+   int[] order = plan.sort(columns);
+   for (int i = offset; i < order.length && i < end; i++) {
+    page.add(order[i]);
+   }
+   return page.toArray();
+  }
+  SortedView first = sortedViews.get(plan.fieldName(0));
+  SortedView second = plan.fieldCount() == 2 ? sortedViews.get(plan.fieldName(1)) : null;
+
+  PrimitiveIterator.OfLong entries = first.iterator();
+  int seen = 0;
+  if (second == null) {
+   while (entries.hasNext() && seen < end) {
+    long entry = entries.nextLong();
+    if (seen >= offset) {
+     page.add(SortedView.positionOf(entry));
+    }
+    seen++;
+   }
+   return page.toArray();
+  }
+
+  //walks groups with the same first key and orders only the groups that reach into the page by the second key
+  long[] group = new long[16];
+  int groupSize = 0;
+  int groupKey = 0;
+  while (seen < end) {
+   boolean more = entries.hasNext();
+   long entry = more ? entries.nextLong() : 0;
+   if (groupSize > 0 && (!more || SortedView.keyOf(entry) != groupKey)) {
+    if (seen + groupSize > offset) {
+     Arrays.sort(group, 0, groupSize);
+     for (int g = 0; g < groupSize && seen < end; g++, seen++) {
+      if (seen >= offset) {
+       page.add(SortedView.positionOf(group[g]));
+      }
+     }
+    } else {
+     seen += groupSize; //whole group is before the page
+    }
+    groupSize = 0;
+   }
+   if (!more) {
+    break;
+   }
+   groupKey = SortedView.keyOf(entry);
+   int position = SortedView.positionOf(entry);
+   if (groupSize == group.length) {
+    group = Arrays.copyOf(group, groupSize * 2);
+   }
+   group[groupSize++] = SortedView.pack(second.keyAt(position), position);
+  }
+  return page.toArray();
+ }
+
+ @Override
+ public void modifyRecipe(String targetRecipeName, String fieldToModify, String newValue) {
+  //updates a single field in the matching recipe
+  int i = nameIndex.first(targetRecipeName); //looks up the first recipe with a matching name
+  if (i < 0) {
+   return; //no recipe with that name
+  }
+  Recipe recipe = recipes.get(i);
+  if (!applyField(recipe, fieldToModify, newValue)) {
+   return; //field not recognized, nothing changed
+  }
+  index(i, recipe); //moves the recipe in whichever indexes the field affects
+  notifyChanged(i, recipe);
+ }
+
+ static boolean applyField(Recipe recipe, String fieldToModify, String newValue) {
+  //sets one field from its text value, returns false if the field name is not recognized
+  switch (fieldToModify.toLowerCase()) { //determines which field to update
+   case "recipename": //if field is recipe name
+    recipe.setRecipeName(newValue); //updates the recipe name
+    break;
+   case "cuisinetype":
+    recipe.setCuisineType(newValue);
+    break;
+   case "mealtype":
+    recipe.setMealType(newValue);
+    break;
+   case "preparationsteps":
+    recipe.setPreparationSteps(newValue);
+    break;
+   case "notes":
+    recipe.setNotes(newValue);
+    break;
+   case "difficulty":
+    recipe.setDifficulty(newValue);
+    break;
+   case "rating":
+    recipe.setRating(Integer.parseInt(newValue));
+    break;
+   case "preptime":
+    recipe.setPrepTime(Integer.parseInt(newValue));
+    break;
+   case "cooktime":
+    recipe.setCookTime(Integer.parseInt(newValue));
+    break;
+   case "ingredients":
+    recipe.setIngredients(List.of(newValue.split(",")));
+    break;
+   default: //if field is not recognized
+    return false; //do nothing
+  }
+  return true;
+ }
+
+ @Override
+ public void modifyEntireRecipe(String targetRecipeName, Recipe newRecipeData) {
+  //replaces the entire recipe object with new data
+  int i = nameIndex.first(targetRecipeName); //looks up the first recipe with a matching name
+  if (i >= 0 && newRecipeData != null) {
+   replace(i, newRecipeData); //replaces old recipe with new one
+   notifyChanged(i, newRecipeData);
+  }
+ }
+
+ @Override
+ public void modifyRecipes(List<RecipeMutation> mutations) {
+  modifyRecipes(mutations, false);
+ }
+
+ void modifyRecipes(List<RecipeMutation> mutations, boolean copyOnWrite) {
+  //applies the changes in order, each finding its recipe by name after the ones before it, like calling
+  //modifyRecipe and modifyEntireRecipe in turn. the listeners hear about each changed position once, at the end
+  //copyOnWrite changes a copy of the recipe instead of the object itself, for ConcurrentRecipeCollection
+  IntList changed = new IntList();
+  BitSet seen = new BitSet();
+  try {
+   for (RecipeMutation mutation : mutations) {
+    int i = nameIndex.first(mutation.getTargetRecipeName());
+    if (i < 0) {
+     continue; //no recipe with that name
+    }
+    Recipe recipe;
+    if (mutation.isReplacement()) {
+     recipe = mutation.getNewRecipeData();
+     if (recipe == null) {
+      continue;
+     }
+    } else {
+     recipe = copyOnWrite ? new Recipe(recipes.get(i)) : recipes.get(i);
+     if (!applyField(recipe, mutation.getFieldToModify(), mutation.getNewValue())) {
+      continue; //field not recognized
+     }
+    }
+    replace(i, recipe);
+    if (!seen.get(i)) {
+     seen.set(i);
+     changed.add(i);
+    }
+   }
+  } finally {
+   //changes made before a bad value, e.g. a rating that isn't a number, are still saved
+   notifyChanged(changed.toArray());
+  }
+ }
+
+ @Override
+ public void exportRecipes(String fileName) throws IOException {
+  //writes all recipes to a file, in the binary snapshot format if the name ends in ".bin"
+  writeRecipeFile(recipes, new File(fileName));
+  if (recipes.isEmpty()) { //checks if there are no recipes
+   System.out.println("No recipes to export, file cleared: " + fileName);
+   return;
+  }
+  System.out.println("Recipes exported successfully to " + fileName);
+ }
+
+ static void writeRecipeFile(List<Recipe> list, File file) throws IOException {
+  //writes the recipes in the format matching the file's extension
+  if (BinaryRecipeFormat.isBinary(file.getName())) {
+   BinaryRecipeFormat.write(list, file);
+   return;
+  }
+  if (PagedRecipeStore.isPaged(file.getName())) {
+   PagedRecipeStore.write(list, file);
+   return;
+  }
+  try (FileOutputStream stream = new FileOutputStream(file);
+       FileChannel channel = stream.getChannel()) {
+   //opens file for writing, an empty list just clears the file
+   writeRecipes(list, channel);
+  }
+ }
+
+ @Override
+ public void exportRecipes(Writer writer) throws IOException {
+  //streams all recipes in the text format to the writer, which is flushed but left open
+  writeRecipes(recipes, writer);
+ }
+
+ @Override
+ public void exportRecipes(OutputStream out, boolean compress) throws IOException {
+  //streams all recipes in the text format to the stream, gzipped if asked, the stream is left open
+  writeRecipes(recipes, out, compress);
+ }
+
+ @Override
+ public void exportRecipes(WritableByteChannel channel) throws IOException {
+  //streams all recipes in the text format to the channel, which is left open
+  writeRecipes(recipes, channel);
+ }
+
+ static void writeRecipes(List<Recipe> list, Writer writer) throws IOException {
+  //writes recipes in the autosave text format
+  RecipeTextEncoder encoder = new RecipeTextEncoder(writer);
+  for (Recipe r : list) {//loops through all recipes
+   encoder.write(r);//writes the details and the separator between the recipes
+  }
+  encoder.finish();
+ }
+
+ static void writeRecipes(List<Recipe> list, WritableByteChannel channel) throws IOException {
+  //same text encoded in the default charset, like the file export
+  RecipeTextEncoder encoder = new RecipeTextEncoder(channel, Charset.defaultCharset());
+  for (Recipe r : list) {
+   encoder.write(r);
+  }
+  encoder.finish();
+ }
+
+ static void writeRecipes(List<Recipe> list, OutputStream out, boolean compress) throws IOException {
+  if (!compress) {
+   writeRecipes(list, Channels.newChannel(out));
+   out.flush();
+   return;
+  }
+  GZIPOutputStream gzip = new GZIPOutputStream(out, 1 << 16);
+  writeRecipes(list, Channels.newChannel(gzip));
+  gzip.finish(); //writes the gzip trailer without closing the caller's stream
+  out.flush();
+ }
+
+ @Override
+ public void loadRecipes(String fileName) throws IOException {
+  //reads recipes from the file and appends them to the internal list
+  List<Recipe> loaded = readRecipes(fileName);
+  if (loaded == null) {
+   //if file doesn't exist, informs user and exits
+   System.out.println("No autosave file found, starting with an empty collection.");
+   return;
+  }
+  addLoaded(loaded);
+  System.out.println("Loaded recipes from " + fileName);
+ }
+
+ void addLoaded(List<Recipe> loaded) {
+  //appends recipes that came from a file. the listeners hear about them as one batch of adds, so a file loaded
+  //after the autosave log is attached is saved too. at startup nothing is attached yet and nothing is written
+  int first = recipes.size();
+  for (Recipe recipe : loaded) {
+   insert(recipe);
+  }
+  notifyAdded(first);
+ }
+
+ static List<Recipe> readRecipes(String fileName) throws IOException {
+  //reads the file and replays its mutation log, returns null if neither exists
+  File file = new File(fileName);
+  if (!file.exists() && !MutationLog.exists(fileName)) {
+   return null;
+  }
+  List<Recipe> loaded = file.exists() ? readRecipeFile(file) : new ArrayList<>();
+
+  //replays adds and modifications appended since the file was last written in full. if any entry couldn't be
+  //applied the file and the log no longer agree, so what was recovered is written as a fresh snapshot and the
+  //log is set aside, otherwise later modifications would be logged against the wrong positions
+  if (MutationLog.replay(fileName, loaded) > 0) {
+   MutationLog.rewriteSnapshot(fileName, loaded);
+  }
+  return loaded;
+ }
+
+ static List<Recipe> readRecipeFile(File file) throws IOException {
+  //binary snapshots and page files are decoded directly, large text files are split at separators and parsed on all cores,
+  //small ones are read line by line
+  if (BinaryRecipeFormat.isBinary(file.getName())) {
+   return BinaryRecipeFormat.read(file);
+  }
+  if (PagedRecipeStore.isPaged(file.getName())) {
+   return PagedRecipeStore.read(file);
+  }
+  if (file.length() >= PARALLEL_LOAD_THRESHOLD && ParallelRecipeLoader.canLoad(file)) {
+   return ParallelRecipeLoader.load(file);
+  }
+  List<Recipe> loaded = new ArrayList<>();
+  readTextRecipes(file, loaded::add);
+  return loaded;
+ }
+
+ static void readTextRecipes(File file, Consumer<Recipe> sink) throws IOException {
+  //reads the text format line by line, handing each recipe over as soon as it is parsed
+  int skipped = 0; //chunks with text but no recipe name
+  try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+   String line; //opens file and stores each line read from it
+   List<String> chunk = new ArrayList<>();
+   //we accumulate lines for a single recipe until "----------------------"
+   //separator line between recipes
+
+   while ((line = reader.readLine()) != null) { //reads lines until end of file
+    if (line.trim().equals("----------------------")) { //checks for separators
+     //parse the chunk as a single recipe
+     Recipe parsed = parseRecipeChunk(chunk);
+     if (parsed != null) { //checks of parsing was successful
+      sink.accept(parsed); //hands the parsed recipe over
+     } else if (!isBlank(chunk)) {
+      skipped++;
+     }
+     chunk.clear(); //clears chunk for next recipe
+    } else {
+     chunk.add(line);
+    }
+   }
+   //if there's any leftover chunk, parse it
+   if (!chunk.isEmpty()) {
+    Recipe parsed = parseRecipeChunk(chunk);
+    if (parsed != null) {
+     sink.accept(parsed);
+    } else if (!isBlank(chunk)) {
+     skipped++;
+    }
+   }
+  }
+  warnSkipped(file, skipped);
+ }
+
+ static void warnSkipped(File file, int skipped) {
+  //one warning per file for the chunks that couldn't be read as recipes, the same for the serial and parallel readers
+  if (skipped > 0) {
+   System.out.println("Warning: skipped " + skipped + (skipped == 1 ? " recipe" : " recipes")
+                      + " without a name in " + file.getName());
+  }
+ }
+
+ static boolean isBlank(List<String> lines) {
+  for (String line : lines) {
+   if (!line.isBlank()) {
+    return false;
+   }
+  }
+  return true;
+ }
+
+ static Recipe parseRecipeChunk(List<String> lines) {
+  //parses lines of text that match the toString() output of a recipe
+
+  String recipeName = null; //stores each type, e.g. recipename, cuisine, etc
+  String cuisine = null;
+  String mealType = null;
+  List<String> ingList = new ArrayList<>();
+  String steps = null;
+  int prepT = 0;
+  int cookT = 0;
+  String diff = null;
+  int rat = 0;
+  String note = null;
+
+  for (String l : lines) { //loops through all lines
+   l = l.trim(); //removes extra spaces
+   if (l.startsWith("Recipe Name:")) {
+       //checking the start of each line
+    recipeName = l.substring("Recipe Name:".length()).trim();
+   } else if (l.startsWith("Cuisine:")) {
+    cuisine = l.substring("Cuisine:".length()).trim();
+   } else if (l.startsWith("Meal Type:")) {
+    mealType = l.substring("Meal Type:".length()).trim().toLowerCase();
+   } else if (l.startsWith("Ingredients:")) {
+    //extract raw ingredient string
+    String raw = l.substring("Ingredients:".length()).trim();
+    //remove square brackets if present
+    raw = raw.replaceAll("\\[|\\]", "");
+    String[] splitted = raw.split(","); //splits the ingredients
+    for (String s : splitted) { //loops through each ingredient
+     ingList.add(s.trim().toLowerCase()); //adds the ingredient to a list
+    }
+   } else if (l.startsWith("Preparation Steps:")) {
+    steps = l.substring("Preparation Steps:".length()).trim();
+   } else if (l.startsWith("Prep Time:")) { //check if line starts with prep time
+    String tmp = l.substring("Prep Time:".length()).trim(); //extracts the time
+    tmp = tmp.replace(" minutes", "").trim(); //removes minutes text
+    try {
+     prepT = Integer.parseInt(tmp); //converts the string to an int
+    } catch (NumberFormatException e) {
+     prepT = 0; //sets to 0 if conversion fails
+    }
+   } else if (l.startsWith("Cook Time:")) {
+    String tmp = l.substring("Cook Time:".length()).trim();
+    tmp = tmp.replace(" minutes", "").trim();
+    try {
+     cookT = Integer.parseInt(tmp);
+    } catch (NumberFormatException e) {
+     cookT = 0; 
+    }
+   } else if (l.startsWith("Difficulty:")) {
+    diff = l.substring("Difficulty:".length()).trim().toLowerCase();
+   } else if (l.startsWith("Rating:")) {
+    String tmp = l.substring("Rating:".length()).trim();
+    try {
+     rat = Integer.parseInt(tmp);
+    } catch (NumberFormatException e) {
+     rat = 0;
+    }
+   } else if (l.startsWith("Notes:")) {
+    note = l.substring("Notes:".length()).trim();
+   }
+  }
+
+  if (recipeName == null) { //checks if recipe name is missing
+   return null; //returns null if the recipe is invalid
+  }
+  //an empty name is kept, it can be added from the menu, and dropping it would shift every recipe after it
+  //create and returns a new recipe object with the extracted details
+  Recipe loaded = new Recipe(recipeName, cuisine, mealType, ingList, steps,
+                             prepT, cookT, diff, rat, note);
+  return loaded;
+ }
+}
\ No newline at end of file
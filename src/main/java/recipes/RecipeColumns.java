@@ -0,0 +1,78 @@
+package recipes;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+class RecipeColumns {
+ //struct-of-arrays copy of the numeric recipe fields, one array per field indexed by recipe position
+ //range filters scan these arrays in tight loops instead of following pointers to every Recipe object
+
+ private int[] prepTimes = new int[16];
+ private int[] cookTimes = new int[16];
+ private int[] ratings = new int[16];
+ private byte[] difficulties = new byte[16]; //easy 0, medium 1, hard 2, anything else -1
+ private int size;
+
+ void update(int position, Recipe recipe) {
+  //copies the numeric fields of the recipe at this position
+  if (position == size) {
+   if (size == prepTimes.length) {
+    int capacity = size * 2;
+    prepTimes = Arrays.copyOf(prepTimes, capacity);
+    cookTimes = Arrays.copyOf(cookTimes, capacity);
+    ratings = Arrays.copyOf(ratings, capacity);
+    difficulties = Arrays.copyOf(difficulties, capacity);
+   }
+   size++;
+  }
+  prepTimes[position] = recipe.getPrepTime();
+  cookTimes[position] = recipe.getCookTime();
+  ratings[position] = recipe.getRating();
+  difficulties[position] = (byte) SortedView.difficultyRank(recipe.getDifficulty());
+ }
+
+ int size() {
+  return size;
+ }
+
+ int prepTime(int position) {
+  return prepTimes[position];
+ }
+
+ int cookTime(int position) {
+  return cookTimes[position];
+ }
+
+ int rating(int position) {
+  return ratings[position];
+ }
+
+ int difficulty(int position) {
+  return difficulties[position];
+ }
+
+ BitSet scan(int minPrepTime, int maxPrepTime, int minCookTime, int maxCookTime,
+             int minRating, int maxRating, int minDifficulty, int maxDifficulty) {
+  //returns the positions where every field is inside its inclusive range
+  //each block of 64 rows is folded into one long without branches, which the JIT can unroll and vectorise
+  long[] words = new long[(size + 63) >>> 6];
+  for (int base = 0; base < size; base += 64) {
+   int end = Math.min(base + 64, size);
+   long word = 0;
+   for (int i = base; i < end; i++) {
+    long match = inRange(prepTimes[i], minPrepTime, maxPrepTime)
+                 & inRange(cookTimes[i], minCookTime, maxCookTime)
+                 & inRange(ratings[i], minRating, maxRating)
+                 & inRange(difficulties[i], minDifficulty, maxDifficulty);
+    word |= match << (i - base);
+   }
+   words[base >>> 6] = word;
+  }
+  return BitSet.valueOf(words);
+ }
+
+ private static long inRange(int value, int min, int max) {
+  //1 when min <= value <= max, else 0. either difference goes negative when the value is outside
+  return (((value - (long) min) | ((long) max - value)) >>> 63) ^ 1;
+ }
+}
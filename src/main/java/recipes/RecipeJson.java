@@ -0,0 +1,433 @@
+package recipes;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class RecipeJson {
+ //this class writes recipes as JSON and reads the small JSON documents the server accepts
+ //parsed JSON is plain java: Map for objects, List for arrays, String, Long or Double, Boolean and null
+ //a recipe is {"recipeName": ..., "cuisineType": ..., "mealType": ..., "ingredients": [...],
+ //"preparationSteps": ..., "prepTime": 0, "cookTime": 0, "difficulty": ..., "rating": 0, "notes": ...}
+
+ private final String text;
+ private int at;
+
+ private RecipeJson(String text) {
+  this.text = text;
+ }
+
+ static void writeRecipes(Writer out, List<Recipe> recipes) throws IOException {
+  //a JSON array written one recipe at a time, so a large result never has to be held as one string
+  out.write('[');
+  for (int i = 0; i < recipes.size(); i++) {
+   if (i > 0) {
+    out.write(',');
+   }
+   writeRecipe(out, recipes.get(i));
+  }
+  out.write(']');
+ }
+
+ static void writeRecipe(Writer out, Recipe recipe) throws IOException {
+  out.write("{\"recipeName\":");
+  writeString(out, recipe.getRecipeName());
+  out.write(",\"cuisineType\":");
+  writeString(out, recipe.getCuisineType());
+  out.write(",\"mealType\":");
+  writeString(out, recipe.getMealType());
+  out.write(",\"ingredients\":");
+  List<String> ingredients = recipe.getIngredients();
+  if (ingredients == null) {
+   out.write("null");
+  } else {
+   out.write('[');
+   for (int i = 0; i < ingredients.size(); i++) {
+    if (i > 0) {
+     out.write(',');
+    }
+    writeString(out, ingredients.get(i));
+   }
+   out.write(']');
+  }
+  out.write(",\"preparationSteps\":");
+  writeString(out, recipe.getPreparationSteps());
+  out.write(",\"prepTime\":");
+  out.write(Integer.toString(recipe.getPrepTime()));
+  out.write(",\"cookTime\":");
+  out.write(Integer.toString(recipe.getCookTime()));
+  out.write(",\"difficulty\":");
+  writeString(out, recipe.getDifficulty());
+  out.write(",\"rating\":");
+  out.write(Integer.toString(recipe.getRating()));
+  out.write(",\"notes\":");
+  writeString(out, recipe.getNotes());
+  out.write('}');
+ }
+
+ static void writeString(Writer out, String value) throws IOException {
+  //quoted and escaped, null for a missing value
+  if (value == null) {
+   out.write("null");
+   return;
+  }
+  out.write('"');
+  int start = 0;
+  for (int i = 0; i < value.length(); i++) {
+   char c = value.charAt(i);
+   if (c == '"' || c == '\\' || c < 0x20) {
+    out.write(value, start, i - start); //the plain run before this char in one write
+    switch (c) {
+     case '"':
+      out.write("\\\"");
+      break;
+     case '\\':
+      out.write("\\\\");
+      break;
+     case '\n':
+      out.write("\\n");
+      break;
+     case '\r':
+      out.write("\\r");
+      break;
+     case '\t':
+      out.write("\\t");
+      break;
+     default:
+      out.write(String.format("\\u%04x", (int) c));
+    }
+    start = i + 1;
+   }
+  }
+  out.write(value, start, value.length() - start);
+  out.write('"');
+ }
+
+ static String quote(String value) {
+  //the value as a JSON string literal
+  StringWriter out = new StringWriter(value == null ? 4 : value.length() + 2);
+  try {
+   writeString(out, value);
+  } catch (IOException e) {
+   throw new UncheckedIOException(e); //a StringWriter doesn't fail
+  }
+  return out.toString();
+ }
+
+ static Object parse(String text) {
+  //parses a whole JSON document, throws IllegalArgumentException if it isn't valid JSON
+  RecipeJson parser = new RecipeJson(text);
+  parser.skipSpace();
+  Object value = parser.value();
+  parser.skipSpace();
+  if (parser.at != text.length()) {
+   throw parser.error("unexpected text after the value");
+  }
+  return value;
+ }
+
+ static Recipe toRecipe(Object json) {
+  //builds a recipe from a parsed object, missing fields are left empty
+  Map<String, Object> fields = object(json, "recipe");
+  List<String> ingredients = null;
+  if (fields.get("ingredients") != null) {
+   ingredients = strings(fields.get("ingredients"), "ingredients");
+  }
+  return new Recipe(string(fields, "recipeName"), string(fields, "cuisineType"), string(fields, "mealType"),
+                    ingredients, string(fields, "preparationSteps"), integer(fields, "prepTime"),
+                    integer(fields, "cookTime"), string(fields, "difficulty"), integer(fields, "rating"),
+                    string(fields, "notes"));
+ }
+
+ static RecipeMutation toMutation(Object json) {
+  //{"name": ..., "field": ..., "value": ...} sets one field, {"name": ..., "recipe": {...}} replaces the recipe
+  Map<String, Object> fields = object(json, "mutation");
+  String name = string(fields, "name");
+  if (fields.containsKey("recipe")) {
+   return new RecipeMutation(name, toRecipe(fields.get("recipe")));
+  }
+  String field = string(fields, "field");
+  if (field == null) {
+   throw new IllegalArgumentException("A mutation needs a \"field\" and \"value\", or a \"recipe\"");
+  }
+  Object value = fields.get("value");
+  return new RecipeMutation(name, field, value == null ? null : String.valueOf(value));
+ }
+
+ static RecipeQuery toQuery(Object json) {
+  //{"ingredients": [...], "name": ..., "nameContaining": ..., "mealTypes": [...], "difficulties": [...],
+  //"cuisines": [...], "prepTime": [min, max], "cookTime": [min, max], "rating": [min, max]}, all optional
+  Map<String, Object> fields = object(json, "query");
+  RecipeQuery query = new RecipeQuery();
+  if (fields.get("ingredients") != null) {
+   query.withIngredients(strings(fields.get("ingredients"), "ingredients"));
+  }
+  if (fields.get("name") != null) {
+   query.withName(string(fields, "name"));
+  }
+  if (fields.get("nameContaining") != null) {
+   query.withNameContaining(string(fields, "nameContaining"));
+  }
+  if (fields.get("mealTypes") != null) {
+   query.withMealType(strings(fields.get("mealTypes"), "mealTypes"));
+  }
+  if (fields.get("difficulties") != null) {
+   query.withDifficulty(strings(fields.get("difficulties"), "difficulties"));
+  }
+  if (fields.get("cuisines") != null) {
+   query.withCuisine(strings(fields.get("cuisines"), "cuisines"));
+  }
+  if (fields.get("prepTime") != null) {
+   int[] range = range(fields.get("prepTime"), "prepTime");
+   query.withPrepTime(range[0], range[1]);
+  }
+  if (fields.get("cookTime") != null) {
+   int[] range = range(fields.get("cookTime"), "cookTime");
+   query.withCookTime(range[0], range[1]);
+  }
+  if (fields.get("rating") != null) {
+   int[] range = range(fields.get("rating"), "rating");
+   query.withRating(range[0], range[1]);
+  }
+  return query;
+ }
+
+ @SuppressWarnings("unchecked")
+ private static Map<String, Object> object(Object json, String what) {
+  if (!(json instanceof Map)) {
+   throw new IllegalArgumentException("Expected a JSON object for the " + what);
+  }
+  return (Map<String, Object>) json;
+ }
+
+ private static String string(Map<String, Object> fields, String key) {
+  Object value = fields.get(key);
+  if (value != null && !(value instanceof String)) {
+   throw new IllegalArgumentException("\"" + key + "\" must be a string");
+  }
+  return (String) value;
+ }
+
+ private static int integer(Map<String, Object> fields, String key) {
+  Object value = fields.get(key);
+  return value == null ? 0 : toInt(value, key);
+ }
+
+ private static int toInt(Object value, String key) {
+  if (!(value instanceof Long) || (Long) value != ((Long) value).intValue()) {
+   throw new IllegalArgumentException("\"" + key + "\" must be a whole number");
+  }
+  return ((Long) value).intValue();
+ }
+
+ private static List<String> strings(Object json, String key) {
+  if (!(json instanceof List)) {
+   throw new IllegalArgumentException("\"" + key + "\" must be an array of strings");
+  }
+  List<String> values = new ArrayList<>();
+  for (Object value : (List<?>) json) {
+   if (!(value instanceof String)) {
+    throw new IllegalArgumentException("\"" + key + "\" must be an array of strings");
+   }
+   values.add((String) value);
+  }
+  return values;
+ }
+
+ private static int[] range(Object json, String key) {
+  //[min, max] as whole numbers, null for no limit on that side
+  if (!(json instanceof List) || ((List<?>) json).size() != 2) {
+   throw new IllegalArgumentException("\"" + key + "\" must be [min, max]");
+  }
+  Object min = ((List<?>) json).get(0);
+  Object max = ((List<?>) json).get(1);
+  return new int[] {min == null ? Integer.MIN_VALUE : toInt(min, key),
+                    max == null ? Integer.MAX_VALUE : toInt(max, key)};
+ }
+
+ private Object value() {
+  if (at >= text.length()) {
+   throw error("unexpected end of the document");
+  }
+  char c = text.charAt(at);
+  switch (c) {
+   case '{':
+    return objectValue();
+   case '[':
+    return arrayValue();
+   case '"':
+    return stringValue();
+   case 't':
+    return literal("true", Boolean.TRUE);
+   case 'f':
+    return literal("false", Boolean.FALSE);
+   case 'n':
+    return literal("null", null);
+   default:
+    if (c == '-' || (c >= '0' && c <= '9')) {
+     return numberValue();
+    }
+    throw error("unexpected character '" + c + "'");
+  }
+ }
+
+ private Map<String, Object> objectValue() {
+  Map<String, Object> fields = new LinkedHashMap<>();
+  at++; //{
+  skipSpace();
+  if (peek('}')) {
+   at++;
+   return fields;
+  }
+  while (true) {
+   skipSpace();
+   if (!peek('"')) {
+    throw error("expected a field name");
+   }
+   String key = stringValue();
+   skipSpace();
+   expect(':');
+   skipSpace();
+   fields.put(key, value());
+   skipSpace();
+   if (peek(',')) {
+    at++;
+   } else {
+    expect('}');
+    return fields;
+   }
+  }
+ }
+
+ private List<Object> arrayValue() {
+  List<Object> values = new ArrayList<>();
+  at++; //[
+  skipSpace();
+  if (peek(']')) {
+   at++;
+   return values;
+  }
+  while (true) {
+   skipSpace();
+   values.add(value());
+   skipSpace();
+   if (peek(',')) {
+    at++;
+   } else {
+    expect(']');
+    return values;
+   }
+  }
+ }
+
+ private String stringValue() {
+  at++; //opening quote
+  StringBuilder value = new StringBuilder();
+  while (true) {
+   if (at >= text.length()) {
+    throw error("unterminated string");
+   }
+   char c = text.charAt(at++);
+   if (c == '"') {
+    return value.toString();
+   }
+   if (c != '\\') {
+    value.append(c);
+    continue;
+   }
+   if (at >= text.length()) {
+    throw error("unterminated string");
+   }
+   char escaped = text.charAt(at++);
+   switch (escaped) {
+    case '"':
+    case '\\':
+    case '/':
+     value.append(escaped);
+     break;
+    case 'b':
+     value.append('\b');
+     break;
+    case 'f':
+     value.append('\f');
+     break;
+    case 'n':
+     value.append('\n');
+     break;
+    case 'r':
+     value.append('\r');
+     break;
+    case 't':
+     value.append('\t');
+     break;
+    case 'u':
+     if (at + 4 > text.length()) {
+      throw error("bad \\u escape");
+     }
+     try {
+      value.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+     } catch (NumberFormatException e) {
+      throw error("bad \\u escape");
+     }
+     at += 4;
+     break;
+    default:
+     throw error("bad escape \\" + escaped);
+   }
+  }
+ }
+
+ private Object numberValue() {
+  int start = at;
+  boolean whole = true;
+  while (at < text.length()) {
+   char c = text.charAt(at);
+   if (c == '.' || c == 'e' || c == 'E') {
+    whole = false;
+   } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+    break;
+   }
+   at++;
+  }
+  String number = text.substring(start, at);
+  try {
+   return whole ? (Object) Long.parseLong(number) : (Object) Double.parseDouble(number);
+  } catch (NumberFormatException e) {
+   throw error("bad number " + number);
+  }
+ }
+
+ private Object literal(String word, Object value) {
+  if (!text.startsWith(word, at)) {
+   throw error("unexpected text");
+  }
+  at += word.length();
+  return value;
+ }
+
+ private void skipSpace() {
+  while (at < text.length() && Character.isWhitespace(text.charAt(at))) {
+   at++;
+  }
+ }
+
+ private boolean peek(char c) {
+  return at < text.length() && text.charAt(at) == c;
+ }
+
+ private void expect(char c) {
+  if (!peek(c)) {
+   throw error("expected '" + c + "'");
+  }
+  at++;
+ }
+
+ private IllegalArgumentException error(String message) {
+  return new IllegalArgumentException("Invalid JSON at character " + at + ": " + message);
+ }
+}
@@ -0,0 +1,182 @@
+package recipes;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RecipeLoadTest {
+ //this class runs many concurrent clients against a RecipeServer and reports throughput and latency per request type
+ //usage: java -cp target/classes recipes.RecipeLoadTest [url] [clients] [seconds]
+ //without a url it starts a server in this process on a ConcurrentRecipeCollection of 10k synthetic recipes,
+ //e.g. java -cp target/classes recipes.RecipeLoadTest - 200 10 to use that server with 200 clients for 10 seconds
+ //each client is a virtual thread sending one request at a time: mostly searches, some sorted pages and some edits
+
+ private static final int DEFAULT_CLIENTS = 200;
+ private static final int DEFAULT_SECONDS = 10;
+ private static final int SELF_SIZE = 10_000;
+ private static final String[] TYPES = {"search name", "search ingredient", "search partial", "search full text",
+                                        "query", "sort page", "modify rating"};
+
+ private static final LatencyHistogram[] latencies = new LatencyHistogram[TYPES.length];
+ private static final LongAdder[] errors = new LongAdder[TYPES.length];
+
+ public static void main(String[] args) throws Exception {
+  String url = args.length > 0 && !args[0].equals("-") ? args[0] : null;
+  int clients = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CLIENTS;
+  int seconds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SECONDS;
+
+  RecipeServer self = null;
+  if (url == null) {
+   ConcurrentRecipeCollection collection = new ConcurrentRecipeCollection();
+   collection.addRecipes(new SyntheticRecipeGenerator(42).generate(SELF_SIZE));
+   self = new RecipeServer(collection, 0);
+   self.start();
+   url = "http://127.0.0.1:" + self.getPort();
+   System.out.println("Started a server with " + SELF_SIZE + " synthetic recipes at " + url);
+  }
+  for (int t = 0; t < TYPES.length; t++) {
+   latencies[t] = new LatencyHistogram();
+   errors[t] = new LongAdder();
+  }
+
+  HttpClient client = HttpClient.newBuilder()
+                                .version(HttpClient.Version.HTTP_1_1)
+                                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                                .build();
+  List<String> names = new ArrayList<>();
+  List<String> ingredients = new ArrayList<>();
+  sample(client, url, names, ingredients);
+  System.out.println("Running " + clients + " clients for " + seconds + " s against " + url);
+
+  long end = System.nanoTime() + seconds * 1_000_000_000L;
+  long start = System.nanoTime();
+  String base = url;
+  try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+   for (int c = 0; c < clients; c++) {
+    long seed = c;
+    threads.submit(() -> runClient(client, base, names, ingredients, new Random(seed), end));
+   }
+  }
+  double elapsed = (System.nanoTime() - start) / 1e9;
+  report(elapsed);
+  if (self != null) {
+   self.stop();
+  }
+ }
+
+ private static void sample(HttpClient client, String url, List<String> names, List<String> ingredients)
+         throws IOException, InterruptedException {
+  //names and ingredients of the top rated recipes, used for searches and edits
+  HttpResponse<String> response = client.send(
+          HttpRequest.newBuilder(URI.create(url + "/recipes/sort?fields=rating&limit=1000")).build(),
+          HttpResponse.BodyHandlers.ofString());
+  if (response.statusCode() != 200) {
+   throw new IOException("Server answered " + response.statusCode() + ": " + response.body());
+  }
+  for (Object recipe : (List<?>) RecipeJson.parse(response.body())) {
+   Object name = ((Map<?, ?>) recipe).get("recipeName");
+   if (name != null) {
+    names.add((String) name);
+   }
+   Object used = ((Map<?, ?>) recipe).get("ingredients");
+   if (used != null) {
+    for (Object ingredient : (List<?>) used) {
+     ingredients.add((String) ingredient);
+    }
+   }
+  }
+  if (names.isEmpty() || ingredients.isEmpty()) {
+   throw new IOException("The server has no recipes to test with");
+  }
+ }
+
+ private static void runClient(HttpClient client, String url, List<String> names, List<String> ingredients,
+                               Random random, long end) {
+  while (System.nanoTime() < end) {
+   int roll = random.nextInt(100);
+   //70% searches split over the modes, 20% sorted pages, 10% edits
+   int type = roll < 70 ? roll % 5 : roll < 90 ? 5 : 6;
+   String name = names.get(random.nextInt(names.size()));
+   HttpRequest request;
+   switch (type) {
+    case 0:
+     request = get(url + "/recipes/search?option=" + encode("recipe name (exact)") + "&value=" + encode(name));
+     break;
+    case 1:
+     String ingredient = ingredients.get(random.nextInt(ingredients.size()));
+     request = get(url + "/recipes/search?option=" + encode("single ingredient") + "&value=" + encode(ingredient));
+     break;
+    case 2:
+     request = get(url + "/recipes/search?option=" + encode("recipe name (partial)") + "&value="
+                   + encode(name.substring(0, Math.min(6, name.length()))));
+     break;
+    case 3:
+     request = get(url + "/recipes/search?option=" + encode("full text") + "&value=" + encode("\"air fryer\" crispy"));
+     break;
+    case 4:
+     request = post(url + "/recipes/search", "{\"mealTypes\":[\"dinner\"],\"cookTime\":[null,30],\"rating\":[4,5]}");
+     break;
+    case 5:
+     request = get(url + "/recipes/sort?fields=rating,cookTime&offset=" + random.nextInt(100) + "&limit=20");
+     break;
+    default:
+     request = post(url + "/recipes/modify", "{\"name\":" + RecipeJson.quote(name)
+                    + ",\"field\":\"rating\",\"value\":\"" + (1 + random.nextInt(5)) + "\"}");
+   }
+   long start = System.nanoTime();
+   try {
+    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+    if (response.statusCode() >= 400) {
+     errors[type].increment();
+    } else {
+     latencies[type].record(System.nanoTime() - start);
+    }
+   } catch (IOException e) {
+    errors[type].increment();
+   } catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+    return;
+   }
+  }
+ }
+
+ private static HttpRequest get(String url) {
+  return HttpRequest.newBuilder(URI.create(url)).build();
+ }
+
+ private static HttpRequest post(String url, String json) {
+  return HttpRequest.newBuilder(URI.create(url))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .build();
+ }
+
+ private static String encode(String value) {
+  return URLEncoder.encode(value, StandardCharsets.UTF_8);
+ }
+
+ private static void report(double seconds) {
+  System.out.printf("%-20s %10s %10s %8s %10s %10s %10s %10s%n", "request", "count", "req/s", "errors", "p50 ms",
+                    "p90 ms", "p99 ms", "max ms");
+  long total = 0;
+  for (int t = 0; t < TYPES.length; t++) {
+   LatencyHistogram h = latencies[t];
+   total += h.count();
+   System.out.printf("%-20s %10d %10.1f %8d %10.2f %10.2f %10.2f %10.2f%n", TYPES[t], h.count(), h.count() / seconds,
+                     errors[t].sum(), h.percentile(0.50) / 1e6, h.percentile(0.90) / 1e6, h.percentile(0.99) / 1e6,
+                     h.max() / 1e6);
+  }
+  System.out.printf("%-20s %10d %10.1f%n", "total", total, total / seconds);
+ }
+}
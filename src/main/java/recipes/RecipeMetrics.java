@@ -0,0 +1,93 @@
+package recipes;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class RecipeMetrics implements RecipeMetricsMBean {
+ //this class collects the calls, failures, latency, result sizes and bytes moved for one operation
+ //recording only updates counters, it never allocates
+
+ private final String operation;
+ private final LatencyHistogram latency = new LatencyHistogram();
+ private final LongAdder errors = new LongAdder();
+ private final LongAdder results = new LongAdder(); //recipes returned by searches, sorts and views, or the size of a batch
+ private final LongAdder bytes = new LongAdder(); //read by loads, written by exports (chars for a Writer)
+
+ public RecipeMetrics(String operation) {
+  this.operation = operation;
+ }
+
+ void record(long startNanos, long resultCount, long byteCount) {
+  latency.record(System.nanoTime() - startNanos);
+  results.add(resultCount);
+  bytes.add(byteCount);
+ }
+
+ void recordError() {
+  //failed calls are counted but kept out of the latency figures
+  errors.increment();
+ }
+
+ @Override
+ public String getOperation() {
+  return operation;
+ }
+
+ @Override
+ public long getCalls() {
+  return latency.count() + errors.sum();
+ }
+
+ @Override
+ public long getErrors() {
+  return errors.sum();
+ }
+
+ @Override
+ public double getMeanMicros() {
+  long count = latency.count();
+  return count == 0 ? 0 : latency.total() / 1e3 / count;
+ }
+
+ @Override
+ public double getP50Micros() {
+  return latency.percentile(0.50) / 1e3;
+ }
+
+ @Override
+ public double getP90Micros() {
+  return latency.percentile(0.90) / 1e3;
+ }
+
+ @Override
+ public double getP99Micros() {
+  return latency.percentile(0.99) / 1e3;
+ }
+
+ @Override
+ public double getP999Micros() {
+  return latency.percentile(0.999) / 1e3;
+ }
+
+ @Override
+ public double getMaxMicros() {
+  return latency.max() / 1e3;
+ }
+
+ @Override
+ public long getResults() {
+  return results.sum();
+ }
+
+ @Override
+ public long getBytes() {
+  return bytes.sum();
+ }
+
+ @Override
+ public void reset() {
+  latency.reset();
+  errors.reset();
+  results.reset();
+  bytes.reset();
+ }
+}
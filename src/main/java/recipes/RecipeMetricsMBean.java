@@ -0,0 +1,18 @@
+package recipes;
+
+public interface RecipeMetricsMBean {
+ //this interface is what JMX shows for each instrumented operation, times are in microseconds
+
+ String getOperation();
+ long getCalls();
+ long getErrors();
+ double getMeanMicros();
+ double getP50Micros();
+ double getP90Micros();
+ double getP99Micros();
+ double getP999Micros();
+ double getMaxMicros();
+ long getResults();
+ long getBytes();
+ void reset();
+}
@@ -0,0 +1,45 @@
+package recipes;
+
+public class RecipeMutation {
+ //one change in a modifyRecipes batch: either a single field set from its text value like modifyRecipe,
+ //or the whole recipe replaced like modifyEntireRecipe. the recipe is found by name when the batch gets to it
+
+ private final String targetRecipeName;
+ private final String fieldToModify; //null when the whole recipe is replaced
+ private final String newValue;
+ private final Recipe newRecipeData;
+
+ public RecipeMutation(String targetRecipeName, String fieldToModify, String newValue) {
+  this.targetRecipeName = targetRecipeName;
+  this.fieldToModify = fieldToModify;
+  this.newValue = newValue;
+  this.newRecipeData = null;
+ }
+
+ public RecipeMutation(String targetRecipeName, Recipe newRecipeData) {
+  this.targetRecipeName = targetRecipeName;
+  this.fieldToModify = null;
+  this.newValue = null;
+  this.newRecipeData = newRecipeData;
+ }
+
+ public String getTargetRecipeName() {
+  return targetRecipeName;
+ }
+
+ public String getFieldToModify() {
+  return fieldToModify;
+ }
+
+ public String getNewValue() {
+  return newValue;
+ }
+
+ public Recipe getNewRecipeData() {
+  return newRecipeData;
+ }
+
+ public boolean isReplacement() {
+  return fieldToModify == null;
+ }
+}
@@ -0,0 +1,211 @@
+package recipes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+public class RecipeQuery {
+ //describes one search that combines several criteria, a recipe must match every criterion that is set
+ //e.g. new RecipeQuery().withMealType("dinner").withDifficulty("easy").withCookTime(0, 30).withRating(4, 5)
+ //text criteria match the same way as the searchRecipes modes: ingredients and partial names by substring,
+ //exact names, meal types, difficulties and cuisines ignoring case
+
+ private List<String> ingredients; //every term must be in one of the recipe's ingredients
+ private String name;
+ private String nameContaining;
+ private List<String> mealTypes; //any one of these
+ private List<String> difficulties;
+ private List<String> cuisines;
+ private int minPrepTime = Integer.MIN_VALUE;
+ private int maxPrepTime = Integer.MAX_VALUE;
+ private int minCookTime = Integer.MIN_VALUE;
+ private int maxCookTime = Integer.MAX_VALUE;
+ private int minRating = Integer.MIN_VALUE;
+ private int maxRating = Integer.MAX_VALUE;
+
+ static RecipeQuery forSearchOption(String searchOption, String userInput) {
+  //the query behind each searchRecipes mode, null if the mode is not recognized
+  switch (searchOption.toLowerCase()) {
+   case "single ingredient":
+    return new RecipeQuery().withIngredients(userInput);
+   case "recipe name (exact)":
+    return new RecipeQuery().withName(userInput);
+   case "recipe name (partial)":
+    return new RecipeQuery().withNameContaining(userInput);
+   case "meal type":
+    return new RecipeQuery().withMealType(userInput);
+   default:
+    return null;
+  }
+ }
+
+ public RecipeQuery withIngredients(String... terms) {
+  return withIngredients(Arrays.asList(terms));
+ }
+
+ public RecipeQuery withIngredients(Collection<String> terms) {
+  //terms are trimmed and lower-cased like the ingredient searches do
+  ingredients = new ArrayList<>();
+  for (String term : terms) {
+   ingredients.add(term.trim().toLowerCase());
+  }
+  return this;
+ }
+
+ public RecipeQuery withName(String exactName) {
+  this.name = exactName;
+  return this;
+ }
+
+ public RecipeQuery withNameContaining(String partialName) {
+  this.nameContaining = partialName;
+  return this;
+ }
+
+ public RecipeQuery withMealType(String... values) {
+  return withMealType(Arrays.asList(values));
+ }
+
+ public RecipeQuery withMealType(Collection<String> values) {
+  this.mealTypes = new ArrayList<>(values);
+  return this;
+ }
+
+ public RecipeQuery withDifficulty(String... values) {
+  return withDifficulty(Arrays.asList(values));
+ }
+
+ public RecipeQuery withDifficulty(Collection<String> values) {
+  this.difficulties = new ArrayList<>(values);
+  return this;
+ }
+
+ public RecipeQuery withCuisine(String... values) {
+  return withCuisine(Arrays.asList(values));
+ }
+
+ public RecipeQuery withCuisine(Collection<String> values) {
+  this.cuisines = new ArrayList<>(values);
+  return this;
+ }
+
+ public RecipeQuery withPrepTime(int min, int max) {
+  this.minPrepTime = min;
+  this.maxPrepTime = max;
+  return this;
+ }
+
+ public RecipeQuery withCookTime(int min, int max) {
+  this.minCookTime = min;
+  this.maxCookTime = max;
+  return this;
+ }
+
+ public RecipeQuery withRating(int min, int max) {
+  this.minRating = min;
+  this.maxRating = max;
+  return this;
+ }
+
+ List<String> getIngredients() {
+  return ingredients;
+ }
+
+ String getName() {
+  return name;
+ }
+
+ String getNameContaining() {
+  return nameContaining;
+ }
+
+ List<String> getMealTypes() {
+  return mealTypes;
+ }
+
+ List<String> getDifficulties() {
+  return difficulties;
+ }
+
+ List<String> getCuisines() {
+  return cuisines;
+ }
+
+ int getMinPrepTime() {
+  return minPrepTime;
+ }
+
+ int getMaxPrepTime() {
+  return maxPrepTime;
+ }
+
+ int getMinCookTime() {
+  return minCookTime;
+ }
+
+ int getMaxCookTime() {
+  return maxCookTime;
+ }
+
+ int getMinRating() {
+  return minRating;
+ }
+
+ int getMaxRating() {
+  return maxRating;
+ }
+
+ boolean hasRanges() {
+  return minPrepTime != Integer.MIN_VALUE || maxPrepTime != Integer.MAX_VALUE
+         || minCookTime != Integer.MIN_VALUE || maxCookTime != Integer.MAX_VALUE
+         || minRating != Integer.MIN_VALUE || maxRating != Integer.MAX_VALUE;
+ }
+
+ public boolean matches(Recipe recipe) {
+  //checks one recipe directly, for collections that have no indexes to plan with
+  if (ingredients != null) {
+   for (String term : ingredients) {
+    boolean found = false;
+    if (recipe.getIngredients() != null) {
+     for (String ing : recipe.getIngredients()) {
+      if (ing != null && ing.contains(term)) {
+       found = true;
+       break;
+      }
+     }
+    }
+    if (!found) {
+     return false;
+    }
+   }
+  }
+  if (name != null && (recipe.getRecipeName() == null || !recipe.getRecipeName().equalsIgnoreCase(name))) {
+   return false;
+  }
+  if (nameContaining != null && (recipe.getRecipeName() == null
+      || !recipe.getRecipeName().toLowerCase().contains(nameContaining.toLowerCase()))) {
+   return false;
+  }
+  if (!matchesAny(mealTypes, recipe.getMealType()) || !matchesAny(difficulties, recipe.getDifficulty())
+      || !matchesAny(cuisines, recipe.getCuisineType())) {
+   return false;
+  }
+  return recipe.getPrepTime() >= minPrepTime && recipe.getPrepTime() <= maxPrepTime
+         && recipe.getCookTime() >= minCookTime && recipe.getCookTime() <= maxCookTime
+         && recipe.getRating() >= minRating && recipe.getRating() <= maxRating;
+ }
+
+ private static boolean matchesAny(List<String> values, String actual) {
+  //an unset or empty list matches anything
+  if (values == null || values.isEmpty()) {
+   return true;
+  }
+  for (String value : values) {
+   if (actual != null && actual.equalsIgnoreCase(value)) {
+    return true;
+   }
+  }
+  return false;
+ }
+}
@@ -0,0 +1,298 @@
+package recipes;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class RecipeServer {
+ //this class serves an IRecipeOperations as JSON over HTTP on the loopback interface, one virtual thread per request
+ //the collection is shared by every request, so it must be thread-safe, e.g. a ConcurrentRecipeCollection
+ //
+ //GET  /recipes                               every recipe
+ //POST /recipes                               add a recipe object, or an array of them as one batch
+ //GET  /recipes/search?option=..&value=..     searchRecipes modes, e.g. option=meal type&value=dinner
+ //GET  /recipes/search?ingredients=a,b        recipes with every ingredient
+ //POST /recipes/search                        a query object, see RecipeJson.toQuery
+ //GET  /recipes/sort?fields=rating,cookTime   sorted, with &choice=single|multiple and &offset=..&limit=.. for a page
+ //POST /recipes/modify                        {"name","field","value"}, {"name","recipe"}, or an array of them as a batch
+ //GET  /recipes/export[?compress=true]        the text export, gzipped if asked for
+ //
+ //there is no way to read or write files on the server: a request only names recipes, never paths, so a page
+ //open in the same browser can't use the server to overwrite or read local files. request bodies must be sent as
+ //application/json, which a cross-site form can't do without a preflight, so a form post can't change recipes either
+ //recipe lists are written to the response as they are encoded, so a large result is never built up in memory
+ //bad input gets 400 with {"error": ...}, an unknown path 404, a wrong method 405, a body over MAX_BODY bytes 413
+ //and a body that isn't JSON 415
+
+ private static final int BUFFER_SIZE = 64 * 1024; //response bytes collected before a chunk is sent
+ private static final int BACKLOG = 1024; //connections waiting to be accepted, for many clients connecting at once
+ static final int MAX_BODY = 16 * 1024 * 1024; //request body bytes read at most, a large batch should be split up
+
+ static {
+  //the JDK server sends the headers and the body in separate writes, so with Nagle's algorithm on a small
+  //response waits about 40 ms for the client's delayed ack. read once, when the first server is created
+  if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+   System.setProperty("sun.net.httpserver.nodelay", "true");
+  }
+ }
+
+ private final IRecipeOperations recipes;
+ private final HttpServer server;
+ private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+ public RecipeServer(IRecipeOperations recipes, int port) throws IOException {
+  this.recipes = recipes;
+  this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+  server.setExecutor(executor);
+  server.createContext("/recipes", handler(this::recipes));
+  server.createContext("/recipes/search", handler(this::search));
+  server.createContext("/recipes/sort", handler(this::sort));
+  server.createContext("/recipes/modify", handler(this::modify));
+  server.createContext("/recipes/export", handler(this::export));
+ }
+
+ public void start() {
+  server.start();
+ }
+
+ public int getPort() {
+  //the port actually used, useful when the server was created with port 0
+  return server.getAddress().getPort();
+ }
+
+ public void stop() {
+  //stops accepting requests, gives running ones a second to finish, then waits for their threads
+  server.stop(1);
+  executor.close();
+ }
+
+ private interface Endpoint {
+  void handle(HttpExchange exchange, String method) throws IOException;
+ }
+
+ private static class HttpError extends RuntimeException {
+  //a failure that maps to a status code other than 400
+  private static final long serialVersionUID = 1L;
+  private final int status;
+
+  HttpError(int status, String message) {
+   super(message);
+   this.status = status;
+  }
+ }
+
+ private HttpHandler handler(Endpoint endpoint) {
+  //runs the endpoint and turns its exceptions into error responses
+  return exchange -> {
+   try {
+    if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+     throw new HttpError(404, "No such endpoint: " + exchange.getRequestURI().getPath());
+    }
+    endpoint.handle(exchange, exchange.getRequestMethod());
+   } catch (HttpError e) {
+    sendError(exchange, e.status, e.getMessage());
+   } catch (IllegalArgumentException e) { //includes NumberFormatException from a bad number
+    sendError(exchange, 400, e.getMessage());
+   } catch (IOException | RuntimeException e) {
+    sendError(exchange, 500, e.toString());
+   } finally {
+    exchange.close();
+   }
+  };
+ }
+
+ private void recipes(HttpExchange exchange, String method) throws IOException {
+  switch (method) {
+   case "GET":
+    sendRecipes(exchange, recipes.viewAllRecipes());
+    break;
+   case "POST":
+    Object body = readJson(exchange);
+    int added;
+    if (body instanceof List) {
+     List<Recipe> batch = new ArrayList<>();
+     for (Object recipe : (List<?>) body) {
+      batch.add(RecipeJson.toRecipe(recipe));
+     }
+     recipes.addRecipes(batch);
+     added = batch.size();
+    } else {
+     recipes.addRecipe(RecipeJson.toRecipe(body));
+     added = 1;
+    }
+    sendJson(exchange, 201, "{\"added\":" + added + "}");
+    break;
+   default:
+    throw methodNotAllowed(method);
+  }
+ }
+
+ private void search(HttpExchange exchange, String method) throws IOException {
+  switch (method) {
+   case "GET":
+    Map<String, String> params = params(exchange);
+    if (params.containsKey("ingredients")) {
+     List<String> ingredients = Arrays.asList(params.get("ingredients").split(","));
+     sendRecipes(exchange, recipes.searchRecipesMultipleIngredients(ingredients));
+    } else {
+     sendRecipes(exchange, recipes.searchRecipes(required(params, "option"), required(params, "value")));
+    }
+    break;
+   case "POST":
+    sendRecipes(exchange, recipes.searchRecipes(RecipeJson.toQuery(readJson(exchange))));
+    break;
+   default:
+    throw methodNotAllowed(method);
+  }
+ }
+
+ private void sort(HttpExchange exchange, String method) throws IOException {
+  if (!method.equals("GET")) {
+   throw methodNotAllowed(method);
+  }
+  Map<String, String> params = params(exchange);
+  String[] fields = required(params, "fields").split(",");
+  String choice = params.getOrDefault("choice", fields.length > 1 ? "multiple" : "single");
+  if (params.containsKey("offset") || params.containsKey("limit")) {
+   int offset = Integer.parseInt(params.getOrDefault("offset", "0"));
+   int limit = Integer.parseInt(params.getOrDefault("limit", "20"));
+   sendRecipes(exchange, recipes.sortRecipesPage(offset, limit, choice, fields));
+  } else {
+   sendRecipes(exchange, recipes.sortRecipes(choice, fields));
+  }
+ }
+
+ private void modify(HttpExchange exchange, String method) throws IOException {
+  if (!method.equals("POST")) {
+   throw methodNotAllowed(method);
+  }
+  Object body = readJson(exchange);
+  int count;
+  if (body instanceof List) {
+   List<RecipeMutation> batch = new ArrayList<>();
+   for (Object mutation : (List<?>) body) {
+    batch.add(RecipeJson.toMutation(mutation));
+   }
+   recipes.modifyRecipes(batch);
+   count = batch.size();
+  } else {
+   RecipeMutation mutation = RecipeJson.toMutation(body);
+   if (mutation.isReplacement()) {
+    recipes.modifyEntireRecipe(mutation.getTargetRecipeName(), mutation.getNewRecipeData());
+   } else {
+    recipes.modifyRecipe(mutation.getTargetRecipeName(), mutation.getFieldToModify(), mutation.getNewValue());
+   }
+   count = 1;
+  }
+  sendJson(exchange, 200, "{\"mutations\":" + count + "}");
+ }
+
+ private void export(HttpExchange exchange, String method) throws IOException {
+  if (!method.equals("GET")) {
+   throw methodNotAllowed(method);
+  }
+  boolean compress = Boolean.parseBoolean(params(exchange).get("compress"));
+  //the text export uses the default charset like the file export does
+  exchange.getResponseHeaders().set("Content-Type",
+                                    compress ? "application/gzip" : "text/plain; charset=" + Charset.defaultCharset().name());
+  exchange.sendResponseHeaders(200, 0); //0 means the length isn't known, the body is sent in chunks
+  OutputStream out = exchange.getResponseBody();
+  if (compress) {
+   recipes.exportRecipes(out, true);
+  } else {
+   recipes.exportRecipes(Channels.newChannel(out));
+  }
+  out.flush();
+ }
+
+ private static void sendRecipes(HttpExchange exchange, List<Recipe> results) throws IOException {
+  //streams the list as a JSON array in chunks
+  exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+  exchange.sendResponseHeaders(200, 0);
+  Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+                                  BUFFER_SIZE);
+  RecipeJson.writeRecipes(out, results);
+  out.flush();
+ }
+
+ private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+  byte[] body = json.getBytes(StandardCharsets.UTF_8);
+  exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+  exchange.sendResponseHeaders(status, body.length);
+  exchange.getResponseBody().write(body);
+ }
+
+ private static void sendError(HttpExchange exchange, int status, String message) {
+  //only possible while the headers haven't gone out, after that the response is just cut short
+  if (exchange.getResponseCode() != -1) {
+   return;
+  }
+  try {
+   sendJson(exchange, status, "{\"error\":" + RecipeJson.quote(message) + "}");
+  } catch (IOException e) {
+   //the client went away, nothing left to tell it
+  }
+ }
+
+ private static Object readJson(HttpExchange exchange) throws IOException {
+  //the request body, refused unless it is declared as JSON and fits in MAX_BODY bytes
+  String type = exchange.getRequestHeaders().getFirst("Content-Type");
+  if (type == null || !type.split(";")[0].trim().equalsIgnoreCase("application/json")) {
+   throw new HttpError(415, "The request body must be sent as application/json");
+  }
+  try (InputStream in = exchange.getRequestBody()) {
+   byte[] body = in.readNBytes(MAX_BODY + 1); //one byte past the limit tells a body that is too large
+   if (body.length > MAX_BODY) {
+    throw new HttpError(413, "The request body is larger than " + MAX_BODY + " bytes");
+   }
+   return RecipeJson.parse(new String(body, StandardCharsets.UTF_8));
+  }
+ }
+
+ private static Map<String, String> params(HttpExchange exchange) {
+  //the decoded query string parameters, the last value wins if one is repeated
+  Map<String, String> params = new HashMap<>();
+  String query = exchange.getRequestURI().getRawQuery();
+  if (query == null || query.isEmpty()) {
+   return params;
+  }
+  for (String pair : query.split("&")) {
+   int equals = pair.indexOf('=');
+   String key = equals < 0 ? pair : pair.substring(0, equals);
+   String value = equals < 0 ? "" : pair.substring(equals + 1);
+   params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+  }
+  return params;
+ }
+
+ private static String required(Map<String, String> params, String key) {
+  String value = params.get(key);
+  if (value == null) {
+   throw new IllegalArgumentException("Missing query parameter \"" + key + "\"");
+  }
+  return value;
+ }
+
+ private static HttpError methodNotAllowed(String method) {
+  return new HttpError(405, "Method not allowed: " + method);
+ }
+}
@@ -0,0 +1,169 @@
+package recipes;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+class RecipeTextEncoder {
+ //writes recipes in the autosave text format field by field into one reusable char buffer
+ //the output is exactly Recipe.toString() plus the separator line, but no string is built per recipe
+ //the buffer goes either to a Writer or through a charset encoder and a reusable byte buffer to a channel
+
+ private static final String SEPARATOR = "----------------------\n";
+
+ private final char[] chars = new char[8192];
+ private final CharBuffer charView = CharBuffer.wrap(chars);
+ private int count;
+ private final Writer writer;
+ private final WritableByteChannel channel;
+ private final CharsetEncoder encoder;
+ private final ByteBuffer bytes;
+
+ RecipeTextEncoder(Writer writer) {
+  this.writer = writer;
+  this.channel = null;
+  this.encoder = null;
+  this.bytes = null;
+ }
+
+ RecipeTextEncoder(WritableByteChannel channel, Charset charset) {
+  this.writer = null;
+  this.channel = channel;
+  //same replacement behaviour as the FileWriter the text export used before
+  this.encoder = charset.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  this.bytes = ByteBuffer.allocate(1 << 16);
+ }
+
+ void write(Recipe r) throws IOException {
+  //one recipe and its separator
+  append("Recipe Name: ").append(r.getRecipeName()).append('\n');
+  append("Cuisine: ").append(r.getCuisineType()).append('\n');
+  append("Meal Type: ").append(r.getMealType()).append('\n');
+  append("Ingredients: ").appendIngredients(r.getIngredientIds()).append('\n');
+  append("Preparation Steps: ").append(r.getPreparationSteps()).append('\n');
+  append("Prep Time: ").append(r.getPrepTime()).append(" minutes\n");
+  append("Cook Time: ").append(r.getCookTime()).append(" minutes\n");
+  append("Difficulty: ").append(r.getDifficulty()).append('\n');
+  append("Rating: ").append(r.getRating()).append('\n');
+  append("Notes: ").append(r.getNotes()).append('\n');
+  append(SEPARATOR);
+ }
+
+ void finish() throws IOException {
+  //pushes everything buffered to the destination, the destination itself is left open
+  drain(true);
+  if (writer != null) {
+   writer.flush();
+  }
+ }
+
+ private RecipeTextEncoder append(String value) throws IOException {
+  //null is written as "null", like string concatenation does
+  if (value == null) {
+   value = "null";
+  }
+  int start = 0;
+  while (start < value.length()) {
+   if (count == chars.length) {
+    drain(false);
+   }
+   int end = Math.min(value.length(), start + chars.length - count);
+   value.getChars(start, end, chars, count);
+   count += end - start;
+   start = end;
+  }
+  return this;
+ }
+
+ private RecipeTextEncoder append(char c) throws IOException {
+  if (count == chars.length) {
+   drain(false);
+  }
+  chars[count++] = c;
+  return this;
+ }
+
+ private RecipeTextEncoder append(int value) throws IOException {
+  //writes the digits straight into the buffer instead of going through Integer.toString
+  if (value == Integer.MIN_VALUE) {
+   return append("-2147483648"); //can't be negated
+  }
+  if (chars.length - count < 11) {
+   drain(false);
+  }
+  if (value < 0) {
+   chars[count++] = '-';
+   value = -value;
+  }
+  int digits = 1;
+  for (int v = value; v >= 10; v /= 10) {
+   digits++;
+  }
+  for (int i = count + digits - 1; i >= count; i--) {
+   chars[i] = (char) ('0' + value % 10);
+   value /= 10;
+  }
+  count += digits;
+  return this;
+ }
+
+ private RecipeTextEncoder appendIngredients(int[] ids) throws IOException {
+  //same text as List.toString on the decoded ingredients, e.g. [flour, eggs]
+  if (ids == null) {
+   return append("null");
+  }
+  append('[');
+  for (int i = 0; i < ids.length; i++) {
+   if (i > 0) {
+    append(", ");
+   }
+   append(IngredientDictionary.nameOf(ids[i]));
+  }
+  return append(']');
+ }
+
+ private void drain(boolean endOfInput) throws IOException {
+  //empties the char buffer into the writer, or encodes it into the byte buffer and writes that to the channel
+  if (writer != null) {
+   writer.write(chars, 0, count);
+   count = 0;
+   return;
+  }
+  charView.clear().limit(count);
+  while (true) {
+   CoderResult result = encoder.encode(charView, bytes, endOfInput);
+   if (result.isOverflow()) {
+    writeBytes();
+   } else {
+    break;
+   }
+  }
+  if (endOfInput) {
+   while (encoder.flush(bytes).isOverflow()) {
+    writeBytes();
+   }
+   writeBytes();
+   encoder.reset();
+  }
+  //a surrogate pair split across the end of the buffer stays behind for the next drain
+  int left = charView.remaining();
+  System.arraycopy(chars, charView.position(), chars, 0, left);
+  count = left;
+ }
+
+ private void writeBytes() throws IOException {
+  bytes.flip();
+  while (bytes.hasRemaining()) {
+   channel.write(bytes);
+  }
+  bytes.clear();
+ }
+}
@@ -0,0 +1,535 @@
+package recipes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class ShardedRecipeCollection implements IRecipeOperations {
+ //this class spreads the recipes over N RecipeCollection shards: recipe n is recipe n / N of shard n % N,
+ //so the shards stay the same size, positions never move and the collection order is the shards interleaved
+ //searches and sorts run on every shard at once on a fork-join pool and the shard results are merged:
+ //filters by position, sorts with a k-way merge on the sort keys, fuzzy and full text searches by rank
+ //(full text scores use the statistics of all shards together, so the ranking is the same as one collection's)
+ //each shard is saved to its own file, recipes.txt becomes recipes.shard0.txt, recipes.shard1.txt ...,
+ //and the files are read and written in parallel. like RecipeCollection it is not safe for concurrent callers
+
+ private final RecipeCollection[] shards;
+ private final ForkJoinPool pool;
+ private final List<MutationLog> autosaveLogs = new ArrayList<>();
+ private int size;
+
+ public ShardedRecipeCollection() {
+  this(Runtime.getRuntime().availableProcessors());
+ }
+
+ public ShardedRecipeCollection(int shardCount) {
+  this(shardCount, ForkJoinPool.commonPool());
+ }
+
+ public ShardedRecipeCollection(int shardCount, ForkJoinPool pool) {
+  if (shardCount < 1) {
+   throw new IllegalArgumentException("A sharded collection needs at least one shard");
+  }
+  this.shards = new RecipeCollection[shardCount];
+  for (int s = 0; s < shardCount; s++) {
+   shards[s] = new RecipeCollection();
+  }
+  this.pool = pool;
+ }
+
+ public int getShardCount() {
+  return shards.length;
+ }
+
+ public void addChangeListener(IRecipeChangeListener listener) {
+  //the listener hears collection positions, but from several shards at once, so it must be thread-safe
+  if (listener == null) {
+   return;
+  }
+  int n = shards.length;
+  for (int s = 0; s < n; s++) {
+   int shard = s;
+   shards[s].addChangeListener(new IRecipeChangeListener() {
+    @Override
+    public void recipeChanged(int position, Recipe recipe) {
+     listener.recipeChanged(position * n + shard, recipe);
+    }
+
+    @Override
+    public void recipesChanged(int[] positions, List<Recipe> recipes) {
+     int[] global = new int[positions.length];
+     for (int i = 0; i < positions.length; i++) {
+      global[i] = positions[i] * n + shard;
+     }
+     listener.recipesChanged(global, recipes);
+    }
+    //adds are passed on as changes at their collection position, since the shards report them in no
+    //particular order. a mutation log should go on each shard with autosaveTo instead
+   });
+  }
+ }
+
+ public void autosaveTo(String fileName) throws IOException {
+  //logs every change of a shard to its own file's mutation log, so each shard's file is compacted on its own
+  for (int s = 0; s < shards.length; s++) {
+   MutationLog log = new MutationLog(shardFileName(fileName, s));
+   autosaveLogs.add(log);
+   shards[s].addChangeListener(log);
+  }
+ }
+
+ public void closeAutosave() throws IOException {
+  //writes the changes still waiting in every shard's log, in parallel
+  forEachShardIO(s -> {
+   if (s < autosaveLogs.size()) {
+    autosaveLogs.get(s).close();
+   }
+   return null;
+  });
+  autosaveLogs.clear();
+ }
+
+ static String shardFileName(String fileName, int shard) {
+  //recipes.txt -> recipes.shard0.txt, keeping the extension so ".bin" shards are binary snapshots
+  File file = new File(fileName);
+  String name = file.getName();
+  int dot = name.lastIndexOf('.');
+  String sharded = dot > 0 ? name.substring(0, dot) + ".shard" + shard + name.substring(dot) : name + ".shard" + shard;
+  return file.getParent() == null ? sharded : new File(file.getParent(), sharded).getPath();
+ }
+
+ @Override
+ public void addRecipe(Recipe recipe) {
+  if (recipe != null) {
+   shards[size % shards.length].addRecipe(recipe);
+   size++;
+  }
+ }
+
+ @Override
+ public void addRecipes(Collection<Recipe> recipes) {
+  //deals the recipes out to the shards in collection order, then every shard adds its part at once
+  List<List<Recipe>> parts = deal(recipes);
+  forEachShard(s -> {
+   shards[s].addRecipes(parts.get(s));
+   return null;
+  });
+ }
+
+ private List<List<Recipe>> deal(Collection<Recipe> recipes) {
+  //the shard each non-null recipe goes to when appended after the current ones, counts them in size
+  List<List<Recipe>> parts = new ArrayList<>();
+  for (int s = 0; s < shards.length; s++) {
+   parts.add(new ArrayList<>(recipes.size() / shards.length + 1));
+  }
+  for (Recipe recipe : recipes) {
+   if (recipe != null) {
+    parts.get(size % shards.length).add(recipe);
+    size++;
+   }
+  }
+  return parts;
+ }
+
+ @Override
+ public List<Recipe> viewAllRecipes() {
+  //a read-only view that interleaves the shards, nothing is copied
+  return new AbstractList<Recipe>() {
+   @Override
+   public Recipe get(int index) {
+    if (index < 0 || index >= size) {
+     throw new IndexOutOfBoundsException(index);
+    }
+    return shards[index % shards.length].get(index / shards.length);
+   }
+
+   @Override
+   public int size() {
+    return size;
+   }
+  };
+ }
+
+ @Override
+ public List<Recipe> searchRecipes(String searchOption, String userInput) {
+  if (searchOption == null || userInput == null) {
+   return new ArrayList<>();
+  }
+  if (searchOption.equalsIgnoreCase("recipe name (fuzzy)")) {
+   //each shard's closest names, then the closest of those over the whole collection
+   List<long[]> ranked = forEachShard(s -> shards[s].fuzzyRanked(userInput, NameSearchIndex.FUZZY_LIMIT));
+   long[] all = new long[0];
+   for (int s = 0; s < shards.length; s++) {
+    int n = all.length;
+    all = Arrays.copyOf(all, n + ranked.get(s).length);
+    for (long entry : ranked.get(s)) {
+     all[n++] = NameSearchIndex.withPosition(entry, globalPosition(s, NameSearchIndex.positionOf(entry)));
+    }
+   }
+   List<Recipe> results = new ArrayList<>();
+   for (long entry : NameSearchIndex.closest(all, all.length, NameSearchIndex.FUZZY_LIMIT)) {
+    results.add(recipeAt(NameSearchIndex.positionOf(entry)));
+   }
+   return results;
+  }
+  if (searchOption.equalsIgnoreCase("full text")) {
+   //the word counts of every shard are added up first, then each shard ranks with them
+   FullTextIndex.Statistics corpus = new FullTextIndex.Statistics();
+   for (FullTextIndex.Statistics statistics : forEachShard(s -> shards[s].fullTextStatistics(userInput))) {
+    corpus.add(statistics);
+   }
+   List<long[]> ranked = forEachShard(s -> shards[s].fullTextRanked(userInput, FullTextIndex.RESULT_LIMIT, corpus));
+   long[] all = new long[0];
+   for (int s = 0; s < shards.length; s++) {
+    int n = all.length;
+    all = Arrays.copyOf(all, n + ranked.get(s).length);
+    for (long entry : ranked.get(s)) {
+     all[n++] = FullTextIndex.withPosition(entry, globalPosition(s, FullTextIndex.positionOf(entry)));
+    }
+   }
+   List<Recipe> results = new ArrayList<>();
+   for (long entry : FullTextIndex.best(all, FullTextIndex.RESULT_LIMIT)) {
+    results.add(recipeAt(FullTextIndex.positionOf(entry)));
+   }
+   return results;
+  }
+  return mergeByPosition(forEachShard(s -> shards[s].searchPositions(searchOption, userInput)));
+ }
+
+ @Override
+ public List<Recipe> searchRecipesMultipleIngredients(List<String> ingredientsList) {
+  if (ingredientsList == null || ingredientsList.isEmpty()) {
+   return new ArrayList<>();
+  }
+  return mergeByPosition(forEachShard(s -> shards[s].ingredientPositions(ingredientsList)));
+ }
+
+ @Override
+ public List<Recipe> searchRecipes(RecipeQuery query) {
+  if (query == null) {
+   return new ArrayList<>();
+  }
+  return mergeByPosition(forEachShard(s -> shards[s].queryPositions(query)));
+ }
+
+ @Override
+ public List<Recipe> sortRecipes(String sortChoice, String... fields) {
+  //every shard sorts its own recipes, then the sorted runs are merged
+  String[] specs = SortPlan.specsFor(sortChoice, fields);
+  return mergeSorted(forEachShard(s -> shards[s].sortPositions(specs)), specs, 0, size);
+ }
+
+ @Override
+ public List<Recipe> sortRecipesPage(int offset, int limit, String sortChoice, String... fields) {
+  //the page can only hold each shard's first offset + limit recipes, so that is all a shard sorts
+  if (offset < 0 || limit <= 0) {
+   return new ArrayList<>();
+  }
+  String[] specs = SortPlan.specsFor(sortChoice, fields);
+  int end = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+  return mergeSorted(forEachShard(s -> shards[s].pagePositions(0, end, specs)), specs, offset, limit);
+ }
+
+ @Override
+ public void modifyRecipe(String targetRecipeName, String fieldToModify, String newValue) {
+  int shard = shardOfFirst(targetRecipeName);
+  if (shard >= 0) {
+   shards[shard].modifyRecipe(targetRecipeName, fieldToModify, newValue);
+  }
+ }
+
+ @Override
+ public void modifyEntireRecipe(String targetRecipeName, Recipe newRecipeData) {
+  int shard = shardOfFirst(targetRecipeName);
+  if (shard >= 0) {
+   shards[shard].modifyEntireRecipe(targetRecipeName, newRecipeData);
+  }
+ }
+
+ private int shardOfFirst(String recipeName) {
+  //the shard holding the first recipe with this name, or -1. a rename can put a name in any shard,
+  //so every shard is asked, the shard's own first match is the one its modify methods change
+  int best = -1;
+  int shard = -1;
+  for (int s = 0; s < shards.length; s++) {
+   int local = shards[s].firstPosition(recipeName);
+   if (local >= 0) {
+    int position = globalPosition(s, local);
+    if (best < 0 || position < best) {
+     best = position;
+     shard = s;
+    }
+   }
+  }
+  return shard;
+ }
+
+ @Override
+ public void modifyRecipes(List<RecipeMutation> mutations) {
+  //values are checked first, so a bad number fails the batch before any shard has changed.
+  //mutations are routed to their shards and each shard applies its part at once, in order. a rename can change
+  //which recipe a later mutation finds, so the batch is cut after every mutation that may rename a recipe
+  for (RecipeMutation mutation : mutations) {
+   if (!mutation.isReplacement()) {
+    RecipeCollection.applyField(new Recipe(), mutation.getFieldToModify(), mutation.getNewValue());
+   }
+  }
+  List<List<RecipeMutation>> parts = new ArrayList<>();
+  for (int s = 0; s < shards.length; s++) {
+   parts.add(new ArrayList<>());
+  }
+  int pending = 0;
+  for (RecipeMutation mutation : mutations) {
+   int shard = shardOfFirst(mutation.getTargetRecipeName());
+   if (shard < 0) {
+    continue; //no recipe with that name
+   }
+   parts.get(shard).add(mutation);
+   pending++;
+   if (mayRename(mutation)) {
+    applyParts(parts);
+    pending = 0;
+   }
+  }
+  if (pending > 0) {
+   applyParts(parts);
+  }
+ }
+
+ private static boolean mayRename(RecipeMutation mutation) {
+  if (mutation.isReplacement()) {
+   Recipe replacement = mutation.getNewRecipeData();
+   return replacement != null && !mutation.getTargetRecipeName().equalsIgnoreCase(replacement.getRecipeName());
+  }
+  return mutation.getFieldToModify().equalsIgnoreCase("recipeName");
+ }
+
+ private void applyParts(List<List<RecipeMutation>> parts) {
+  forEachShard(s -> {
+   if (!parts.get(s).isEmpty()) {
+    shards[s].modifyRecipes(parts.get(s));
+   }
+   return null;
+  });
+  for (List<RecipeMutation> part : parts) {
+   part.clear();
+  }
+ }
+
+ @Override
+ public void exportRecipes(String fileName) throws IOException {
+  //one file with every recipe in collection order, saveShards writes a file per shard instead
+  RecipeCollection.writeRecipeFile(viewAllRecipes(), new File(fileName));
+  if (size == 0) {
+   System.out.println("No recipes to export, file cleared: " + fileName);
+   return;
+  }
+  System.out.println("Recipes exported successfully to " + fileName);
+ }
+
+ @Override
+ public void exportRecipes(Writer writer) throws IOException {
+  RecipeCollection.writeRecipes(viewAllRecipes(), writer);
+ }
+
+ @Override
+ public void exportRecipes(OutputStream out, boolean compress) throws IOException {
+  RecipeCollection.writeRecipes(viewAllRecipes(), out, compress);
+ }
+
+ @Override
+ public void exportRecipes(WritableByteChannel channel) throws IOException {
+  RecipeCollection.writeRecipes(viewAllRecipes(), channel);
+ }
+
+ public void saveShards(String fileName) throws IOException {
+  //writes every shard to its own file at the same time
+  forEachShardIO(s -> {
+   RecipeCollection.writeRecipeFile(shards[s].viewAllRecipes(), new File(shardFileName(fileName, s)));
+   return null;
+  });
+  System.out.println("Recipes saved to " + shards.length + " shard files for " + fileName);
+ }
+
+ @Override
+ public void loadRecipes(String fileName) throws IOException {
+  //reads the shard files of fileName in parallel if there are any, otherwise the single file.
+  //the shard files may come from a different shard count: they are interleaved back into collection order
+  //and appended like any other recipes, each shard indexing its part on its own thread
+  int files = 0;
+  while (new File(shardFileName(fileName, files)).exists() || MutationLog.exists(shardFileName(fileName, files))) {
+   files++;
+  }
+  List<Recipe> loaded;
+  if (files == 0) {
+   loaded = RecipeCollection.readRecipes(fileName);
+   if (loaded == null) {
+    System.out.println("No autosave file found, starting with an empty collection.");
+    return;
+   }
+  } else {
+   int fileCount = files;
+   List<List<Recipe>> parts = forEachIO(fileCount, f -> {
+    List<Recipe> part = RecipeCollection.readRecipes(shardFileName(fileName, f));
+    return part == null ? new ArrayList<>() : part;
+   });
+   int total = 0;
+   for (List<Recipe> part : parts) {
+    total += part.size();
+   }
+   loaded = new ArrayList<>(total);
+   for (int i = 0; loaded.size() < total; i++) {
+    for (List<Recipe> part : parts) {
+     if (i < part.size()) {
+      loaded.add(part.get(i));
+     }
+    }
+   }
+  }
+  List<List<Recipe>> dealt = deal(loaded);
+  forEachShard(s -> {
+   shards[s].addLoaded(dealt.get(s)); //the autosave logs only hear about them if they were attached before the load
+   return null;
+  });
+  System.out.println("Loaded recipes from " + fileName);
+ }
+
+ private List<Recipe> mergeByPosition(List<int[]> found) {
+  //merges each shard's ascending positions into collection order
+  return merge(found, (shardA, localA, shardB, localB) -> Integer.compare(globalPosition(shardA, localA),
+                                                                        globalPosition(shardB, localB)),
+               0, Integer.MAX_VALUE);
+ }
+
+ private List<Recipe> mergeSorted(List<int[]> sorted, String[] specs, int offset, int limit) {
+  //k-way merge of each shard's sorted positions on the sort keys, equal keys in collection order
+  SortPlan plan = shards[0].planFor(specs);
+  return merge(sorted, (shardA, localA, shardB, localB) -> {
+   int order = plan.compare(shards[shardA].columns(), localA, shards[shardB].columns(), localB);
+   return order != 0 ? order : Integer.compare(globalPosition(shardA, localA), globalPosition(shardB, localB));
+  }, offset, limit);
+ }
+
+ private interface ShardOrder {
+  int compare(int shardA, int localA, int shardB, int localB);
+ }
+
+ private List<Recipe> merge(List<int[]> runs, ShardOrder order, int offset, int limit) {
+  //merges sorted runs of shard positions with a binary heap of shard numbers, the head of each run on top,
+  //skipping the first offset recipes and stopping after limit
+  int[] cursors = new int[runs.size()];
+  int[] heap = new int[runs.size()];
+  int heapSize = 0;
+  for (int s = 0; s < runs.size(); s++) {
+   if (runs.get(s).length > 0) {
+    heap[heapSize++] = s;
+   }
+  }
+  for (int i = heapSize / 2 - 1; i >= 0; i--) {
+   siftDown(heap, heapSize, i, runs, cursors, order);
+  }
+  int total = 0;
+  for (int[] run : runs) {
+   total += run.length;
+  }
+  List<Recipe> results = new ArrayList<>(Math.max(0, Math.min(limit, total - offset)));
+  int seen = 0;
+  while (heapSize > 0 && results.size() < limit) {
+   int s = heap[0];
+   int local = runs.get(s)[cursors[s]++];
+   if (seen++ >= offset) {
+    results.add(shards[s].get(local));
+   }
+   if (cursors[s] == runs.get(s).length) {
+    heap[0] = heap[--heapSize];
+   }
+   siftDown(heap, heapSize, 0, runs, cursors, order);
+  }
+  return results;
+ }
+
+ private static void siftDown(int[] heap, int heapSize, int i, List<int[]> runs, int[] cursors, ShardOrder order) {
+  while (true) {
+   int smallest = i;
+   for (int child = 2 * i + 1; child <= 2 * i + 2 && child < heapSize; child++) {
+    int a = heap[child];
+    int b = heap[smallest];
+    if (order.compare(a, runs.get(a)[cursors[a]], b, runs.get(b)[cursors[b]]) < 0) {
+     smallest = child;
+    }
+   }
+   if (smallest == i) {
+    return;
+   }
+   int swap = heap[i];
+   heap[i] = heap[smallest];
+   heap[smallest] = swap;
+   i = smallest;
+  }
+ }
+
+ private int globalPosition(int shard, int local) {
+  return local * shards.length + shard;
+ }
+
+ private Recipe recipeAt(int position) {
+  return shards[position % shards.length].get(position / shards.length);
+ }
+
+ private interface ShardTask<T> {
+  T run(int index) throws IOException;
+ }
+
+ private <T> List<T> forEachShard(ShardTask<T> task) {
+  //runs the task for every shard at once on the pool, results in shard order
+  try {
+   return forEachIO(shards.length, task);
+  } catch (IOException e) {
+   throw new UncheckedIOException(e); //only the file tasks throw, and they go through forEachShardIO
+  }
+ }
+
+ private <T> List<T> forEachShardIO(ShardTask<T> task) throws IOException {
+  return forEachIO(shards.length, task);
+ }
+
+ private <T> List<T> forEachIO(int count, ShardTask<T> task) throws IOException {
+  //a single task runs on the calling thread, there is nothing to run it alongside
+  List<T> results = new ArrayList<>(count);
+  if (count == 1) {
+   results.add(task.run(0));
+   return results;
+  }
+  List<ForkJoinTask<T>> running = new ArrayList<>(count);
+  for (int i = 0; i < count; i++) {
+   int index = i;
+   Callable<T> callable = () -> task.run(index);
+   running.add(pool.submit(callable));
+  }
+  for (ForkJoinTask<T> forked : running) {
+   try {
+    results.add(forked.join());
+   } catch (RuntimeException e) {
+    //join rethrows what the task threw, an IOException comes back wrapped
+    for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+     if (cause instanceof IOException) {
+      throw (IOException) cause;
+     }
+    }
+    throw e;
+   }
+  }
+  return results;
+ }
+}
@@ -0,0 +1,204 @@
+package recipes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class SortPlan {
+ //a sort spec compiled once into field codes and directions, then run over the RecipeColumns arrays
+ //every recipe's keys are packed into one long (field keys in the high bits, position in the low bits)
+ //and sorted as primitives, so there are no comparators, boxing or per-compare allocation
+ //equal keys keep position order, the same result as the stable List.sort used before
+
+ private static final int PREP_TIME = 0;
+ private static final int COOK_TIME = 1;
+ private static final int RATING = 2;
+ private static final int DIFFICULTY = 3;
+
+ private static final String[] FIELD_NAMES = {"preptime", "cooktime", "rating", "difficulty"};
+
+ private final int[] fields;
+ private final boolean[] descending;
+ private final boolean explicitDirection; //true if any spec named asc or desc
+
+ private SortPlan(int[] fields, boolean[] descending, boolean explicitDirection) {
+  this.fields = fields;
+  this.descending = descending;
+  this.explicitDirection = explicitDirection;
+ }
+
+ static String[] specsFor(String sortChoice, String... fields) {
+  //"single" sorts by the first field, "multiple" by every field in turn, e.g. rating then cook time
+  if (sortChoice.equalsIgnoreCase("single") && fields.length > 0) {
+   return new String[] {fields[0]};
+  } else if (sortChoice.equalsIgnoreCase("multiple")) {
+   return fields;
+  }
+  return new String[0]; //keeps the original order
+ }
+
+ static SortPlan compile(String... specs) {
+  //each spec is a field name with an optional "asc" or "desc", e.g. "rating", "cookTime desc"
+  //rating sorts descending by default and the other fields ascending. unknown fields are skipped,
+  //the same as the old comparator treating them as equal
+  List<int[]> parsed = new ArrayList<>();
+  boolean explicit = false;
+  for (String spec : specs) {
+   String[] parts = spec.trim().toLowerCase().split("[\\s:]+");
+   int field;
+   switch (parts[0]) {
+    case "preptime":
+     field = PREP_TIME;
+     break;
+    case "cooktime":
+     field = COOK_TIME;
+     break;
+    case "rating":
+     field = RATING;
+     break;
+    case "difficulty":
+     field = DIFFICULTY;
+     break;
+    default:
+     continue;
+   }
+   boolean desc = field == RATING;
+   if (parts.length > 1 && parts[1].equals("asc")) {
+    desc = false;
+    explicit = true;
+   } else if (parts.length > 1 && parts[1].equals("desc")) {
+    desc = true;
+    explicit = true;
+   }
+   parsed.add(new int[] {field, desc ? 1 : 0});
+  }
+  int[] fields = new int[parsed.size()];
+  boolean[] descending = new boolean[parsed.size()];
+  for (int i = 0; i < fields.length; i++) {
+   fields[i] = parsed.get(i)[0];
+   descending[i] = parsed.get(i)[1] == 1;
+  }
+  return new SortPlan(fields, descending, explicit);
+ }
+
+ boolean isEmpty() {
+  return fields.length == 0;
+ }
+
+ int fieldCount() {
+  return fields.length;
+ }
+
+ String fieldName(int index) {
+  //lower-case name of a field in the plan, the same names the sorted views use
+  return FIELD_NAMES[fields[index]];
+ }
+
+ boolean hasExplicitDirection() {
+  return explicitDirection;
+ }
+
+ int compare(RecipeColumns columnsA, int positionA, RecipeColumns columnsB, int positionB) {
+  //orders two recipes, possibly from different collections, by the plan's fields alone, 0 if every key is equal
+  for (int f = 0; f < fields.length; f++) {
+   int order = Long.compare(value(columnsA, fields[f], positionA), value(columnsB, fields[f], positionB));
+   if (order != 0) {
+    return descending[f] ? -order : order;
+   }
+  }
+  return 0;
+ }
+
+ int[] sort(RecipeColumns columns) {
+  //returns recipe positions in sorted order
+  int n = columns.size();
+  int[] order = new int[n];
+  for (int i = 0; i < n; i++) {
+   order[i] = i;
+  }
+  if (n < 2 || fields.length == 0) {
+   return order;
+  }
+  int positionBits = bitsFor(n - 1);
+  long positionMask = (1L << positionBits) - 1;
+
+  //finds each field's range so the keys only take the bits they need
+  long[] mins = new long[fields.length];
+  int[] bits = new int[fields.length];
+  int totalBits = positionBits;
+  for (int f = 0; f < fields.length; f++) {
+   long min = Long.MAX_VALUE;
+   long max = Long.MIN_VALUE;
+   for (int i = 0; i < n; i++) {
+    long v = value(columns, fields[f], i);
+    min = Math.min(min, v);
+    max = Math.max(max, v);
+   }
+   mins[f] = descending[f] ? max : min;
+   bits[f] = bitsFor(max - min);
+   totalBits += bits[f];
+  }
+
+  long[] keys = new long[n];
+  if (totalBits <= 63) {
+   //everything fits in one long, a single primitive sort does it
+   for (int i = 0; i < n; i++) {
+    keys[i] = i;
+   }
+   int shift = positionBits;
+   for (int f = fields.length - 1; f >= 0; f--) {
+    addKeys(columns, f, mins[f], order, keys, shift);
+    shift += bits[f];
+   }
+   Arrays.sort(keys);
+   for (int i = 0; i < n; i++) {
+    order[i] = (int) (keys[i] & positionMask);
+   }
+   return order;
+  }
+
+  //too wide for one long: one stable pass per field, least significant field first,
+  //where the low bits hold the rank from the previous pass
+  int[] next = new int[n];
+  for (int f = fields.length - 1; f >= 0; f--) {
+   for (int j = 0; j < n; j++) {
+    keys[j] = j;
+   }
+   addKeys(columns, f, mins[f], order, keys, positionBits);
+   Arrays.sort(keys);
+   for (int j = 0; j < n; j++) {
+    next[j] = order[(int) (keys[j] & positionMask)];
+   }
+   int[] swap = order;
+   order = next;
+   next = swap;
+  }
+  return order;
+ }
+
+ private void addKeys(RecipeColumns columns, int f, long base, int[] order, long[] keys, int shift) {
+  //ORs the normalised key of field f for the recipe at order[j] into keys[j]
+  boolean desc = descending[f];
+  for (int j = 0; j < keys.length; j++) {
+   long v = value(columns, fields[f], order[j]);
+   keys[j] |= (desc ? base - v : v - base) << shift;
+  }
+ }
+
+ private static long value(RecipeColumns columns, int field, int position) {
+  switch (field) {
+   case PREP_TIME:
+    return columns.prepTime(position);
+   case COOK_TIME:
+    return columns.cookTime(position);
+   case RATING:
+    return columns.rating(position);
+   default:
+    return columns.difficulty(position);
+  }
+ }
+
+ private static int bitsFor(long value) {
+  return 64 - Long.numberOfLeadingZeros(value);
+ }
+}
@@ -0,0 +1,180 @@
+package recipes;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+class SortedView {
+ //keeps the recipe positions ordered by one sort field, updated as recipes change
+ //each entry packs the sort key into the high 32 bits and the position into the low 32 bits,
+ //so equal keys stay in position order just like the stable List.sort
+ //the entries are a sorted long[] plus an unsorted batch of entries added since the last merge, about 8 bytes per
+ //recipe instead of a tree node each. a change only appends the new entry: an entry whose key is no longer the
+ //recipe's key in keysByPosition is stale and skipped, so nothing is removed until the batch is merged in.
+ //reads merge the sorted batch on the fly and never change the view, so concurrent readers need no lock
+
+ private static final int MIN_BATCH = 256; //entries added before a merge, or a sixteenth of the view if more
+
+ private final String field;
+ private long[] entries = new long[0]; //sorted, may hold stale entries
+ private int count;
+ private long[] added = new long[16]; //entries since the last merge, in the order they came
+ private int addedCount;
+ private int[] keysByPosition = new int[16];
+ private int size;
+
+ private SortedView(String field) {
+  this.field = field;
+ }
+
+ static SortedView forField(String field) {
+  //returns a view for a known sort field, or null
+  switch (field) {
+   case "preptime":
+   case "cooktime":
+   case "rating":
+   case "difficulty":
+    return new SortedView(field);
+   default:
+    return null;
+  }
+ }
+
+ static int keyOf(String field, Recipe recipe) {
+  //sort key where ascending key order is the order sortRecipes uses for the field
+  switch (field) {
+   case "preptime":
+    return recipe.getPrepTime();
+   case "cooktime":
+    return recipe.getCookTime();
+   case "rating":
+    return ~recipe.getRating(); //descending, ~x is -x - 1 without overflowing
+   case "difficulty":
+    return difficultyRank(recipe.getDifficulty());
+   default:
+    return 0;
+  }
+ }
+
+ static int difficultyRank(String difficulty) {
+  //easy < medium < hard, anything else sorts first like indexOf returning -1
+  if (difficulty == null) {
+   return -1;
+  }
+  switch (difficulty.toLowerCase()) {
+   case "easy":
+    return 0;
+   case "medium":
+    return 1;
+   case "hard":
+    return 2;
+   default:
+    return -1;
+  }
+ }
+
+ void update(int position, Recipe recipe) {
+  //moves the recipe at this position to where its current key belongs
+  int key = keyOf(field, recipe);
+  if (position < size) {
+   if (keysByPosition[position] == key) {
+    return;
+   }
+  } else {
+   if (size == keysByPosition.length) {
+    keysByPosition = Arrays.copyOf(keysByPosition, size * 2);
+   }
+   size++;
+  }
+  keysByPosition[position] = key; //the entry with the old key is stale from now on
+  if (addedCount == added.length) {
+   added = Arrays.copyOf(added, addedCount * 2);
+  }
+  added[addedCount++] = pack(key, position);
+  if (addedCount > Math.max(MIN_BATCH, count >> 4)) {
+   merge();
+  }
+ }
+
+ private void merge() {
+  //rebuilds the sorted entries with the batch in and the stale entries out
+  long[] merged = new long[count + addedCount];
+  int n = 0;
+  for (PrimitiveIterator.OfLong it = iterator(); it.hasNext();) {
+   merged[n++] = it.nextLong();
+  }
+  entries = merged;
+  count = n;
+  addedCount = 0;
+  if (added.length > MIN_BATCH * 2) {
+   added = new long[16];
+  }
+ }
+
+ int keyAt(int position) {
+  return keysByPosition[position];
+ }
+
+ PrimitiveIterator.OfLong iterator() {
+  //entries in sort order, use keyOf(entry) and positionOf(entry) to unpack
+  return new Entries();
+ }
+
+ private class Entries implements PrimitiveIterator.OfLong {
+  //walks the sorted entries and the sorted batch together, skipping stale entries and an entry found in both
+  private final long[] sorted = entries;
+  private final int sortedCount = count;
+  private final long[] batch;
+  private int i;
+  private int j;
+  private long next;
+  private boolean hasNext;
+  private boolean started;
+
+  Entries() {
+   batch = Arrays.copyOf(added, addedCount);
+   Arrays.sort(batch);
+   advance();
+  }
+
+  private void advance() {
+   hasNext = false;
+   while (i < sortedCount || j < batch.length) {
+    long entry = j == batch.length || (i < sortedCount && sorted[i] <= batch[j]) ? sorted[i++] : batch[j++];
+    if (keysByPosition[positionOf(entry)] == keyOf(entry) && !(started && entry == next)) {
+     next = entry;
+     hasNext = true;
+     started = true;
+     return;
+    }
+   }
+  }
+
+  @Override
+  public boolean hasNext() {
+   return hasNext;
+  }
+
+  @Override
+  public long nextLong() {
+   if (!hasNext) {
+    throw new NoSuchElementException();
+   }
+   long entry = next;
+   advance();
+   return entry;
+  }
+ }
+
+ static int keyOf(long entry) {
+  return (int) (entry >> 32);
+ }
+
+ static int positionOf(long entry) {
+  return (int) entry;
+ }
+
+ static long pack(int key, int position) {
+  return ((long) key << 32) | (position & 0xffffffffL);
+ }
+}
@@ -0,0 +1,89 @@
+package recipes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class SyntheticRecipeGenerator {
+ //this class makes deterministic fake recipes for benchmarks, the same seed always gives the same recipes
+ //ingredients, cuisines and words follow a zipf-like skew so a few values are very common and most are rare,
+ //which is roughly how real recipe collections look
+
+ private static final String[] CUISINES = {"Italian", "American", "Mexican", "Chinese", "Indian", "French",
+  "Japanese", "Thai", "Greek", "Spanish", "Korean", "Vietnamese", "Turkish", "Lebanese", "Moroccan",
+  "Brazilian", "Ethiopian", "German", "Caribbean", "Peruvian"};
+ private static final String[] MEAL_TYPES = {"dinner", "dinner", "dinner", "lunch", "lunch", "breakfast", "snack"};
+ private static final String[] DIFFICULTIES = {"easy", "easy", "easy", "medium", "medium", "hard"};
+ private static final String[] INGREDIENT_BASES = {"salt", "pepper", "olive oil", "butter", "garlic", "onion",
+  "egg", "flour", "sugar", "milk", "chicken breast", "ground beef", "rice", "tomato", "lemon", "cheese",
+  "parsley", "basil", "cumin", "paprika", "ginger", "soy sauce", "potato", "carrot", "celery", "cream",
+  "pasta", "bread crumbs", "honey", "vinegar", "spinach", "mushroom", "bell pepper", "chili", "coconut milk",
+  "shrimp", "salmon", "tofu", "beans", "lentils", "yogurt", "oats", "cinnamon", "vanilla", "baking soda"};
+ private static final String[] INGREDIENT_PREFIXES = {"", "", "", "fresh ", "chopped ", "1 cup ", "2 tbsp ",
+  "1/2 cup ", "dried ", "minced ", "sliced ", "1 tsp ", "grated ", "smoked ", "organic "};
+ private static final String[] WORDS = {"mix", "stir", "bake", "simmer", "chop", "preheat", "oven", "pan",
+  "minutes", "until", "golden", "add", "the", "and", "with", "heat", "medium", "serve", "season", "boil",
+  "overnight", "air", "fryer", "whisk", "fold", "rest", "cover", "drain", "toss", "slowly", "gently", "then",
+  "a", "to", "of", "in", "for", "low", "high", "crispy", "tender", "sauce", "dough", "batter", "flip"};
+
+ private final Random random;
+ private final String[] ingredients;
+ private int counter;
+
+ public SyntheticRecipeGenerator(long seed) {
+  this.random = new Random(seed);
+  //prefix and base combinations give a few hundred distinct ingredient strings
+  this.ingredients = new String[INGREDIENT_BASES.length * INGREDIENT_PREFIXES.length];
+  int n = 0;
+  for (String base : INGREDIENT_BASES) {
+   for (String prefix : INGREDIENT_PREFIXES) {
+    ingredients[n++] = prefix + base;
+   }
+  }
+ }
+
+ public Recipe next() {
+  //builds the next recipe in the sequence
+  int id = counter++;
+  int ingredientCount = 3 + random.nextInt(8);
+  List<String> ingList = new ArrayList<>(ingredientCount);
+  for (int i = 0; i < ingredientCount; i++) {
+   ingList.add(ingredients[skewed(ingredients.length)]);
+  }
+  String name = WORDS[skewed(WORDS.length)] + " " + INGREDIENT_BASES[skewed(INGREDIENT_BASES.length)] + " " + id;
+  return new Recipe(name, CUISINES[skewed(CUISINES.length)], MEAL_TYPES[random.nextInt(MEAL_TYPES.length)],
+                    ingList, sentence(12 + random.nextInt(40)), 5 + random.nextInt(55), random.nextInt(180),
+                    DIFFICULTIES[random.nextInt(DIFFICULTIES.length)], 1 + random.nextInt(5),
+                    sentence(random.nextInt(15)));
+ }
+
+ public List<Recipe> generate(int count) {
+  List<Recipe> list = new ArrayList<>(count);
+  for (int i = 0; i < count; i++) {
+   list.add(next());
+  }
+  return list;
+ }
+
+ public String randomIngredient() {
+  //an ingredient term drawn with the same skew as the recipes, for search benchmarks
+  return INGREDIENT_BASES[skewed(INGREDIENT_BASES.length)];
+ }
+
+ private int skewed(int size) {
+  //zipf-like index, low indexes are picked far more often than high ones
+  double u = random.nextDouble();
+  return Math.min(size - 1, (int) (size * u * u * u));
+ }
+
+ private String sentence(int words) {
+  StringBuilder text = new StringBuilder();
+  for (int i = 0; i < words; i++) {
+   if (i > 0) {
+    text.append(' ');
+   }
+   text.append(WORDS[skewed(WORDS.length)]);
+  }
+  return text.toString();
+ }
+}
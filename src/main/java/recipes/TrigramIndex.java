@@ -0,0 +1,81 @@
+package recipes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class TrigramIndex {
+ //maps every three character piece of a string to the ids of the strings containing it
+ //used to narrow down substring searches before checking the real strings
+
+ private final Map<Long, IntList> postings = new HashMap<>();
+
+ void add(int id, String text) {
+  //indexes every distinct trigram of the text under the id
+  for (long gram : trigrams(text)) {
+   postings.computeIfAbsent(gram, g -> new IntList()).addSorted(id);
+  }
+ }
+
+ void remove(int id, String text) {
+  //removes the id from every trigram of the text
+  for (long gram : trigrams(text)) {
+   IntList list = postings.get(gram);
+   if (list != null) {
+    list.removeSorted(id);
+    if (list.size() == 0) {
+     postings.remove(gram);
+    }
+   }
+  }
+ }
+
+ int[] candidates(String term) {
+  //returns the ids that contain every trigram of the term, in ascending order
+  //returns null when the term is too short to narrow anything down
+  if (term == null || term.length() < 3) {
+   return null;
+  }
+  List<IntList> lists = new ArrayList<>();
+  for (long gram : trigrams(term)) {
+   IntList list = postings.get(gram);
+   if (list == null) {
+    return new int[0]; //a missing trigram means nothing can match
+   }
+   lists.add(list);
+  }
+  //start with the shortest list so the intersection shrinks quickly
+  lists.sort(Comparator.comparingInt(IntList::size));
+  int[] result = lists.get(0).toArray();
+  for (int i = 1; i < lists.size() && result.length > 0; i++) {
+   result = IntList.intersect(result, lists.get(i));
+  }
+  return result;
+ }
+
+ IntList postings(long gram) {
+  //ids containing the packed trigram, null if none
+  return postings.get(gram);
+ }
+
+ static long pack(char a, char b, char c) {
+  //packs a trigram's three chars into one long key
+  return ((long) a << 32) | ((long) b << 16) | c;
+ }
+
+ static Set<Long> trigrams(String text) {
+  //every distinct trigram of the text
+  Set<Long> grams = new HashSet<>();
+  if (text == null) {
+   return grams;
+  }
+  for (int i = 0; i + 3 <= text.length(); i++) {
+   grams.add(pack(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2)));
+  }
+  return grams;
+ }
+}
@@ -0,0 +1,44 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BinaryRecipeFormatTest {
+ //null strings and lists are written with a length of -1, so they have to come back null and not empty
+
+ @TempDir
+ Path dir;
+
+ private static List<String> texts(List<Recipe> recipes) {
+  List<String> texts = new ArrayList<>();
+  for (Recipe recipe : recipes) {
+   texts.add(recipe.toString());
+  }
+  return texts;
+ }
+
+ @Test
+ void everyFieldSurvivesTheRoundTrip() throws IOException {
+  List<Recipe> recipes = new ArrayList<>(new SyntheticRecipeGenerator(5).generate(2000));
+  recipes.add(new Recipe()); //every string and the ingredient list null
+  recipes.add(new Recipe("", "", "", List.of(), "", 0, 0, "", 0, ""));
+  recipes.add(new Recipe("Crème brûlée 🍮", "Français", "dessert", Arrays.asList("crème", null, "sucre"),
+                         "Line one\nline two", -1, Integer.MAX_VALUE, "hard", Integer.MIN_VALUE, "Notes: \"quoted\""));
+  File file = dir.resolve("recipes" + BinaryRecipeFormat.EXTENSION).toFile();
+  BinaryRecipeFormat.write(recipes, file);
+  assertEquals(texts(recipes), texts(BinaryRecipeFormat.read(file)));
+
+  RecipeCollection loaded = new RecipeCollection();
+  loaded.loadRecipes(file.getPath());
+  assertEquals(texts(recipes), texts(loaded.viewAllRecipes()));
+ }
+}
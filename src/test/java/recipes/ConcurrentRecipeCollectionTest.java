@@ -0,0 +1,84 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentRecipeCollectionTest {
+ //a writer sets the rating of the first half of the recipes to one value per batch while readers check
+ //that they only ever see a whole batch applied or none of it
+
+ private static final int RECIPES = 200;
+ private static final int BATCHED = 100;
+
+ private static String problem(List<Recipe> recipes, String operation) {
+  //a description of a half-applied batch in the list, or null
+  int expected = -1;
+  int batched = 0;
+  for (Recipe recipe : recipes) {
+   if (Integer.parseInt(recipe.getRecipeName().substring(7)) >= BATCHED) {
+    continue;
+   }
+   batched++;
+   if (expected < 0) {
+    expected = recipe.getRating();
+   } else if (recipe.getRating() != expected) {
+    return operation + " saw ratings " + expected + " and " + recipe.getRating() + " in one batch";
+   }
+  }
+  return batched == 0 || batched == BATCHED ? null : operation + " saw " + batched + " of the batch";
+ }
+
+ @Test
+ void readersNeverSeeAHalfAppliedBatch() throws InterruptedException {
+  ConcurrentRecipeCollection recipes = new ConcurrentRecipeCollection();
+  List<Recipe> initial = new ArrayList<>();
+  for (int i = 0; i < RECIPES; i++) {
+   initial.add(new Recipe("Recipe " + i, "Italian", "dinner", List.of("flour"), "Mix", 5, 10, "easy", 1, ""));
+  }
+  recipes.addRecipes(initial);
+
+  AtomicBoolean writing = new AtomicBoolean(true);
+  AtomicReference<String> failure = new AtomicReference<>();
+  List<Thread> readers = new ArrayList<>();
+  for (int r = 0; r < 4; r++) {
+   readers.add(Thread.ofPlatform().start(() -> {
+    int rating = 1;
+    while (writing.get() && failure.get() == null) {
+     String seen = problem(recipes.viewAllRecipes(), "viewAllRecipes");
+     if (seen == null) {
+      seen = problem(recipes.sortRecipes("single", "rating"), "sortRecipes");
+     }
+     if (seen == null) {
+      List<Recipe> rated = recipes.searchRecipes(new RecipeQuery().withRating(rating, rating));
+      seen = problem(rated, "searchRecipes");
+     }
+     if (seen != null) {
+      failure.compareAndSet(null, seen);
+     }
+     rating = rating % 5 + 1;
+    }
+   }));
+  }
+
+  for (int round = 0; round < 300; round++) {
+   List<RecipeMutation> batch = new ArrayList<>();
+   for (int i = 0; i < BATCHED; i++) {
+    batch.add(new RecipeMutation("Recipe " + i, "rating", String.valueOf(round % 5 + 1)));
+   }
+   recipes.modifyRecipes(batch);
+  }
+  writing.set(false);
+  for (Thread reader : readers) {
+   reader.join();
+  }
+  assertNull(failure.get());
+  assertEquals(5, recipes.viewAllRecipes().get(0).getRating()); //round 299 is the last, 299 % 5 + 1
+ }
+}
@@ -0,0 +1,103 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiskRecipeCollectionTest {
+ //the names are only kept in the data file, so the name searches must follow renames, compaction and reopening
+
+ @TempDir
+ Path dir;
+
+ private static Recipe recipe(String name, int rating) {
+  return new Recipe(name, "Italian", "dinner", List.of("flour", "egg"), "Mix", 5, 10, "easy", rating, "");
+ }
+
+ private static List<String> names(List<Recipe> recipes) {
+  List<String> names = new ArrayList<>();
+  for (Recipe recipe : recipes) {
+   names.add(recipe.getRecipeName());
+  }
+  return names;
+ }
+
+ @Test
+ void renamedRecipesAreFoundByTheirNewNameOnly() throws IOException {
+  DiskRecipeCollection recipes = new DiskRecipeCollection(dir.resolve("recipes.dat").toString(), 2);
+  recipes.addRecipes(List.of(recipe("Pancakes", 3), recipe("Waffles", 4), recipe("pancakes", 5)));
+  recipes.modifyRecipe("Waffles", "recipeName", "Crepes");
+
+  assertEquals(List.of("Pancakes", "pancakes"), names(recipes.searchRecipes("recipe name (exact)", "PANCAKES")));
+  assertEquals(List.of("Crepes"), names(recipes.searchRecipes("recipe name (partial)", "crep")));
+  assertTrue(recipes.searchRecipes("recipe name (partial)", "waff").isEmpty());
+  recipes.close();
+ }
+
+ @Test
+ void compactionKeepsTheLatestRecordOfEachRecipe() throws IOException {
+  File data = dir.resolve("recipes.dat").toFile();
+  DiskRecipeCollection recipes = new DiskRecipeCollection(data.getPath(), 2);
+  recipes.addRecipes(List.of(recipe("One", 1), recipe("Two", 1), recipe("Three", 1)));
+  for (int rating = 2; rating <= 5; rating++) {
+   recipes.modifyRecipe("Two", "rating", String.valueOf(rating));
+  }
+  recipes.compact();
+  recipes.modifyRecipe("Three", "recipeName", "Four");
+  recipes.close();
+
+  DiskRecipeCollection reopened = new DiskRecipeCollection(data.getPath(), 2);
+  assertEquals(List.of("One", "Two", "Four"), names(reopened.viewAllRecipes()));
+  assertEquals(5, reopened.viewAllRecipes().get(1).getRating());
+  assertEquals(List.of("Four"), names(reopened.searchRecipes("recipe name (exact)", "four")));
+  reopened.close();
+ }
+
+ @Test
+ void fullTextSearchWorksWithAndWithoutTheIndex() throws IOException {
+  List<Recipe> batch = List.of(
+      new Recipe("Soup", "French", "lunch", List.of("onion"), "Simmer the onions slowly", 10, 60, "easy", 4, ""),
+      new Recipe("Toast", "British", "breakfast", List.of("bread"), "Toast the bread", 1, 3, "easy", 3, "Serve with onions"),
+      new Recipe("Salad", "Greek", "lunch", List.of("feta"), "Chop and toss", 10, 0, "easy", 5, ""));
+  DiskRecipeCollection scanned = new DiskRecipeCollection(dir.resolve("scanned.dat").toString());
+  DiskRecipeCollection indexed = new DiskRecipeCollection(dir.resolve("indexed.dat").toString(), 10, true);
+  scanned.addRecipes(batch);
+  indexed.addRecipes(batch);
+
+  assertEquals(List.of("Soup", "Toast"), names(scanned.searchRecipes("full text", "onions")));
+  assertEquals(List.of("Soup", "Toast"), names(indexed.searchRecipes("full text", "onions")));
+  assertEquals(List.of("Soup"), names(scanned.searchRecipes("full text", "Simmer onions")));
+  scanned.close();
+  indexed.close();
+ }
+
+ @Test
+ void viewAllKeepsItsSize() throws IOException {
+  DiskRecipeCollection recipes = new DiskRecipeCollection(dir.resolve("recipes.dat").toString());
+  recipes.addRecipe(recipe("One", 1));
+  List<Recipe> view = recipes.viewAllRecipes();
+  recipes.addRecipe(recipe("Two", 1));
+  assertEquals(1, view.size());
+  assertEquals(2, recipes.viewAllRecipes().size());
+  recipes.close();
+ }
+ @Test
+ void modifyingARecipeLeavesRecipesAlreadyHandedOutAlone() throws IOException {
+  DiskRecipeCollection recipes = new DiskRecipeCollection(dir.resolve("recipes.dat").toString(), 2);
+  recipes.addRecipe(recipe("One", 1));
+  Recipe before = recipes.searchRecipes("recipe name (exact)", "One").get(0);
+  recipes.modifyRecipe("One", "rating", "4");
+
+  assertEquals(1, before.getRating());
+  assertEquals(4, recipes.searchRecipes("recipe name (exact)", "One").get(0).getRating());
+  recipes.close();
+ }
+}
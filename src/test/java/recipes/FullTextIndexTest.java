@@ -0,0 +1,36 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class FullTextIndexTest {
+
+ @Test
+ void postingsHoldAnyPositionWithItsCount() {
+  FullTextIndex.Postings postings = new FullTextIndex.Postings();
+  postings.add(Integer.MAX_VALUE - 1, 500);
+  postings.add(1 << 26, 2);
+  postings.add(0, 1);
+  assertEquals(3, postings.size());
+  assertEquals(0, postings.positionAt(0));
+  assertEquals(1 << 26, postings.positionAt(1));
+  assertEquals(Integer.MAX_VALUE - 1, postings.positionAt(2));
+  assertEquals(Byte.MAX_VALUE, postings.countAt(2)); //counts above the cap score the same
+  postings.remove(1 << 26);
+  assertEquals(Integer.MAX_VALUE - 1, postings.positionAt(1));
+  assertEquals(Byte.MAX_VALUE, postings.countAt(1));
+ }
+
+ @Test
+ void changedTextReplacesTheOldPostings() {
+  FullTextIndex index = new FullTextIndex();
+  index.update(0, "Whisk the eggs, whisk again and whisk once more", null);
+  index.update(1, "Whisk the cream", null);
+  assertArrayEquals(new int[] {0, 1}, index.search("whisk", 10));
+  index.update(0, "Beat the eggs", null);
+  assertArrayEquals(new int[] {1}, index.search("whisk", 10));
+  assertArrayEquals(new int[] {0}, index.search("eggs", 10));
+ }
+}
@@ -0,0 +1,111 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MutationLogTest {
+ //each test saves through a MutationLog, then reloads the file into a fresh collection
+
+ @TempDir
+ Path dir;
+
+ private static Recipe recipe(String name) {
+  return new Recipe(name, "Italian", "dinner", List.of("flour", "egg"), "Mix", 5, 10, "easy", 3, "");
+ }
+
+ private static List<String> names(IRecipeOperations recipes) {
+  List<String> names = new ArrayList<>();
+  for (Recipe recipe : recipes.viewAllRecipes()) {
+   names.add(recipe.getRecipeName());
+  }
+  return names;
+ }
+
+ private static RecipeCollection reload(String fileName) throws IOException {
+  RecipeCollection reloaded = new RecipeCollection();
+  reloaded.loadRecipes(fileName);
+  return reloaded;
+ }
+
+ @Test
+ void recipeWithEmptyNameDoesNotShiftTheOthers() throws IOException {
+  String fileName = dir.resolve("recipes.txt").toString();
+  RecipeCollection recipes = new RecipeCollection();
+  MutationLog log = new MutationLog(fileName);
+  recipes.addChangeListener(log);
+  recipes.addRecipe(recipe("One"));
+  recipes.addRecipe(recipe(""));
+  recipes.addRecipe(recipe("Two"));
+  recipes.addRecipe(recipe("Three"));
+  recipes.modifyRecipe("Three", "rating", "5");
+  log.close();
+
+  RecipeCollection reloaded = reload(fileName);
+  assertEquals(List.of("One", "", "Two", "Three"), names(reloaded));
+  assertEquals(5, reloaded.viewAllRecipes().get(3).getRating());
+ }
+
+ @Test
+ void emptyNameSurvivesCompaction() throws IOException {
+  String fileName = dir.resolve("recipes.txt").toString();
+  RecipeCollection recipes = new RecipeCollection();
+  MutationLog log = new MutationLog(fileName);
+  recipes.addChangeListener(log);
+  recipes.addRecipe(recipe("One"));
+  recipes.addRecipe(recipe(""));
+  log.compact();
+  log.flush();
+  recipes.addRecipe(recipe("Two"));
+  recipes.modifyRecipe("Two", "rating", "4");
+  log.close();
+
+  RecipeCollection reloaded = reload(fileName);
+  assertEquals(List.of("One", "", "Two"), names(reloaded));
+  assertEquals(4, reloaded.viewAllRecipes().get(2).getRating());
+ }
+
+ @Test
+ void recipesLoadedAfterTheLogIsAttachedAreSaved() throws IOException {
+  String other = dir.resolve("other.txt").toString();
+  RecipeCollection.writeRecipeFile(List.of(recipe("Loaded A"), recipe("Loaded B")), new File(other));
+
+  String fileName = dir.resolve("recipes.txt").toString();
+  RecipeCollection recipes = new RecipeCollection();
+  MutationLog log = new MutationLog(fileName);
+  recipes.addChangeListener(log);
+  recipes.addRecipe(recipe("One"));
+  recipes.loadRecipes(other);
+  recipes.addRecipe(recipe("Two"));
+  recipes.modifyRecipe("Two", "rating", "1");
+  log.close();
+
+  RecipeCollection reloaded = reload(fileName);
+  assertEquals(List.of("One", "Loaded A", "Loaded B", "Two"), names(reloaded));
+  assertEquals(1, reloaded.viewAllRecipes().get(3).getRating());
+ }
+
+ @Test
+ void entryThatCannotBeAppliedForcesASnapshot() throws IOException {
+  String fileName = dir.resolve("recipes.txt").toString();
+  RecipeCollection.writeRecipeFile(List.of(recipe("One")), new File(fileName));
+  Files.writeString(Path.of(fileName + ".log"),
+                    "SET 7\n" + recipe("Lost") + "----------------------\n"
+                    + "ADD\n" + recipe("Two") + "----------------------\n");
+
+  assertEquals(List.of("One", "Two"), names(reload(fileName)));
+  //the file now holds what was recovered and the skipped entry is kept aside instead of being dropped
+  assertEquals(0, Files.size(Path.of(fileName + ".log")));
+  assertTrue(Files.readString(Path.of(fileName + ".log.rejected")).contains("Recipe Name: Lost"));
+  assertEquals(List.of("One", "Two"), names(reload(fileName)));
+ }
+}
@@ -0,0 +1,209 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PagedRecipeStoreTest {
+ //each test starts from a page file of 40 recipes of about 450 bytes, so a page holds some 17 of them,
+ //changes go straight to the store as a collection's listener calls would, and the file is read back afterwards
+
+ private static final int PAGE = PagedRecipeStore.PAGE_SIZE;
+
+ @TempDir
+ Path dir;
+
+ private File file;
+ private List<Recipe> recipes;
+
+ private static Recipe recipe(int number, int notesLength) {
+  return new Recipe("Recipe " + number, "Italian", "dinner", List.of("flour", "egg"), "Mix and bake", 5, 10, "easy",
+                    3, "n".repeat(notesLength));
+ }
+
+ private static List<String> texts(List<Recipe> recipes) {
+  List<String> texts = new ArrayList<>();
+  for (Recipe recipe : recipes) {
+   texts.add(recipe.toString());
+  }
+  return texts;
+ }
+
+ private void change(PagedRecipeStore store, int position, Recipe recipe) {
+  if (position == recipes.size()) {
+   recipes.add(recipe);
+  } else {
+   recipes.set(position, recipe);
+  }
+  store.recipeChanged(position, recipe);
+ }
+
+ private static int page(long location) {
+  return (int) (location >>> 16);
+ }
+
+ private void assertFileHoldsTheRecipes() throws IOException {
+  assertEquals(texts(recipes), texts(PagedRecipeStore.read(file)));
+ }
+
+ @BeforeEach
+ void writeFile() throws IOException {
+  file = dir.resolve("recipes.pages").toFile();
+  recipes = new ArrayList<>();
+  for (int i = 0; i < 40; i++) {
+   recipes.add(recipe(i, 400));
+  }
+  PagedRecipeStore.write(recipes, file);
+ }
+
+ @Test
+ void recipesAreRewrittenInPlaceMovedWithAStubAndMovedBackHome() throws IOException {
+  PagedRecipeStore store = new PagedRecipeStore(file.getPath());
+  long first = store.locationOf(0);
+  change(store, 0, recipe(0, 380));
+  assertEquals(first, store.locationOf(0)); //fits in its own slot
+
+  long home = store.homeOf(1);
+  change(store, 1, recipe(1, 3500)); //too big for the page it shares with the others
+  long moved = store.locationOf(1);
+  assertNotEquals(page(home), page(moved));
+  assertEquals(home, store.homeOf(1));
+  int next = recipes.size();
+  do {
+   change(store, next, recipe(next, 400)); //new recipes fill the page it moved to
+  } while (page(store.locationOf(next++)) == page(moved));
+  store.flush();
+  store.flush(); //the old record becomes a stub once the moved copy is on disk
+  store.close();
+  assertFileHoldsTheRecipes();
+
+  PagedRecipeStore reopened = new PagedRecipeStore(file.getPath());
+  assertEquals(home, reopened.homeOf(1)); //found again through the stub
+  assertEquals(moved, reopened.locationOf(1));
+  for (int i = 2; i < 12; i++) {
+   change(reopened, i, recipe(i, 10)); //makes room in the home page
+  }
+  change(reopened, 1, recipe(1, 4000)); //no longer fits where it moved to
+  assertEquals(home, reopened.locationOf(1)); //back in its home slot
+  reopened.close();
+  assertFileHoldsTheRecipes();
+ }
+
+ @Test
+ void largeRecipesAreKeptInOverflowPages() throws IOException {
+  PagedRecipeStore store = new PagedRecipeStore(file.getPath());
+  int pages = store.getPageCount();
+  change(store, 5, recipe(5, 20000));
+  change(store, 40, recipe(40, 30000)); //a new position
+  assertTrue(store.getPageCount() >= pages + 6, "the notes span several overflow pages");
+  store.close();
+  assertFileHoldsTheRecipes();
+
+  PagedRecipeStore reopened = new PagedRecipeStore(file.getPath());
+  change(reopened, 5, recipe(5, 25000));
+  change(reopened, 40, recipe(40, 10));
+  reopened.close();
+  assertFileHoldsTheRecipes();
+ }
+
+ @Test
+ void compactedFileKeepsEveryPositionAfterReopening() throws IOException {
+  PagedRecipeStore store = new PagedRecipeStore(file.getPath());
+  for (int i = 40; i < 300; i++) {
+   change(store, i, recipe(i, 400));
+  }
+  for (int i = 0; i < 300; i += 2) {
+   change(store, i, recipe(i, 3000)); //moves out, two to a page
+  }
+  store.flush();
+  store.flush();
+  int grown = store.getPageCount();
+  for (int i = 0; i < 300; i += 2) {
+   change(store, i, recipe(i, 10)); //shrinks where it moved to, leaving those pages nearly empty
+  }
+  store.compact();
+  assertTrue(store.getPageCount() < grown / 2, store.getPageCount() + " pages left of " + grown);
+  store.close();
+  assertFileHoldsTheRecipes();
+
+  PagedRecipeStore reopened = new PagedRecipeStore(file.getPath());
+  change(reopened, 7, recipe(7, 200));
+  change(reopened, 298, recipe(298, 500));
+  reopened.close();
+  assertFileHoldsTheRecipes();
+ }
+
+ @Test
+ void damagedPageIsRefusedAndLeftAsItIs() throws IOException {
+  byte[] bytes = Files.readAllBytes(file.toPath());
+  bytes[PAGE + PAGE - 100] ^= 1; //inside a record of the first data page
+  Files.write(file.toPath(), bytes);
+
+  assertThrows(IOException.class, () -> PagedRecipeStore.read(file));
+  assertThrows(IOException.class, () -> new PagedRecipeStore(file.getPath()));
+  assertThrows(IOException.class, () -> new RecipeCollection().loadRecipes(file.getPath()));
+  assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+ }
+
+ @Test
+ void tornPageIsWrittenAgainFromTheJournal() throws IOException {
+  byte[] before = Files.readAllBytes(file.toPath());
+  PagedRecipeStore store = new PagedRecipeStore(file.getPath());
+  change(store, 3, recipe(3, 380));
+  store.close();
+  byte[] after = Files.readAllBytes(file.toPath());
+
+  //a crash in the middle of writing the changed page, after its journal was forced
+  List<Integer> changed = new ArrayList<>();
+  for (int number = 1; number < after.length / PAGE; number++) {
+   if (!Arrays.equals(before, number * PAGE, number * PAGE + PAGE, after, number * PAGE, number * PAGE + PAGE)) {
+    changed.add(number);
+   }
+  }
+  assertEquals(1, changed.size());
+  int number = changed.get(0);
+  byte[] torn = before.clone();
+  System.arraycopy(after, number * PAGE, torn, number * PAGE, PAGE / 2);
+  Files.write(file.toPath(), torn);
+  try (FileChannel journal = FileChannel.open(Path.of(file.getPath() + PagedRecipeStore.JOURNAL_EXTENSION),
+                                              StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+   PagedRecipeStore.Journal.write(journal, new int[] {number},
+                                  new byte[][] {Arrays.copyOfRange(after, number * PAGE, number * PAGE + PAGE)},
+                                  after.length / PAGE);
+  }
+
+  assertFileHoldsTheRecipes(); //read takes the page from the journal without writing
+  assertArrayEquals(torn, Files.readAllBytes(file.toPath()));
+  new PagedRecipeStore(file.getPath()).close(); //open writes it where it belongs
+  assertArrayEquals(after, Files.readAllBytes(file.toPath()));
+  assertFileHoldsTheRecipes();
+ }
+
+ @Test
+ void savingOneChangedRecipeWritesOnePage() throws IOException {
+  PagedRecipeStore store = new PagedRecipeStore(file.getPath());
+  Recipe changed = recipe(12, 400);
+  changed.setRating(5);
+  change(store, 12, changed);
+  store.flush();
+  assertEquals(1, store.getPagesWritten());
+  store.close();
+  assertFileHoldsTheRecipes();
+ }
+}
@@ -0,0 +1,37 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class QueryCacheTest {
+
+ @Test
+ void resultsAreOnlyServedForTheVersionTheyWereComputedAt() {
+  QueryCacheMetrics metrics = new QueryCacheMetrics();
+  QueryCache cache = new QueryCache(metrics);
+  cache.put("a", 1, new int[] {1, 2});
+  assertArrayEquals(new int[] {1, 2}, cache.get("a", 1));
+  assertNull(cache.get("a", 2));
+  cache.put("b", 1, new int[] {3}); //computed before the change, not kept
+  assertNull(cache.get("b", 2));
+  assertEquals(1, metrics.getHits());
+  assertEquals(2, metrics.getMisses());
+  assertEquals(1, metrics.getInvalidations());
+ }
+
+ @Test
+ void theLeastRecentlyUsedResultsAreEvicted() {
+  QueryCache cache = new QueryCache(new QueryCacheMetrics());
+  for (int i = 0; i < QueryCache.MAX_ENTRIES; i++) {
+   cache.put("query " + i, 1, new int[] {i});
+  }
+  cache.get("query 0", 1);
+  cache.put("one more", 1, new int[] {-1});
+  assertArrayEquals(new int[] {0}, cache.get("query 0", 1));
+  assertNull(cache.get("query 1", 1));
+  assertArrayEquals(new int[] {-1}, cache.get("one more", 1));
+ }
+}
@@ -0,0 +1,87 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RecipeCollectionTest {
+ //the compiled sort plans and the query planner are checked against the plain comparator sort and
+ //RecipeQuery.matches over every recipe, which is what they replaced
+
+ private SyntheticRecipeGenerator generator;
+ private RecipeCollection recipes;
+
+ private static List<String> texts(List<Recipe> recipes) {
+  List<String> texts = new ArrayList<>();
+  for (Recipe recipe : recipes) {
+   texts.add(recipe.toString());
+  }
+  return texts;
+ }
+
+ private List<Recipe> sortedBy(Comparator<Recipe> order) {
+  List<Recipe> sorted = new ArrayList<>(recipes.viewAllRecipes());
+  sorted.sort(order); //stable, equal keys keep position order
+  return sorted;
+ }
+
+ @BeforeEach
+ void fill() {
+  generator = new SyntheticRecipeGenerator(7);
+  recipes = new RecipeCollection();
+  recipes.addRecipes(generator.generate(3000));
+  for (int i = 0; i < 300; i++) {
+   recipes.modifyRecipe(recipes.viewAllRecipes().get(i * 7).getRecipeName(), "rating", String.valueOf(i % 5 + 1));
+  }
+ }
+
+ @Test
+ void sortPlansGiveTheComparatorOrder() {
+  Comparator<Recipe> rating = Comparator.comparingInt(Recipe::getRating).reversed();
+  Comparator<Recipe> cookTime = Comparator.comparingInt(Recipe::getCookTime);
+  Comparator<Recipe> difficulty = Comparator.comparingInt(r -> SortedView.difficultyRank(r.getDifficulty()));
+
+  assertEquals(texts(sortedBy(rating)), texts(recipes.sortRecipes("single", "rating", "cookTime")));
+  assertEquals(texts(sortedBy(rating.thenComparing(cookTime))),
+               texts(recipes.sortRecipes("multiple", "rating", "cookTime")));
+  assertEquals(texts(sortedBy(difficulty.thenComparing(cookTime.reversed()))),
+               texts(recipes.sortRecipes("multiple", "difficulty", "cookTime desc")));
+  assertEquals(texts(recipes.viewAllRecipes()), texts(recipes.sortRecipes("multiple", "calories")));
+
+  List<Recipe> full = recipes.sortRecipes("multiple", "rating", "cookTime");
+  assertEquals(texts(full.subList(0, 20)), texts(recipes.sortRecipesPage(0, 20, "multiple", "rating", "cookTime")));
+  assertEquals(texts(full.subList(1500, 1550)),
+               texts(recipes.sortRecipesPage(1500, 50, "multiple", "rating", "cookTime")));
+  assertEquals(texts(full.subList(2990, 3000)),
+               texts(recipes.sortRecipesPage(2990, 50, "multiple", "rating", "cookTime")));
+ }
+
+ @Test
+ void plannedQueriesMatchTheRecipesTheyDescribe() {
+  Recipe sample = recipes.viewAllRecipes().get(123);
+  List<RecipeQuery> queries = List.of(
+      new RecipeQuery().withMealType("dinner").withIngredients(generator.randomIngredient())
+                       .withRating(4, 5).withCookTime(0, 30),
+      new RecipeQuery().withDifficulty("easy", "hard").withPrepTime(10, 20),
+      new RecipeQuery().withCuisine(sample.getCuisineType()).withNameContaining(sample.getRecipeName().substring(0, 4)),
+      new RecipeQuery().withName(sample.getRecipeName().toUpperCase()),
+      new RecipeQuery().withIngredients(generator.randomIngredient(), generator.randomIngredient()),
+      new RecipeQuery().withRating(2, 2).withMealType("breakfast", "snack"));
+  for (RecipeQuery query : queries) {
+   List<Recipe> expected = new ArrayList<>();
+   for (Recipe recipe : recipes.viewAllRecipes()) {
+    if (query.matches(recipe)) {
+     expected.add(recipe);
+    }
+   }
+   assertEquals(texts(expected), texts(recipes.searchRecipes(query)));
+  }
+  assertFalse(recipes.searchRecipes(queries.get(3)).isEmpty());
+ }
+}
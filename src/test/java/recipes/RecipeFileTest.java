@@ -0,0 +1,61 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RecipeFileTest {
+ //the text file is read line by line when small and in parallel regions from 1 MB up, both must give the same result
+
+ @TempDir
+ Path dir;
+
+ private static String captureOutput(IORunnable action) throws IOException {
+  PrintStream console = System.out;
+  ByteArrayOutputStream out = new ByteArrayOutputStream();
+  System.setOut(new PrintStream(out, true));
+  try {
+   action.run();
+  } finally {
+   System.setOut(console);
+  }
+  return out.toString();
+ }
+
+ interface IORunnable {
+  void run() throws IOException;
+ }
+
+ @Test
+ void parallelAndSerialReadersSkipAndReportTheSameChunks() throws IOException {
+  File file = dir.resolve("recipes.txt").toFile();
+  List<Recipe> recipes = new SyntheticRecipeGenerator(42).generate(6000);
+  RecipeCollection.writeRecipeFile(recipes, file);
+  //a chunk without a name in the middle of the file and one at the end without a separator
+  String broken = "Cuisine: Unknown\nRating: 3\n----------------------\n";
+  Files.writeString(file.toPath(), broken + "Notes: cut off\n", StandardOpenOption.APPEND);
+  assertTrue(file.length() >= 1024 * 1024, "large enough for the parallel reader");
+
+  List<Recipe> parallel = new ArrayList<>();
+  String parallelOutput = captureOutput(() -> parallel.addAll(RecipeCollection.readRecipeFile(file)));
+  List<Recipe> serial = new ArrayList<>();
+  String serialOutput = captureOutput(() -> RecipeCollection.readTextRecipes(file, serial::add));
+
+  assertEquals(recipes.size(), parallel.size());
+  assertEquals(serial.toString(), parallel.toString());
+  assertEquals(serialOutput, parallelOutput);
+  assertTrue(parallelOutput.contains("skipped 2 recipes without a name"), parallelOutput);
+ }
+}
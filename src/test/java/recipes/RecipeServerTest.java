@@ -0,0 +1,62 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RecipeServerTest {
+ //posts to a server on a free loopback port and checks which bodies change the collection
+
+ private static final String RECIPE = "{\"recipeName\":\"Pancakes\",\"cuisineType\":\"French\",\"mealType\":\"breakfast\"}";
+
+ private final HttpClient client = HttpClient.newHttpClient();
+ private ConcurrentRecipeCollection recipes;
+ private RecipeServer server;
+
+ @BeforeEach
+ void start() throws IOException {
+  recipes = new ConcurrentRecipeCollection();
+  server = new RecipeServer(recipes, 0);
+  server.start();
+ }
+
+ @AfterEach
+ void stop() {
+  server.stop();
+ }
+
+ private int post(String contentType, HttpRequest.BodyPublisher body) throws IOException, InterruptedException {
+  HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/recipes"))
+      .POST(body);
+  if (contentType != null) {
+   request.header("Content-Type", contentType);
+  }
+  return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+ }
+
+ @Test
+ void onlyJsonBodiesAreAccepted() throws IOException, InterruptedException {
+  assertEquals(415, post("application/x-www-form-urlencoded", HttpRequest.BodyPublishers.ofString(RECIPE)));
+  assertEquals(415, post("text/plain", HttpRequest.BodyPublishers.ofString(RECIPE)));
+  assertEquals(415, post(null, HttpRequest.BodyPublishers.ofString(RECIPE)));
+  assertEquals(List.of(), recipes.viewAllRecipes());
+  assertEquals(201, post("application/json; charset=utf-8", HttpRequest.BodyPublishers.ofString(RECIPE)));
+  assertEquals(1, recipes.viewAllRecipes().size());
+ }
+
+ @Test
+ void bodiesOverTheLimitAreRefused() throws IOException, InterruptedException {
+  byte[] large = new byte[RecipeServer.MAX_BODY + 1];
+  assertEquals(413, post("application/json", HttpRequest.BodyPublishers.ofByteArray(large)));
+  assertEquals(List.of(), recipes.viewAllRecipes());
+ }
+}
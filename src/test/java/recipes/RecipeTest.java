@@ -0,0 +1,42 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RecipeTest {
+ //the ingredients are kept as dictionary ids, these pin down what that means for callers of the public getters
+
+ @Test
+ void ingredientsAreReadOnlyAndChangedBySettingANewList() {
+  List<String> ingredients = new ArrayList<>(List.of("flour", "milk"));
+  Recipe recipe = new Recipe("Pancakes", "American", "breakfast", ingredients, "Mix and fry", 10, 5, "easy", 4, "");
+  ingredients.add("egg"); //the recipe took a copy
+
+  List<String> read = recipe.getIngredients();
+  assertEquals(List.of("flour", "milk"), read);
+  assertThrows(UnsupportedOperationException.class, () -> read.add("egg"));
+  assertThrows(UnsupportedOperationException.class, () -> read.set(0, "rice flour"));
+
+  recipe.setIngredients(List.of("flour", "milk", "egg"));
+  assertEquals(List.of("flour", "milk", "egg"), recipe.getIngredients());
+  assertEquals(List.of("flour", "milk"), read); //a list already returned keeps the old ingredients
+ }
+
+ @Test
+ void copiesHaveTheirOwnIngredients() {
+  Recipe recipe = new Recipe("Pancakes", "American", "breakfast", List.of("flour"), "Mix", 10, 5, "easy", 4, "");
+  Recipe copy = new Recipe(recipe);
+  copy.setIngredients(List.of("buckwheat"));
+  assertEquals(List.of("flour"), recipe.getIngredients());
+  assertEquals(List.of("buckwheat"), copy.getIngredients());
+
+  recipe.setIngredients(null);
+  assertNull(recipe.getIngredients());
+ }
+}
@@ -0,0 +1,62 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ShardedRecipeCollectionTest {
+ //the shards' results are merged back into the order a single collection gives
+
+ private static List<String> texts(List<Recipe> recipes) {
+  List<String> texts = new ArrayList<>();
+  for (Recipe recipe : recipes) {
+   texts.add(recipe.toString());
+  }
+  return texts;
+ }
+
+ private static void assertSameResults(IRecipeOperations expected, IRecipeOperations actual, String ingredient,
+                                       String name) {
+  assertEquals(texts(expected.viewAllRecipes()), texts(actual.viewAllRecipes()));
+  assertEquals(texts(expected.searchRecipes("meal type", "lunch")), texts(actual.searchRecipes("meal type", "lunch")));
+  assertEquals(texts(expected.searchRecipes("single ingredient", ingredient)),
+               texts(actual.searchRecipes("single ingredient", ingredient)));
+  assertEquals(texts(expected.searchRecipes("recipe name (partial)", name)),
+               texts(actual.searchRecipes("recipe name (partial)", name)));
+  assertEquals(texts(expected.searchRecipes("full text", "bake oven")),
+               texts(actual.searchRecipes("full text", "bake oven")));
+  assertEquals(texts(expected.sortRecipes("multiple", "rating", "cookTime")),
+               texts(actual.sortRecipes("multiple", "rating", "cookTime")));
+  assertEquals(texts(expected.sortRecipesPage(700, 40, "multiple", "difficulty", "prepTime desc")),
+               texts(actual.sortRecipesPage(700, 40, "multiple", "difficulty", "prepTime desc")));
+  RecipeQuery query = new RecipeQuery().withMealType("dinner").withRating(3, 5).withCookTime(0, 45);
+  assertEquals(texts(expected.searchRecipes(query)), texts(actual.searchRecipes(query)));
+ }
+
+ @Test
+ void mergedResultsKeepTheSingleCollectionOrder() {
+  SyntheticRecipeGenerator generator = new SyntheticRecipeGenerator(11);
+  List<Recipe> data = generator.generate(2000);
+  RecipeCollection single = new RecipeCollection();
+  ShardedRecipeCollection sharded = new ShardedRecipeCollection(3);
+  single.addRecipes(data);
+  sharded.addRecipes(data);
+  String ingredient = generator.randomIngredient();
+  String name = data.get(10).getRecipeName().substring(0, 5);
+  assertSameResults(single, sharded, ingredient, name);
+
+  List<RecipeMutation> batch = new ArrayList<>();
+  for (int i = 0; i < 200; i += 3) {
+   batch.add(new RecipeMutation(data.get(i).getRecipeName(), "rating", String.valueOf(i % 5 + 1)));
+   batch.add(new RecipeMutation(data.get(i + 1).getRecipeName(), "cookTime", String.valueOf(i % 60)));
+  }
+  single.modifyRecipes(batch);
+  sharded.modifyRecipes(batch);
+  single.addRecipe(data.get(5));
+  sharded.addRecipe(data.get(5));
+  assertSameResults(single, sharded, ingredient, name);
+ }
+}
@@ -0,0 +1,59 @@
+package recipes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+class SortedViewTest {
+ //the view is checked against a TreeSet of the same packed entries after every kind of change
+
+ private static Recipe rated(int rating) {
+  return new Recipe("R", "Italian", "dinner", List.of("flour"), "Mix", 5, 10, "easy", rating, "");
+ }
+
+ private static List<Long> entries(SortedView view) {
+  List<Long> entries = new ArrayList<>();
+  for (PrimitiveIterator.OfLong it = view.iterator(); it.hasNext();) {
+   entries.add(it.nextLong());
+  }
+  return entries;
+ }
+
+ @Test
+ void staysInOrderThroughAddsChangesAndMerges() {
+  SortedView view = SortedView.forField("rating");
+  TreeSet<Long> expected = new TreeSet<>();
+  int[] ratings = new int[5000];
+  Random random = new Random(3);
+  for (int step = 0; step < 20000; step++) {
+   int position = step < ratings.length ? step : random.nextInt(ratings.length);
+   int rating = random.nextInt(6);
+   if (step >= ratings.length) {
+    expected.remove(SortedView.pack(~ratings[position], position));
+   }
+   ratings[position] = rating;
+   expected.add(SortedView.pack(~rating, position));
+   view.update(position, rated(rating));
+   if (step % 997 == 0) {
+    assertEquals(new ArrayList<>(expected), entries(view));
+   }
+  }
+  assertEquals(new ArrayList<>(expected), entries(view));
+ }
+
+ @Test
+ void aKeyChangedAndChangedBackIsListedOnce() {
+  SortedView view = SortedView.forField("rating");
+  view.update(0, rated(3));
+  view.update(1, rated(4));
+  view.update(0, rated(5));
+  view.update(0, rated(3));
+  assertEquals(List.of(SortedView.pack(~4, 1), SortedView.pack(~3, 0)), entries(view));
+ }
+}